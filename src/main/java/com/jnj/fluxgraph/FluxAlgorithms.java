@@ -0,0 +1,378 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Direction;
+import datomic.Database;
+import datomic.Util;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Parallel graph algorithms (PageRank, BFS levels, connected components and triangle counts) on top of an adjacency snapshot. The vertex
+ * ranges are processed through fork-join tasks and all results are primitive arrays, indexed on the dense vertex indices of the snapshot.
+ * As snapshots can be taken from the graph as of a checkpoint, the algorithms can be run on any version of the graph. Results can be
+ * written back as vertex properties (on the current version of the graph) through batched transactions.
+ *
+ * <code>
+ *     FluxAlgorithms algorithms = new FluxAlgorithms(graph.snapshot());
+ *     algorithms.writeBack("pagerank", algorithms.pageRank(0.85, 20, 1e-6), 1000);
+ * </code>
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxAlgorithms {
+
+    // The number of vertices processed by a single fork-join task
+    private static final int THRESHOLD = 1024;
+
+    private final FluxSnapshot snapshot;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    public FluxAlgorithms(final FluxSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    // The number of threads used by the algorithms (the number of processors by default)
+    public FluxAlgorithms parallelism(final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism should be at least 1");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public FluxSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // Computes the PageRank of each vertex. Stops after the given number of iterations or as soon as the total change drops below the tolerance
+    public double[] pageRank(final double damping, final int iterations, final double tolerance) {
+        final int vertices = snapshot.getVertexCount();
+        if (vertices == 0) {
+            return new double[0];
+        }
+        final double[] ranks = new double[vertices];
+        final double[] newRanks = new double[vertices];
+        Arrays.fill(ranks, 1.0d / vertices);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (int iteration = 0; iteration < iterations; iteration++) {
+                // The rank of vertices without outgoing edges is spread across all vertices
+                double dangling = 0.0d;
+                for (int vertex = 0; vertex < vertices; vertex++) {
+                    if (snapshot.getDegree(vertex, Direction.OUT) == 0) {
+                        dangling = dangling + ranks[vertex];
+                    }
+                }
+                final double base = (1.0d - damping) / vertices + damping * dangling / vertices;
+                double change = pool.invoke(new RangeTask(0, vertices, new Range() {
+                    @Override
+                    public double process(int from, int to) {
+                        double change = 0.0d;
+                        for (int vertex = from; vertex < to; vertex++) {
+                            double rank = 0.0d;
+                            int degree = snapshot.getDegree(vertex, Direction.IN);
+                            for (int i = 0; i < degree; i++) {
+                                int neighbor = snapshot.getNeighbor(vertex, Direction.IN, i);
+                                rank = rank + ranks[neighbor] / snapshot.getDegree(neighbor, Direction.OUT);
+                            }
+                            newRanks[vertex] = base + damping * rank;
+                            change = change + Math.abs(newRanks[vertex] - ranks[vertex]);
+                        }
+                        return change;
+                    }
+                }));
+                System.arraycopy(newRanks, 0, ranks, 0, vertices);
+                if (change < tolerance) {
+                    break;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return ranks;
+    }
+
+    // Computes the BFS level (number of hops) of each vertex starting from the given vertex (-1 for vertices that can not be reached)
+    public int[] bfsLevels(final int source, final Direction direction) {
+        final AtomicIntegerArray levels = new AtomicIntegerArray(snapshot.getVertexCount());
+        for (int vertex = 0; vertex < levels.length(); vertex++) {
+            levels.set(vertex, -1);
+        }
+        levels.set(source, 0);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            int[] frontier = new int[] {source};
+            int level = 0;
+            while (frontier.length > 0) {
+                final int[] currentFrontier = frontier;
+                final int nextLevel = ++level;
+                final ConcurrentLinkedQueue<int[]> next = new ConcurrentLinkedQueue<int[]>();
+                pool.invoke(new RangeTask(0, currentFrontier.length, new Range() {
+                    @Override
+                    public double process(int from, int to) {
+                        FluxSnapshot.IntList discovered = new FluxSnapshot.IntList();
+                        for (int i = from; i < to; i++) {
+                            for (int neighbor : snapshot.getNeighbors(currentFrontier[i], direction)) {
+                                if (levels.compareAndSet(neighbor, -1, nextLevel)) {
+                                    discovered.add(neighbor);
+                                }
+                            }
+                        }
+                        if (discovered.size() > 0) {
+                            next.add(discovered.toArray());
+                        }
+                        return 0;
+                    }
+                }));
+                frontier = concat(next);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return toArray(levels);
+    }
+
+    // Computes the (weakly) connected components. Each vertex is labeled with the smallest vertex index of its component
+    public int[] connectedComponents() {
+        final AtomicIntegerArray components = new AtomicIntegerArray(snapshot.getVertexCount());
+        for (int vertex = 0; vertex < components.length(); vertex++) {
+            components.set(vertex, vertex);
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            final AtomicBoolean changed = new AtomicBoolean(true);
+            while (changed.get()) {
+                changed.set(false);
+                pool.invoke(new RangeTask(0, components.length(), new Range() {
+                    @Override
+                    public double process(int from, int to) {
+                        for (int vertex = from; vertex < to; vertex++) {
+                            // Pointer jumping speeds up the propagation of the smallest label
+                            int component = components.get(components.get(vertex));
+                            for (int neighbor : snapshot.getNeighbors(vertex, Direction.BOTH)) {
+                                component = Math.min(component, components.get(neighbor));
+                            }
+                            if (lower(components, vertex, component)) {
+                                changed.set(true);
+                            }
+                        }
+                        return 0;
+                    }
+                }));
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return toArray(components);
+    }
+
+    // Computes the number of triangles each vertex is part of (ignoring edge directions, self loops and parallel edges)
+    public int[] triangles() {
+        final int vertices = snapshot.getVertexCount();
+        final AtomicIntegerArray triangles = new AtomicIntegerArray(vertices);
+        final int[][] higherNeighbors = new int[vertices][];
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            // Orient the edges from lower to higher vertex index, which makes each triangle being found exactly once
+            pool.invoke(new RangeTask(0, vertices, new Range() {
+                @Override
+                public double process(int from, int to) {
+                    for (int vertex = from; vertex < to; vertex++) {
+                        higherNeighbors[vertex] = getHigherNeighbors(vertex);
+                    }
+                    return 0;
+                }
+            }));
+            pool.invoke(new RangeTask(0, vertices, new Range() {
+                @Override
+                public double process(int from, int to) {
+                    for (int vertex = from; vertex < to; vertex++) {
+                        int[] neighbors = higherNeighbors[vertex];
+                        for (int neighbor : neighbors) {
+                            int[] neighborNeighbors = higherNeighbors[neighbor];
+                            // Intersect the sorted neighbor lists
+                            int i = 0;
+                            int j = 0;
+                            while (i < neighbors.length && j < neighborNeighbors.length) {
+                                if (neighbors[i] < neighborNeighbors[j]) {
+                                    i++;
+                                }
+                                else if (neighbors[i] > neighborNeighbors[j]) {
+                                    j++;
+                                }
+                                else {
+                                    triangles.incrementAndGet(vertex);
+                                    triangles.incrementAndGet(neighbor);
+                                    triangles.incrementAndGet(neighbors[i]);
+                                    i++;
+                                    j++;
+                                }
+                            }
+                        }
+                    }
+                    return 0;
+                }
+            }));
+        } finally {
+            pool.shutdown();
+        }
+        return toArray(triangles);
+    }
+
+    // Computes the total number of triangles in the graph
+    public long countTriangles() {
+        long total = 0;
+        for (int count : triangles()) {
+            total = total + count;
+        }
+        return total / 3;
+    }
+
+    // Writes the values back as a property on the (current version of the) vertices, committing a transaction per batch of vertices.
+    // Vertices that no longer exist in the current version of the graph are skipped
+    public void writeBack(final String key, final double[] values, final int batchSize) {
+        Object[] boxed = new Object[values.length];
+        for (int vertex = 0; vertex < values.length; vertex++) {
+            boxed[vertex] = values[vertex];
+        }
+        writeBack(key, boxed, Double.class, batchSize);
+    }
+
+    // Writes the values back as a property on the (current version of the) vertices, committing a transaction per batch of vertices.
+    // Negative values (for instance the level of an unreachable vertex) are not written
+    public void writeBack(final String key, final int[] values, final int batchSize) {
+        Object[] boxed = new Object[values.length];
+        for (int vertex = 0; vertex < values.length; vertex++) {
+            boxed[vertex] = values[vertex] >= 0 ? Integer.valueOf(values[vertex]) : null;
+        }
+        writeBack(key, boxed, Integer.class, batchSize);
+    }
+
+    private void writeBack(final String key, final Object[] values, final Class valueClazz, final int batchSize) {
+        if (values.length != snapshot.getVertexCount()) {
+            throw new IllegalArgumentException("The number of values does not match the number of vertices of the snapshot");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size should be at least 1");
+        }
+        if (FluxUtil.isReservedKey(key)) {
+            throw new IllegalArgumentException("Property key is reserved: " + key);
+        }
+        FluxGraph graph = snapshot.getGraph();
+        FluxUtil.createAttributeDefinition(key, valueClazz, FluxVertex.class, graph);
+        Database database = graph.getRawGraph();
+        // Values of another type need to be retracted (only checked per vertex if the key is actually used with another type)
+        boolean otherTypes = FluxUtil.getAttributeDefinitions(key, FluxVertex.class, database).size() > 1;
+        Object attribute = FluxUtil.createKey(key, valueClazz, FluxVertex.class);
+        int batch = 0;
+        long written = 0;
+        for (int vertex = 0; vertex < values.length; vertex++) {
+            long id = snapshot.getVertexId(vertex);
+            if (values[vertex] == null || database.entity(id).get(":graph.element/type") == null) {
+                continue;
+            }
+            FluxVertex fluxVertex = new FluxVertex(graph, null, id);
+            if (otherTypes) {
+                Object previous = fluxVertex.getProperty(key);
+                if (previous != null && !previous.getClass().equals(valueClazz)) {
+                    graph.addToTransaction(Util.list(":db/retract", id, FluxUtil.createKey(key, previous.getClass(), FluxVertex.class), previous));
+                }
+            }
+            graph.addToTransaction(Util.map(":db/id", id, attribute, values[vertex]));
+            graph.addTransactionInfo(fluxVertex);
+            written++;
+            if (++batch == batchSize) {
+                graph.transact();
+                batch = 0;
+            }
+        }
+        if (batch > 0) {
+            graph.transact();
+        }
+        FluxMetrics.count("algorithms.writtenBack", written);
+    }
+
+    // Returns the sorted, distinct adjacent vertices with a higher index than the given vertex
+    private int[] getHigherNeighbors(final int vertex) {
+        int[] neighbors = snapshot.getNeighbors(vertex, Direction.BOTH);
+        Arrays.sort(neighbors);
+        FluxSnapshot.IntList higher = new FluxSnapshot.IntList();
+        for (int i = 0; i < neighbors.length; i++) {
+            if (neighbors[i] > vertex && (i == 0 || neighbors[i] != neighbors[i - 1])) {
+                higher.add(neighbors[i]);
+            }
+        }
+        return higher.toArray();
+    }
+
+    // Lowers the value at the given index to the given value (if it is lower). Returns whether the value was changed
+    private static boolean lower(final AtomicIntegerArray values, final int index, final int value) {
+        while (true) {
+            int current = values.get(index);
+            if (value >= current) {
+                return false;
+            }
+            if (values.compareAndSet(index, current, value)) {
+                return true;
+            }
+        }
+    }
+
+    private static int[] concat(final ConcurrentLinkedQueue<int[]> parts) {
+        int size = 0;
+        for (int[] part : parts) {
+            size = size + part.length;
+        }
+        int[] result = new int[size];
+        int position = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, result, position, part.length);
+            position = position + part.length;
+        }
+        return result;
+    }
+
+    private static int[] toArray(final AtomicIntegerArray values) {
+        int[] result = new int[values.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+
+    // Processes a range of vertex indices (or frontier positions), returning a value that is summed over all ranges
+    private interface Range {
+        double process(int from, int to);
+    }
+
+    // Splits a range in halves until it is small enough to be processed by a single task
+    private static class RangeTask extends RecursiveTask<Double> {
+        private final int from;
+        private final int to;
+        private final Range range;
+
+        private RangeTask(final int from, final int to, final Range range) {
+            this.from = from;
+            this.to = to;
+            this.range = range;
+        }
+
+        @Override
+        protected Double compute() {
+            if (to - from <= THRESHOLD) {
+                return range.process(from, to);
+            }
+            int middle = (from + to) >>> 1;
+            RangeTask left = new RangeTask(from, middle, range);
+            left.fork();
+            double right = new RangeTask(middle, to, range).compute();
+            return left.join() + right;
+        }
+    }
+
+}
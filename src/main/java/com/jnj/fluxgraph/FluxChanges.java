@@ -0,0 +1,114 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Vertex;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The ids of the vertices and edges that changed within a window of transactions, grouped by kind of change:
+ * added (created within the window), removed (removed within the window) and updated (properties changed, while the element was
+ * neither added nor removed within the window). An element that was both created and removed within the window is part of both
+ * the added and removed ids.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxChanges {
+
+    private final Set<Object> addedVertices = new LinkedHashSet<Object>();
+    private final Set<Object> removedVertices = new LinkedHashSet<Object>();
+    private final Set<Object> updatedVertices = new LinkedHashSet<Object>();
+    private final Set<Object> addedEdges = new LinkedHashSet<Object>();
+    private final Set<Object> removedEdges = new LinkedHashSet<Object>();
+    private final Set<Object> updatedEdges = new LinkedHashSet<Object>();
+    private long transactions = 0;
+
+    // Adds the events of a single transaction
+    protected void add(final Iterable<FluxGraphEvent> events) {
+        transactions++;
+        for (FluxGraphEvent event : events) {
+            switch (event.getType()) {
+                case VERTEX_ADDED:
+                    addedVertices.add(event.getElementId());
+                    updatedVertices.remove(event.getElementId());
+                    break;
+                case VERTEX_REMOVED:
+                    removedVertices.add(event.getElementId());
+                    updatedVertices.remove(event.getElementId());
+                    break;
+                case EDGE_ADDED:
+                    addedEdges.add(event.getElementId());
+                    updatedEdges.remove(event.getElementId());
+                    break;
+                case EDGE_REMOVED:
+                    removedEdges.add(event.getElementId());
+                    updatedEdges.remove(event.getElementId());
+                    break;
+                default:
+                    if (event.getElementClass() == Vertex.class) {
+                        if (!addedVertices.contains(event.getElementId()) && !removedVertices.contains(event.getElementId())) {
+                            updatedVertices.add(event.getElementId());
+                        }
+                    }
+                    else {
+                        if (!addedEdges.contains(event.getElementId()) && !removedEdges.contains(event.getElementId())) {
+                            updatedEdges.add(event.getElementId());
+                        }
+                    }
+            }
+        }
+    }
+
+    public Set<Object> getAddedVertices() {
+        return Collections.unmodifiableSet(addedVertices);
+    }
+
+    public Set<Object> getRemovedVertices() {
+        return Collections.unmodifiableSet(removedVertices);
+    }
+
+    public Set<Object> getUpdatedVertices() {
+        return Collections.unmodifiableSet(updatedVertices);
+    }
+
+    public Set<Object> getAddedEdges() {
+        return Collections.unmodifiableSet(addedEdges);
+    }
+
+    public Set<Object> getRemovedEdges() {
+        return Collections.unmodifiableSet(removedEdges);
+    }
+
+    public Set<Object> getUpdatedEdges() {
+        return Collections.unmodifiableSet(updatedEdges);
+    }
+
+    // The ids of all vertices that were touched within the window
+    public Set<Object> getChangedVertices() {
+        Set<Object> changed = new LinkedHashSet<Object>(addedVertices);
+        changed.addAll(removedVertices);
+        changed.addAll(updatedVertices);
+        return changed;
+    }
+
+    // The ids of all edges that were touched within the window
+    public Set<Object> getChangedEdges() {
+        Set<Object> changed = new LinkedHashSet<Object>(addedEdges);
+        changed.addAll(removedEdges);
+        changed.addAll(updatedEdges);
+        return changed;
+    }
+
+    // The number of transactions within the window
+    public long getTransactionCount() {
+        return transactions;
+    }
+
+    @Override
+    public String toString() {
+        return "fluxchanges[transactions:" + transactions + ", vertices:+" + addedVertices.size() + "/-" + removedVertices.size() + "/~" + updatedVertices.size() +
+               ", edges:+" + addedEdges.size() + "/-" + removedEdges.size() + "/~" + updatedEdges.size() + "]";
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.jnj.fluxgraph;
+
+import clojure.lang.Keyword;
+import datomic.Database;
+import datomic.Datom;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Materialized view that keeps track of the number of vertices and edges of a graph, and of the number of edges per label.
+ *
+ * <code>
+ *     FluxCountsView counts = graph.registerView(new FluxCountsView(graph));
+ *     counts.awaitBasis(graph.getRawGraph().basisT());
+ *     long edges = counts.getEdgeCount("knows");
+ * </code>
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxCountsView extends FluxMaterializedView {
+
+    private final FluxGraph graph;
+    private long vertices = 0;
+    private long edges = 0;
+    private final Map<String,Long> edgesPerLabel = new HashMap<String,Long>();
+
+    public FluxCountsView(final FluxGraph graph) {
+        this.graph = graph;
+    }
+
+    public synchronized long getVertexCount() {
+        return vertices;
+    }
+
+    public synchronized long getEdgeCount() {
+        return edges;
+    }
+
+    public synchronized long getEdgeCount(final String label) {
+        Long count = edgesPerLabel.get(label);
+        return count != null ? count : 0;
+    }
+
+    public synchronized Map<String,Long> getEdgeCounts() {
+        return new HashMap<String,Long>(edgesPerLabel);
+    }
+
+    @Override
+    protected void rebuild(final Database database) {
+        vertices = FluxUtil.countElements(database, Keyword.intern("graph.element.type/vertex"));
+        edges = 0;
+        edgesPerLabel.clear();
+        for (Datom datom : FluxMetrics.datoms("FluxCountsView.rebuild", database, Database.AEVT, graph.GRAPH_EDGE_LABEL)) {
+            countEdge((String)datom.v(), 1);
+        }
+    }
+
+    @Override
+    protected void apply(final List<FluxGraphEvent> events, final Database database) {
+        for (FluxGraphEvent event : events) {
+            switch (event.getType()) {
+                case VERTEX_ADDED:
+                    vertices++;
+                    break;
+                case VERTEX_REMOVED:
+                    vertices--;
+                    break;
+                case EDGE_ADDED:
+                    countEdge(event.getLabel(), 1);
+                    break;
+                case EDGE_REMOVED:
+                    countEdge(event.getLabel(), -1);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void countEdge(final String label, final long delta) {
+        edges = edges + delta;
+        long count = getEdgeCount(label) + delta;
+        if (count > 0) {
+            edgesPerLabel.put(label, count);
+        }
+        else {
+            edgesPerLabel.remove(label);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "fluxcounts[vertices:" + vertices + ", edges:" + edges + ", t:" + getBasisT() + "]";
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.jnj.fluxgraph;
+
+import datomic.Connection;
+import datomic.Database;
+import datomic.Peer;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded (least recently used) cache of asOf database values, keyed by transaction. Reusing the same database value for a particular point
+ * in time avoids creating new filtered database views for each historical element and allows Datomic to reuse its per-view memoization.
+ * Only points in time that are part of the past of the current database value are cached: a value as of now (or a point in the future)
+ * would no longer include the transactions that are committed later on.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxDatabaseCache {
+
+    public static final int DEFAULT_MAX_DATABASES = 256;
+
+    private final Connection connection;
+    private final int maxDatabases;
+    private long hits = 0;
+    private long misses = 0;
+    private final Map<Object,Database> databases;
+
+    public FluxDatabaseCache(final Connection connection) {
+        this(connection, DEFAULT_MAX_DATABASES);
+    }
+
+    public FluxDatabaseCache(final Connection connection, final int maxDatabases) {
+        this.connection = connection;
+        this.maxDatabases = maxDatabases;
+        this.databases = new LinkedHashMap<Object,Database>(maxDatabases, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object,Database> eldest) {
+                return size() > FluxDatabaseCache.this.maxDatabases;
+            }
+        };
+    }
+
+    // Returns the database value as of a particular transaction (id or t)
+    public synchronized Database asOf(final Object transaction) {
+        Object key = transaction instanceof Number ? ((Number)transaction).longValue() : transaction;
+        Database database = databases.get(key);
+        if (database == null) {
+            misses++;
+            Database current = connection.db();
+            database = current.asOf(transaction);
+            if (isPast(current, transaction)) {
+                databases.put(key, database);
+            }
+        }
+        else {
+            hits++;
+        }
+        return database;
+    }
+
+    // Checks whether the point in time is covered by the given database value (dates need to be strictly before its latest transaction,
+    // as later transactions can still be committed at the same instant)
+    private static boolean isPast(final Database current, final Object transaction) {
+        if (transaction instanceof Date) {
+            Date latest = (Date)current.entity(Peer.toTx(current.basisT())).get(":db/txInstant");
+            return latest != null && ((Date)transaction).before(latest);
+        }
+        if (transaction instanceof Number) {
+            return Peer.toT(transaction) <= current.basisT();
+        }
+        return false;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return databases.size();
+    }
+
+    public synchronized void clear() {
+        databases.clear();
+    }
+
+}
@@ -77,16 +77,16 @@ public class FluxEdge extends FluxElement implements TimeAwareEdge {
     @Override
     public TimeAwareVertex getVertex(Direction direction) throws IllegalArgumentException {
         if (direction.equals(Direction.OUT))
-            return new FluxVertex(fluxGraph, database, getDatabase().datoms(Database.EAVT, getId(), fluxGraph.GRAPH_EDGE_OUT_VERTEX).iterator().next().v());
+            return new FluxVertex(fluxGraph, database, FluxMetrics.datoms("FluxEdge.getVertex", getDatabase(), Database.EAVT, getId(), fluxGraph.GRAPH_EDGE_OUT_VERTEX).iterator().next().v());
         else if (direction.equals(Direction.IN))
-            return new FluxVertex(fluxGraph, database, getDatabase().datoms(Database.EAVT, getId(), fluxGraph.GRAPH_EDGE_IN_VERTEX).iterator().next().v());
+            return new FluxVertex(fluxGraph, database, FluxMetrics.datoms("FluxEdge.getVertex", getDatabase(), Database.EAVT, getId(), fluxGraph.GRAPH_EDGE_IN_VERTEX).iterator().next().v());
         else
             throw ExceptionFactory.bothIsNotSupported();
     }
 
     @Override
     public String getLabel() {
-        return (String)getDatabase().datoms(Database.EAVT, getId(), fluxGraph.GRAPH_EDGE_LABEL).iterator().next().v();
+        return (String)FluxMetrics.datoms("FluxEdge.getLabel", getDatabase(), Database.EAVT, getId(), fluxGraph.GRAPH_EDGE_LABEL).iterator().next().v();
     }
 
     @Override
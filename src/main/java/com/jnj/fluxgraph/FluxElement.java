@@ -2,9 +2,11 @@ package com.jnj.fluxgraph;
 
 import clojure.lang.Keyword;
 import com.tinkerpop.blueprints.TimeAwareElement;
+import com.tinkerpop.blueprints.TimeAwarePropertyHistory;
 import com.tinkerpop.blueprints.util.ExceptionFactory;
 import com.tinkerpop.blueprints.util.StringFactory;
 import datomic.Database;
+import datomic.Datom;
 import datomic.Entity;
 import datomic.Peer;
 import datomic.Util;
@@ -22,6 +24,8 @@ public abstract class FluxElement implements TimeAwareElement {
     protected final FluxGraph fluxGraph;
     protected Object uuid;
     protected Object id;
+    // Property values that were retrieved upfront (by a batch lookup), keyed on property name. Keys without value map onto null
+    protected Map<String,Object> prefetched = null;
 
     protected FluxElement(final FluxGraph fluxGraph, final Database database) {
         this.database = database;
@@ -49,7 +53,7 @@ public abstract class FluxElement implements TimeAwareElement {
     @Override
     public boolean isDeleted() {
         // An element is deleted if we can no longer find any reference to it in the current version of the graph
-        Collection<List<Object>> found = (Peer.q("[:find ?id " +
+        Collection<List<Object>> found = (FluxMetrics.q("FluxElement.isDeleted", "[:find ?id " +
                                                   ":in $ ?id " +
                                                   ":where [?id _ _ ] ]", getDatabase(), id));
         return found.isEmpty();
@@ -74,6 +78,9 @@ public abstract class FluxElement implements TimeAwareElement {
 
     @Override
     public Object getProperty(final String key) {
+        if (prefetched != null && prefetched.containsKey(key)) {
+            return prefetched.get(key);
+        }
         if (isDeleted()) {
             throw new IllegalArgumentException("It is not possible to get properties on a deleted element");
         }
@@ -137,6 +144,7 @@ public abstract class FluxElement implements TimeAwareElement {
         }
         fluxGraph.addTransactionInfo(this);
         fluxGraph.transact();
+        unprefetch(key);
     }
 
     public Interval getTimeInterval() {
@@ -151,6 +159,40 @@ public abstract class FluxElement implements TimeAwareElement {
         }
     }
 
+    @Override
+    public TimeAwarePropertyHistory getPropertyHistory(final String key) {
+        return getPropertyHistory(key, null, null);
+    }
+
+    @Override
+    public TimeAwarePropertyHistory getPropertyHistory(final String key, final Date from, final Date to) {
+        if (FluxUtil.isReservedKey(key)) {
+            throw new IllegalArgumentException("It is not possible to get the history of a reserved property");
+        }
+        // Scan the history of the typed attributes behind the key (a key is backed by a different attribute for each value type)
+        Database database = getDatabase();
+        List<Datom> changes = FluxUtil.getPropertyChanges(database, id, key, this.getClass());
+        long[] times = new long[changes.size()];
+        Object[] values = new Object[changes.size()];
+        boolean[] asserted = new boolean[changes.size()];
+        Map<Object,Long> transactionTimes = new HashMap<Object,Long>();
+        int size = 0;
+        for (Datom change : changes) {
+            Long time = transactionTimes.get(change.tx());
+            if (time == null) {
+                time = ((Date)database.entity(change.tx()).get(":db/txInstant")).getTime();
+                transactionTimes.put(change.tx(), time);
+            }
+            if ((from == null || time >= from.getTime()) && (to == null || time < to.getTime())) {
+                times[size] = time;
+                values[size] = change.v();
+                asserted[size] = change.added();
+                size++;
+            }
+        }
+        return new TimeAwarePropertyHistory(key, Arrays.copyOf(times, size), Arrays.copyOf(values, size), Arrays.copyOf(asserted, size));
+    }
+
     @Override
     public Object removeProperty(final String key) {
         validate();
@@ -163,6 +205,7 @@ public abstract class FluxElement implements TimeAwareElement {
         }
         fluxGraph.addTransactionInfo(this);
         fluxGraph.transact();
+        unprefetch(key);
         return oldvalue;
     }
 
@@ -180,6 +223,17 @@ public abstract class FluxElement implements TimeAwareElement {
         return id != null ? id.hashCode() : 0;
     }
 
+    // Serves the given property values from memory (until the property is changed through this element)
+    protected void prefetch(final Map<String,Object> values) {
+        prefetched = values;
+    }
+
+    private void unprefetch(final String key) {
+        if (prefetched != null) {
+            prefetched.remove(key);
+        }
+    }
+
     protected Database getDatabase() {
         if (database == null) {
             return fluxGraph.getRawGraph();
@@ -207,8 +261,8 @@ public abstract class FluxElement implements TimeAwareElement {
         Iterator<Keyword> propertiesIt = properties.iterator();
         while (propertiesIt.hasNext()) {
             Keyword property = propertiesIt.next();
-            // Add all properties (except the ident property (is only originally used for retrieving the id of the created elements)
-            if (!property.toString().equals(":db/ident")) {
+            // Add all properties (except the ident property (is only originally used for retrieving the id of the created elements) and the manual index entries)
+            if (!property.toString().equals(":db/ident") && !FluxUtil.isIndexKey(property)) {
                 theFacts.add(FluxUtil.map(":db/id", id, property.toString(), entity.get(property).toString()));
             }
         }
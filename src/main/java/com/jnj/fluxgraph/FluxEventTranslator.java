@@ -0,0 +1,164 @@
+package com.jnj.fluxgraph;
+
+import clojure.lang.Keyword;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Vertex;
+import datomic.Database;
+import datomic.Datom;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Translates the datoms of a Datomic transaction into typed graph events. Within a transaction, the events are ordered as follows:
+ * added vertices, added edges, property changes, removed edges and removed vertices. Property changes of removed elements are not reported,
+ * and internal bookkeeping (transaction info, manual index entries) is ignored.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxEventTranslator {
+
+    private static final Keyword TX_INSTANT = Keyword.intern("db/txInstant");
+
+    private final FluxGraph graph;
+    private final ConcurrentMap<Object,Object> idents = new ConcurrentHashMap<Object,Object>();
+
+    public FluxEventTranslator(final FluxGraph graph) {
+        this.graph = graph;
+    }
+
+    // Translates the datoms of the transaction with the given t. The database is only used to resolve attribute idents
+    public List<FluxGraphEvent> translate(final Database database, final Iterable<Datom> datoms, final long t) {
+        Map<Object,Class<? extends Element>> added = new LinkedHashMap<Object,Class<? extends Element>>();
+        Map<Object,Class<? extends Element>> removed = new LinkedHashMap<Object,Class<? extends Element>>();
+        Map<Object,Object[]> edges = new HashMap<Object,Object[]>();
+        Map<List<Object>,PropertyChange> properties = new LinkedHashMap<List<Object>,PropertyChange>();
+        Date time = null;
+        for (Datom datom : datoms) {
+            long attribute = ((Number)datom.a()).longValue();
+            if (attribute == id(graph.GRAPH_ELEMENT_TYPE)) {
+                Class<? extends Element> elementClass = ((Number)datom.v()).longValue() == id(graph.GRAPH_ELEMENT_TYPE_VERTEX) ? Vertex.class : Edge.class;
+                (datom.added() ? added : removed).put(datom.e(), elementClass);
+            }
+            else if (attribute == id(graph.GRAPH_EDGE_LABEL)) {
+                getEdge(edges, datom.e())[0] = datom.v();
+            }
+            else if (attribute == id(graph.GRAPH_EDGE_OUT_VERTEX)) {
+                getEdge(edges, datom.e())[1] = datom.v();
+            }
+            else if (attribute == id(graph.GRAPH_EDGE_IN_VERTEX)) {
+                getEdge(edges, datom.e())[2] = datom.v();
+            }
+            else {
+                Object ident = getIdent(database, datom.a());
+                if (TX_INSTANT.equals(ident)) {
+                    time = (Date)datom.v();
+                }
+                else if (isProperty(ident)) {
+                    String name = ident.toString();
+                    Class<? extends Element> elementClass = name.endsWith(".edge") ? Edge.class : Vertex.class;
+                    String key = FluxUtil.getPropertyName((Keyword)ident);
+                    List<Object> propertyId = Arrays.asList(datom.e(), key);
+                    PropertyChange change = properties.get(propertyId);
+                    if (change == null) {
+                        change = new PropertyChange(datom.e(), elementClass, key);
+                        properties.put(propertyId, change);
+                    }
+                    if (datom.added()) {
+                        change.set = true;
+                        change.newValue = datom.v();
+                    }
+                    else {
+                        change.oldValue = datom.v();
+                    }
+                }
+            }
+        }
+        List<FluxGraphEvent> events = new ArrayList<FluxGraphEvent>();
+        for (Map.Entry<Object,Class<? extends Element>> element : added.entrySet()) {
+            if (element.getValue() == Vertex.class) {
+                events.add(FluxGraphEvent.vertexAdded(t, time, element.getKey()));
+            }
+        }
+        for (Map.Entry<Object,Class<? extends Element>> element : added.entrySet()) {
+            if (element.getValue() == Edge.class) {
+                Object[] edge = getEdge(edges, element.getKey());
+                events.add(FluxGraphEvent.edgeAdded(t, time, element.getKey(), (String)edge[0], edge[1], edge[2]));
+            }
+        }
+        for (PropertyChange change : properties.values()) {
+            if (!removed.containsKey(change.elementId)) {
+                if (change.set) {
+                    events.add(FluxGraphEvent.propertySet(t, time, change.elementId, change.elementClass, change.key, change.oldValue, change.newValue));
+                }
+                else {
+                    events.add(FluxGraphEvent.propertyRemoved(t, time, change.elementId, change.elementClass, change.key, change.oldValue));
+                }
+            }
+        }
+        for (Map.Entry<Object,Class<? extends Element>> element : removed.entrySet()) {
+            if (element.getValue() == Edge.class) {
+                Object[] edge = getEdge(edges, element.getKey());
+                events.add(FluxGraphEvent.edgeRemoved(t, time, element.getKey(), (String)edge[0], edge[1], edge[2]));
+            }
+        }
+        for (Map.Entry<Object,Class<? extends Element>> element : removed.entrySet()) {
+            if (element.getValue() == Vertex.class) {
+                events.add(FluxGraphEvent.vertexRemoved(t, time, element.getKey()));
+            }
+        }
+        return events;
+    }
+
+    // Property attributes are the (namespace-less) typed attributes created by FluxUtil.createKey
+    private boolean isProperty(final Object ident) {
+        if (!(ident instanceof Keyword) || ((Keyword)ident).getNamespace() != null) {
+            return false;
+        }
+        String name = ident.toString();
+        return (name.endsWith(".vertex") || name.endsWith(".edge")) && !FluxUtil.isReservedKey(name);
+    }
+
+    // Attribute idents do not change, hence they are cached
+    private Object getIdent(final Database database, final Object attribute) {
+        Object ident = idents.get(attribute);
+        if (ident == null) {
+            ident = database.ident(attribute);
+            if (ident != null) {
+                idents.put(attribute, ident);
+            }
+        }
+        return ident;
+    }
+
+    private static Object[] getEdge(final Map<Object,Object[]> edges, final Object edgeId) {
+        Object[] edge = edges.get(edgeId);
+        if (edge == null) {
+            edge = new Object[3];
+            edges.put(edgeId, edge);
+        }
+        return edge;
+    }
+
+    private static long id(final Object id) {
+        return ((Number)id).longValue();
+    }
+
+    private static class PropertyChange {
+        private final Object elementId;
+        private final Class<? extends Element> elementClass;
+        private final String key;
+        private boolean set = false;
+        private Object oldValue;
+        private Object newValue;
+
+        private PropertyChange(final Object elementId, final Class<? extends Element> elementClass, final String key) {
+            this.elementId = elementId;
+            this.elementClass = elementClass;
+            this.key = key;
+        }
+    }
+
+}
@@ -1,19 +1,21 @@
 package com.jnj.fluxgraph;
 
+import clojure.lang.Keyword;
 import com.tinkerpop.blueprints.*;
 import com.tinkerpop.blueprints.util.ExceptionFactory;
 import com.tinkerpop.blueprints.util.StringFactory;
 import datomic.*;
 
 import java.util.*;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A Blueprints implementation of a graph on top of Datomic
  *
  * @author Davy Suvee (http://datablend.be)
  */
-public class FluxGraph implements MetaGraph<Database>, KeyIndexableGraph, TimeAwareGraph {
+public class FluxGraph implements MetaGraph<Database>, KeyIndexableGraph, IndexableGraph, TimeAwareGraph {
 
     private final String graphURI;
     private final Connection connection;
@@ -28,6 +30,23 @@ public class FluxGraph implements MetaGraph<Database>, KeyIndexableGraph, TimeAw
 
     private final FluxIndex vertexIndex;
     private final FluxIndex edgeIndex;
+    private final FluxTransactionQueue transactionQueue;
+    private final FluxStatistics statistics;
+    private final FluxQueryCache queryCache = new FluxQueryCache();
+    private final FluxDatabaseCache databaseCache;
+    private final ConcurrentMap<String,FluxIndexBuild> indexBuilds = new ConcurrentHashMap<String,FluxIndexBuild>();
+    // The attributes that are known to be linked to a manual index (shared by all instances of the same index)
+    private final ConcurrentMap<Object,Set<Keyword>> indexAttributes = new ConcurrentHashMap<Object,Set<Keyword>>();
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private volatile FluxWarmup lastWarmup;
+    private final List<FluxSubscription> subscriptions = new CopyOnWriteArrayList<FluxSubscription>();
+    private final FluxViewMaintainer viewMaintainer;
+    // Whether this instance is handed out by the registry (and shared by multiple users)
+    protected volatile boolean shared = false;
+
+    // The idents of the meta model that are resolved when the graph is started
+    private static final String[] META_MODEL = new String[] {"graph.element/type", "graph.element.type/vertex", "graph.element.type/edge",
+                                                             "graph.edge/inVertex", "graph.edge/outVertex", "graph.edge/label", "graph.index/name"};
 
     protected final ThreadLocal<List> tx = new ThreadLocal<List>() {
         protected List initialValue() {
@@ -39,6 +58,7 @@ public class FluxGraph implements MetaGraph<Database>, KeyIndexableGraph, TimeAw
             return null;
         }
     };
+    protected final ThreadLocal<FluxReadSession> readSession = new ThreadLocal<FluxReadSession>();
     protected final ThreadLocal<Date> transactionTime = new ThreadLocal<Date>() {
         protected Date initialValue() {
             return null;
@@ -54,14 +74,14 @@ public class FluxGraph implements MetaGraph<Database>, KeyIndexableGraph, TimeAw
         FEATURES.isRDFModel = false;
         FEATURES.supportsVertexIteration = true;
         FEATURES.supportsEdgeIteration = true;
-        FEATURES.supportsVertexIndex = false;
-        FEATURES.supportsEdgeIndex = false;
+        FEATURES.supportsVertexIndex = true;
+        FEATURES.supportsEdgeIndex = true;
         FEATURES.ignoresSuppliedIds = true;
         FEATURES.supportsEdgeRetrieval = true;
         FEATURES.supportsVertexProperties = true;
         FEATURES.supportsEdgeProperties = true;
         FEATURES.supportsTransactions = false;
-        FEATURES.supportsIndices = false;
+        FEATURES.supportsIndices = true;
 
         FEATURES.supportsSerializableObjectProperty = false;
         FEATURES.supportsBooleanProperty = true;
@@ -84,30 +104,55 @@ public class FluxGraph implements MetaGraph<Database>, KeyIndexableGraph, TimeAw
 
     public FluxGraph(final String graphURI) {
         this.graphURI = graphURI;
-        Peer.createDatabase(graphURI);
-        // Retrieve the connection
-        this.connection = Peer.connect(graphURI);
+        boolean created = Peer.createDatabase(graphURI);
+        // Retrieve the (shared) connection
+        this.connection = FluxGraphRegistry.connect(graphURI);
+        this.databaseCache = new FluxDatabaseCache(connection);
 
+        boolean setupDone = false;
         try {
+            // Resolve the ids of the meta model in one go (a newly created database does not contain any meta model yet)
+            Map<Keyword,Object> ids = created ? new HashMap<Keyword,Object>() : FluxUtil.getIdsForAttributes(connection.db(), META_MODEL);
+            boolean setup = false;
             // Setup the meta model for the graph
-            if (requiresMetaModel()) {
+            if (!ids.containsKey(Keyword.intern("graph.element/type"))) {
                 setupMetaModel();
+                setup = true;
+            }
+            // Setup the meta model for manual indices (not available in graphs created by earlier versions). Only a meta model that is set up
+            // together with the graph meta model can be backdated, existing graphs already contain transactions with a later instant
+            if (!ids.containsKey(Keyword.intern("graph.index/name"))) {
+                setupIndexMetaModel(setup);
+                setup = true;
+            }
+            if (setup) {
+                ids = FluxUtil.getIdsForAttributes(connection.db(), META_MODEL);
             }
             // Retrieve the relevant ids for the properties (for raw index access later on)
-            GRAPH_ELEMENT_TYPE = FluxUtil.getIdForAttribute(this, "graph.element/type");
-            GRAPH_ELEMENT_TYPE_VERTEX = FluxUtil.getIdForAttribute(this, "graph.element.type/vertex");
-            GRAPH_ELEMENT_TYPE_EDGE = FluxUtil.getIdForAttribute(this, "graph.element.type/edge");
-            GRAPH_EDGE_IN_VERTEX = FluxUtil.getIdForAttribute(this, "graph.edge/inVertex");
-            GRAPH_EDGE_OUT_VERTEX = FluxUtil.getIdForAttribute(this, "graph.edge/outVertex");
-            GRAPH_EDGE_LABEL = FluxUtil.getIdForAttribute(this, "graph.edge/label");
+            GRAPH_ELEMENT_TYPE = ids.get(Keyword.intern("graph.element/type"));
+            GRAPH_ELEMENT_TYPE_VERTEX = ids.get(Keyword.intern("graph.element.type/vertex"));
+            GRAPH_ELEMENT_TYPE_EDGE = ids.get(Keyword.intern("graph.element.type/edge"));
+            GRAPH_EDGE_IN_VERTEX = ids.get(Keyword.intern("graph.edge/inVertex"));
+            GRAPH_EDGE_OUT_VERTEX = ids.get(Keyword.intern("graph.edge/outVertex"));
+            GRAPH_EDGE_LABEL = ids.get(Keyword.intern("graph.edge/label"));
+            // Create the required indexes
+            this.vertexIndex = new FluxIndex("vertexIndex", this, null, Vertex.class);
+            this.edgeIndex = new FluxIndex("edgeIndex", this, null, Edge.class);
+            // Transaction report based bookkeeping (only started when used). The dispatcher is shared with the other graphs on the same connection
+            this.transactionQueue = FluxGraphRegistry.getTransactionQueue(graphURI);
+            this.statistics = new FluxStatistics(this);
+            this.viewMaintainer = new FluxViewMaintainer(this);
+            setupDone = true;
         } catch (ExecutionException e) {
             throw new RuntimeException(FluxGraph.DATOMIC_ERROR_EXCEPTION_MESSAGE);
         } catch (InterruptedException e) {
             throw new RuntimeException(FluxGraph.DATOMIC_ERROR_EXCEPTION_MESSAGE);
+        } finally {
+            // The connection reference should not leak when the graph can not be set up
+            if (!setupDone) {
+                FluxGraphRegistry.release(graphURI);
+            }
         }
-        // Create the required indexes
-        this.vertexIndex = new FluxIndex("vertexIndex", this, null, Vertex.class);
-        this.edgeIndex = new FluxIndex("edgeIndex", this, null, Edge.class);
     }
 
     @Override
@@ -117,7 +162,26 @@ public class FluxGraph implements MetaGraph<Database>, KeyIndexableGraph, TimeAw
 
     @Override
     public void shutdown() {
-        // No actions required
+        // Shared graphs are only shut down when their last user is done with them
+        if (shared && !FluxGraphRegistry.close(this)) {
+            return;
+        }
+        if (closed.compareAndSet(false, true)) {
+            for (FluxSubscription subscription : subscriptions) {
+                subscription.close();
+            }
+            viewMaintainer.close();
+            // Stop consuming the transaction reports (the dispatcher itself is stopped once the connection is released)
+            transactionQueue.removeListener(statistics);
+            queryCache.clear();
+            databaseCache.clear();
+            // Release the connection (if no longer used by other graphs)
+            FluxGraphRegistry.release(graphURI);
+        }
+    }
+
+    public String getGraphURI() {
+        return graphURI;
     }
 
     @Override
@@ -135,7 +199,7 @@ public class FluxGraph implements MetaGraph<Database>, KeyIndexableGraph, TimeAw
 
     @Override
     public Iterable<Edge> getEdges() {
-        Iterable<Datom> edges = this.getRawGraph().datoms(Database.AVET, GRAPH_ELEMENT_TYPE, GRAPH_ELEMENT_TYPE_EDGE);
+        Iterable<Datom> edges = FluxMetrics.datoms("FluxGraph.getEdges", this.getRawGraph(), Database.AVET, GRAPH_ELEMENT_TYPE, GRAPH_ELEMENT_TYPE_EDGE);
         return new FluxIterable<Edge>(edges, this, this.getRawGraph(), Edge.class);
     }
 
@@ -144,6 +208,21 @@ public class FluxGraph implements MetaGraph<Database>, KeyIndexableGraph, TimeAw
         return edgeIndex.get(key, value);
     }
 
+    // Retrieves the edges for which the value of a key-indexed property matches a range, prefix or ordered query
+    public Iterable<Edge> getEdges(String key, FluxRangeQuery query) {
+        return edgeIndex.query(key, query);
+    }
+
+    // Retrieves the edges with the given ids in one go, serving the values of the prefetch keys from memory (ids of missing edges are skipped)
+    public List<Edge> getEdges(final Collection<Object> ids, final String... prefetchKeys) {
+        return FluxUtil.getElements(this, this.getRawGraph(), ids, Edge.class, prefetchKeys);
+    }
+
+    // Retrieves the edges matching a full-text query on a full-text key, in descending order of their score (eventually consistent, see searchEdges)
+    public Iterable<Edge> getEdges(String key, FluxTextQuery query) {
+        return edgeIndex.query(key, query);
+    }
+
     @Override
     public TimeAwareEdge addEdge(final Object id, final Vertex outVertex, final Vertex inVertex, final String label) {
         // Create the new edge
@@ -197,9 +276,20 @@ public class FluxGraph implements MetaGraph<Database>, KeyIndexableGraph, TimeAw
         }
     }
 
+    // Retrieves the vertices matching a full-text query on a full-text key, in descending order of their score (eventually consistent, see
+    // searchVertices)
+    public Iterable<Vertex> getVertices(String key, FluxTextQuery query) {
+        return vertexIndex.query(key, query);
+    }
+
+    // Retrieves the vertices with the given ids in one go, serving the values of the prefetch keys from memory (ids of missing vertices are skipped)
+    public List<Vertex> getVertices(final Collection<Object> ids, final String... prefetchKeys) {
+        return FluxUtil.getElements(this, this.getRawGraph(), ids, Vertex.class, prefetchKeys);
+    }
+
     @Override
     public Iterable<Vertex> getVertices() {
-        Iterable<Datom> vertices = this.getRawGraph().datoms(Database.AVET, this.GRAPH_ELEMENT_TYPE, this.GRAPH_ELEMENT_TYPE_VERTEX);
+        Iterable<Datom> vertices = FluxMetrics.datoms("FluxGraph.getVertices", this.getRawGraph(), Database.AVET, this.GRAPH_ELEMENT_TYPE, this.GRAPH_ELEMENT_TYPE_VERTEX);
         return new FluxIterable<Vertex>(vertices, this, this.getRawGraph(), Vertex.class);
     }
 
@@ -208,6 +298,11 @@ public class FluxGraph implements MetaGraph<Database>, KeyIndexableGraph, TimeAw
         return vertexIndex.get(key, value);
     }
 
+    // Retrieves the vertices for which the value of a key-indexed property matches a range, prefix or ordered query
+    public Iterable<Vertex> getVertices(String key, FluxRangeQuery query) {
+        return vertexIndex.query(key, query);
+    }
+
     @Override
     public void removeVertex(final Vertex vertex) {
         removeVertex(vertex, true);
@@ -215,6 +310,10 @@ public class FluxGraph implements MetaGraph<Database>, KeyIndexableGraph, TimeAw
 
     @Override
     public Database getRawGraph() {
+        FluxReadSession session = readSession.get();
+        if (session != null) {
+            return session.getDatabase();
+        }
         if (checkpointTime.get() != null) {
             return getRawGraph(checkpointTime.get());
         }
@@ -225,7 +324,7 @@ public class FluxGraph implements MetaGraph<Database>, KeyIndexableGraph, TimeAw
     public void setCheckpointTime(Date date) {
         Long transaction = null;
         // Retrieve the transactions
-        Iterator<List<Object>> tx = (Peer.q("[:find ?tx ?when " +
+        Iterator<List<Object>> tx = (FluxMetrics.q("FluxGraph.setCheckpointTime", "[:find ?tx ?when " +
                                            ":where [?tx :db/txInstant ?when]]", connection.db().asOf(date))).iterator();
         while (tx.hasNext()) {
             List<Object> txobject = tx.next();
@@ -242,6 +341,101 @@ public class FluxGraph implements MetaGraph<Database>, KeyIndexableGraph, TimeAw
         this.checkpointTime.set(transaction);
     }
 
+    // Returns the vertices and edges that changed between two points in time (dates, transaction ids or t values; start inclusive, end exclusive).
+    // The transactions within the window are read once from the Datomic log, hence the cost does not depend on the size of the graph
+    public FluxChanges getChanges(final Object start, final Object end) {
+        Log log = connection.log();
+        if (log == null) {
+            throw new IllegalArgumentException("Retrieving the changes requires the Datomic log, which is not available for this database");
+        }
+        Database database = connection.db();
+        FluxEventTranslator translator = new FluxEventTranslator(this);
+        FluxChanges changes = new FluxChanges();
+        for (Map transaction : log.txRange(start, end)) {
+            long t = ((Number)transaction.get(Keyword.intern("t"))).longValue();
+            changes.add(translator.translate(database, (Iterable<Datom>)transaction.get(Keyword.intern("data")), t));
+        }
+        return changes;
+    }
+
+    // Subscribes to the changes of the graph (starting from now)
+    public FluxSubscription subscribe(final FluxGraphEventListener listener) {
+        return subscribe(listener, null);
+    }
+
+    // Subscribes to the changes of the graph, starting from a particular transaction (t, transaction id or date). Requires the Datomic log
+    public FluxSubscription subscribe(final FluxGraphEventListener listener, final Object fromTransaction) {
+        FluxSubscription subscription = new FluxSubscription(this, listener, fromTransaction, FluxSubscription.DEFAULT_CAPACITY, FluxSubscription.DEFAULT_MAX_BATCH_SIZE);
+        subscriptions.add(subscription);
+        subscription.start();
+        return subscription;
+    }
+
+    protected void removeSubscription(final FluxSubscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    // Creates a warm-up for the peer cache of this graph (structural attributes included). Add key-indexed properties and run or start it
+    public FluxWarmup warmup() {
+        lastWarmup = new FluxWarmup(this);
+        return lastWarmup;
+    }
+
+    // Returns the most recently created warm-up (to report on its progress and results), or null if the graph was never warmed up
+    public FluxWarmup getLastWarmup() {
+        return lastWarmup;
+    }
+
+    // Registers a materialized view, which is built from the current version of the graph and kept up to date with each transaction
+    public <T extends FluxMaterializedView> T registerView(final T view) {
+        return viewMaintainer.register(view);
+    }
+
+    public void unregisterView(final FluxMaterializedView view) {
+        viewMaintainer.unregister(view);
+    }
+
+    public FluxViewMaintainer getViewMaintainer() {
+        return viewMaintainer;
+    }
+
+    // Opens a read session that pins the current database value (or the database value at the checkpoint time) for the current thread
+    public FluxReadSession readSession() {
+        FluxReadSession session = new FluxReadSession(this, getRawGraph(), readSession.get());
+        readSession.set(session);
+        return session;
+    }
+
+    // Returns an immutable, read-only view on the graph as of a particular date. Views can be shared across threads
+    public FluxGraphView asOf(Date date) {
+        return new FluxGraphView(this, getRawGraph(date));
+    }
+
+    // Returns an immutable, read-only view on the graph as of a particular transaction (id or t). Views can be shared across threads
+    public FluxGraphView asOf(Object transaction) {
+        return new FluxGraphView(this, getRawGraph(transaction));
+    }
+
+    // Scans the values of a property for all elements of the given type, in columnar form (a column per value type)
+    public List<FluxPropertyColumn> scanProperty(final String key, final Class<? extends Element> elementClass) {
+        return scanProperty(key, elementClass, 1);
+    }
+
+    // Scans the values of a property for all elements of the given type, splitting the scan in chunks that are scanned in parallel
+    public List<FluxPropertyColumn> scanProperty(final String key, final Class<? extends Element> elementClass, final int chunks) {
+        return new FluxPropertyScan(getRawGraph(), key, elementClass).run(chunks);
+    }
+
+    // Builds an immutable adjacency snapshot (compressed sparse row) of the current version of the graph
+    public FluxSnapshot snapshot() {
+        return snapshot(false);
+    }
+
+    // Builds an immutable adjacency snapshot of the current version of the graph, optionally stored off-heap
+    public FluxSnapshot snapshot(final boolean offHeap) {
+        return new FluxSnapshot(this, getRawGraph(), offHeap);
+    }
+
     @Override
     public void setTransactionTime(Date transactionTime) {
         this.transactionTime.set(transactionTime);
@@ -249,27 +443,24 @@ public class FluxGraph implements MetaGraph<Database>, KeyIndexableGraph, TimeAw
 
     @Override
     public Graph difference(WorkingSet workingSet, Date date1, Date date2) {
-        Set<Object> factsAtDate1 = new HashSet<Object>();
-        Set<Object> factsAtDate2 = new HashSet<Object>();
-        // Set graph at checkpoint date1
-        setCheckpointTime(date1);
-        for (Object vertex : workingSet.getVertices()) {
-            factsAtDate1.addAll(((FluxVertex)getVertex(vertex)).getFacts());
-        }
-        for (Object edge : workingSet.getEdges()) {
-            factsAtDate1.addAll(((FluxEdge)getEdge(edge)).getFacts());
-        }
-        // Set graph at checkpoint date2
-        setCheckpointTime(date2);
+        // Collect the facts of the working set at both dates (without changing the checkpoint time of the current thread)
+        Set<Object> factsAtDate1 = getFacts(workingSet, getRawGraph(date1));
+        Set<Object> factsAtDate2 = getFacts(workingSet, getRawGraph(date2));
+        // Calculate the difference between the facts of both time aware elements
+        Set<Object> difference = FluxUtil.difference(factsAtDate1, factsAtDate2);
+        return new ImmutableFluxGraph("datomic:mem://temp" + UUID.randomUUID(), this, difference);
+    }
+
+    // Retrieves the facts of the elements of a working set for a particular database value
+    private Set<Object> getFacts(WorkingSet workingSet, Database database) {
+        Set<Object> facts = new HashSet<Object>();
         for (Object vertex : workingSet.getVertices()) {
-            factsAtDate2.addAll(((FluxVertex)getVertex(vertex)).getFacts());
+            facts.addAll(new FluxVertex(this, database, Long.valueOf(vertex.toString())).getFacts());
         }
         for (Object edge : workingSet.getEdges()) {
-            factsAtDate2.addAll(((FluxEdge)getEdge(edge)).getFacts());
+            facts.addAll(new FluxEdge(this, database, Long.valueOf(edge.toString())).getFacts());
         }
-        // Calculate the difference between the facts of both time aware elements
-        Set<Object> difference = FluxUtil.difference(factsAtDate1, factsAtDate2);
-        return new ImmutableFluxGraph("datomic:mem://temp" + UUID.randomUUID(), this, difference);
+        return facts;
     }
 
     @Override
@@ -287,11 +478,81 @@ public class FluxGraph implements MetaGraph<Database>, KeyIndexableGraph, TimeAw
     @Override
     public <T extends Element> void dropKeyIndex(String key, Class<T> elementClass) {
         FluxUtil.removeAttributeIndex(key, elementClass, this);
+        indexBuilds.remove(getIndexBuildKey(key, elementClass));
     }
 
+    // Enables the index for a key. The AVET index itself is built asynchronously, use getIndexBuild or awaitIndex to follow up on its progress
     @Override
     public <T extends Element> void createKeyIndex(String key, Class<T> elementClass) {
-        FluxUtil.createAttributeIndex(key, elementClass, this);
+        long basisT = FluxUtil.createAttributeIndex(key, elementClass, this);
+        if (basisT >= 0) {
+            startIndexBuild(Collections.<String,Class>singletonMap(key, elementClass), basisT);
+        }
+    }
+
+    // Drops the indices for a set of keys (mapped on their element class) in a single transaction
+    public void dropKeyIndices(Map<String,Class> keys) {
+        FluxUtil.removeAttributeIndices(keys, this);
+        for (Map.Entry<String,Class> key : keys.entrySet()) {
+            indexBuilds.remove(getIndexBuildKey(key.getKey(), key.getValue()));
+        }
+    }
+
+    // Creates the indices for a set of keys (mapped on their element class) in a single transaction
+    public void createKeyIndices(Map<String,Class> keys) {
+        long basisT = FluxUtil.createAttributeIndices(keys, this);
+        if (basisT >= 0) {
+            startIndexBuild(keys, basisT);
+        }
+    }
+
+    // Declares a key as a full-text key, which allows its string values to be searched through FluxIndex.query. As Datomic does not allow to
+    // enable full-text search on an existing attribute, keys need to be declared before string values are stored for them. The full-text
+    // index of Datomic is eventually consistent: search results can lag behind the latest writes
+    public <T extends Element> void createFullTextKey(String key, Class<T> elementClass) {
+        Keyword attribute = FluxUtil.createKey(key, String.class, elementClass);
+        if (FluxUtil.existingAttributeDefinition(attribute, this)) {
+            if (!FluxUtil.isFullTextAttribute(attribute, getRawGraph())) {
+                throw new IllegalStateException("Key " + key + " already contains string values and can not be turned into a full-text key");
+            }
+        }
+        else {
+            FluxUtil.createAttributeDefinition(key, String.class, elementClass, this, true);
+        }
+    }
+
+    // Searches the values of a full-text vertex key. The vertices are returned (with their score) in descending order of their score.
+    // Full-text search is eventually consistent, hence recently written values might not be found yet
+    public Iterable<FluxSearchHit<Vertex>> searchVertices(String key, FluxTextQuery query) {
+        return vertexIndex.search(key, query);
+    }
+
+    // Searches the values of a full-text edge key. The edges are returned (with their score) in descending order of their score.
+    // Full-text search is eventually consistent, hence recently written values might not be found yet
+    public Iterable<FluxSearchHit<Edge>> searchEdges(String key, FluxTextQuery query) {
+        return edgeIndex.search(key, query);
+    }
+
+    // Returns the build of the index for a particular key (null if no index build was started for the key)
+    public <T extends Element> FluxIndexBuild getIndexBuild(String key, Class<T> elementClass) {
+        return indexBuilds.get(getIndexBuildKey(key, elementClass));
+    }
+
+    // Checks whether the index for a particular key can be relied upon. Indices of which no build is being tracked are considered to be ready
+    public <T extends Element> boolean isIndexReady(String key, Class<T> elementClass) {
+        FluxIndexBuild indexBuild = getIndexBuild(key, elementClass);
+        if (indexBuild != null && indexBuild.isReady()) {
+            // No need to keep track of the build any longer
+            indexBuilds.remove(getIndexBuildKey(key, elementClass), indexBuild);
+            return true;
+        }
+        return indexBuild == null;
+    }
+
+    // Waits until the index for a particular key is built. Returns false if the index is not ready within the given timeout
+    public <T extends Element> boolean awaitIndex(String key, Class<T> elementClass, long timeout, TimeUnit unit) throws InterruptedException {
+        FluxIndexBuild indexBuild = getIndexBuild(key, elementClass);
+        return indexBuild == null || indexBuild.await(timeout, unit);
     }
 
     @Override
@@ -299,6 +560,136 @@ public class FluxGraph implements MetaGraph<Database>, KeyIndexableGraph, TimeAw
         return FluxUtil.getIndexedAttributes(elementClass, this);
     }
 
+    @Override
+    public <T extends Element> Index<T> createIndex(String indexName, Class<T> indexClass, Parameter... indexParameters) {
+        if (getIndexId(indexName) != null) {
+            throw ExceptionFactory.indexAlreadyExists(indexName);
+        }
+        Object indexId = Peer.tempid(":graph");
+        try {
+            Map report = FluxMetrics.transact("FluxGraph.createIndex", connection, Util.list(Util.map(":db/id", indexId,
+                                                                                                      ":graph.index/name", indexName,
+                                                                                                      ":graph.index/class", getIndexClassName(indexClass))));
+            indexId = Peer.resolveTempid((Database)report.get(Connection.DB_AFTER), report.get(Connection.TEMPIDS), indexId);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(FluxGraph.DATOMIC_ERROR_EXCEPTION_MESSAGE);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(FluxGraph.DATOMIC_ERROR_EXCEPTION_MESSAGE);
+        }
+        return new FluxManualIndex<T>(indexName, this, indexClass, indexId);
+    }
+
+    @Override
+    public <T extends Element> Index<T> getIndex(String indexName, Class<T> indexClass) {
+        Iterator<List<Object>> index = FluxMetrics.q("FluxGraph.getIndex", "[:find ?index ?class " +
+                                               ":in $ ?name " +
+                                               ":where [?index :graph.index/name ?name] " +
+                                                      "[?index :graph.index/class ?class] ]", getRawGraph(), indexName).iterator();
+        if (index.hasNext()) {
+            List<Object> found = index.next();
+            if (!getIndexClassName(indexClass).equals(found.get(1))) {
+                throw ExceptionFactory.indexDoesNotSupportClass(indexName, indexClass);
+            }
+            return new FluxManualIndex<T>(indexName, this, indexClass, found.get(0));
+        }
+        return null;
+    }
+
+    @Override
+    public Iterable<Index<? extends Element>> getIndices() {
+        List<Index<? extends Element>> indices = new ArrayList<Index<? extends Element>>();
+        Collection<List<Object>> found = FluxMetrics.q("FluxGraph.getIndices", "[:find ?index ?name ?class " +
+                                                 ":in $ " +
+                                                 ":where [?index :graph.index/name ?name] " +
+                                                        "[?index :graph.index/class ?class] ]", getRawGraph());
+        for (List<Object> index : found) {
+            if ("edge".equals(index.get(2))) {
+                indices.add(new FluxManualIndex<Edge>((String)index.get(1), this, Edge.class, index.get(0)));
+            }
+            else {
+                indices.add(new FluxManualIndex<Vertex>((String)index.get(1), this, Vertex.class, index.get(0)));
+            }
+        }
+        return indices;
+    }
+
+    @Override
+    public void dropIndex(String indexName) {
+        Object indexId = getIndexId(indexName);
+        if (indexId != null) {
+            // Retract all entries of the index, together with the index itself
+            List retractions = new ArrayList();
+            Database database = connection.db();
+            for (Datom attribute : FluxMetrics.datoms("FluxGraph.dropIndex", database, Database.EAVT, indexId, Keyword.intern("graph.index/attribute"))) {
+                for (Datom entry : FluxMetrics.datoms("FluxGraph.dropIndex", database, Database.AEVT, attribute.v())) {
+                    retractions.add(Util.list(":db/retract", entry.e(), attribute.v(), entry.v()));
+                }
+            }
+            retractions.add(Util.list(":db.fn/retractEntity", indexId));
+            indexAttributes.remove(indexId);
+            try {
+                FluxMetrics.transact("FluxGraph.dropIndex", connection, retractions);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(FluxGraph.DATOMIC_ERROR_EXCEPTION_MESSAGE);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(FluxGraph.DATOMIC_ERROR_EXCEPTION_MESSAGE);
+            }
+        }
+    }
+
+    // The attributes that are known to be linked to the manual index with the given id
+    protected Set<Keyword> getIndexAttributes(final Object indexId) {
+        Set<Keyword> attributes = indexAttributes.get(indexId);
+        if (attributes == null) {
+            attributes = Collections.newSetFromMap(new ConcurrentHashMap<Keyword,Boolean>());
+            Set<Keyword> existing = indexAttributes.putIfAbsent(indexId, attributes);
+            if (existing != null) {
+                attributes = existing;
+            }
+        }
+        return attributes;
+    }
+
+    public FluxTransactionQueue getTransactionQueue() {
+        return transactionQueue;
+    }
+
+    public FluxStatistics getStatistics() {
+        return statistics;
+    }
+
+    public FluxQueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    public FluxDatabaseCache getDatabaseCache() {
+        return databaseCache;
+    }
+
+    // Returns the number of vertices. Served from the maintained counters, unless the graph is pinned to a particular database value
+    public long countVertices() {
+        if (isPinned()) {
+            return FluxUtil.countElements(getRawGraph(), Keyword.intern("graph.element.type/vertex"));
+        }
+        return statistics.getVertexCount();
+    }
+
+    // Returns the number of edges. Served from the maintained counters, unless the graph is pinned to a particular database value
+    public long countEdges() {
+        if (isPinned()) {
+            return FluxUtil.countElements(getRawGraph(), Keyword.intern("graph.element.type/edge"));
+        }
+        return statistics.getEdgeCount();
+    }
+
+    // Returns the number of edges with a particular label. Served from the maintained counters, unless the graph is pinned to a particular database value
+    public long countEdges(final String label) {
+        if (isPinned()) {
+            return FluxUtil.countEdges(getRawGraph(), label);
+        }
+        return statistics.getEdgeCount(label);
+    }
+
     public Date getTransactionTime() {
         return transactionTime.get();
     }
@@ -311,11 +702,12 @@ public class FluxGraph implements MetaGraph<Database>, KeyIndexableGraph, TimeAw
         transact();
     }
 
+    // Returns the database value as of a particular transaction. Database values are shared through the (bounded) database cache
     public Database getRawGraph(Object transaction) {
         if (transaction == null) {
             return connection.db();
         }
-        return connection.db().asOf(transaction);
+        return databaseCache.asOf(transaction);
     }
 
     public void addToTransaction(Object o) {
@@ -323,12 +715,16 @@ public class FluxGraph implements MetaGraph<Database>, KeyIndexableGraph, TimeAw
     }
 
     public void transact() {
+        if (readSession.get() != null) {
+            tx.get().clear();
+            throw new IllegalStateException("It is not possible to change the graph within a read session");
+        }
         try {
             // We are adding a fact which dates back to the past. Add the required meta data on the transaction
             if (transactionTime.get() != null) {
                 tx.get().add(datomic.Util.map(":db/id", datomic.Peer.tempid(":db.part/tx"), ":db/txInstant", transactionTime.get()));
             }
-            connection.transact(tx.get()).get();
+            FluxMetrics.transact("FluxGraph.transact", connection, tx.get());
             tx.get().clear();
         } catch (InterruptedException e) {
             tx.get().clear();
@@ -350,6 +746,58 @@ public class FluxGraph implements MetaGraph<Database>, KeyIndexableGraph, TimeAw
         }
     }
 
+    // Requests Datomic to start indexing and keeps track of the index builds for the given keys
+    private void startIndexBuild(Map<String,Class> keys, long basisT) {
+        connection.requestIndex();
+        Future<Database> indexed = connection.syncIndex(basisT);
+        for (Map.Entry<String,Class> key : keys.entrySet()) {
+            indexBuilds.put(getIndexBuildKey(key.getKey(), key.getValue()), new FluxIndexBuild(key.getKey(), key.getValue(), basisT, indexed));
+        }
+    }
+
+    // Closes a read session (restoring the session that was open before)
+    protected void closeReadSession(FluxReadSession session) {
+        if (readSession.get() != session) {
+            throw new IllegalStateException("Read sessions need to be closed on the thread that opened them, in reverse order of opening");
+        }
+        if (session.getPrevious() != null) {
+            readSession.set(session.getPrevious());
+        }
+        else {
+            readSession.remove();
+        }
+    }
+
+    // Checks whether the current thread reads from a pinned database value (through a checkpoint time or a read session)
+    protected boolean isPinned() {
+        return checkpointTime.get() != null || readSession.get() != null;
+    }
+
+    // Retrieves the id of the entity describing a manual index (null if the index does not exist)
+    private Object getIndexId(String indexName) {
+        Iterator<List<Object>> index = FluxMetrics.q("FluxGraph.getIndexId", "[:find ?index " +
+                                               ":in $ ?name " +
+                                               ":where [?index :graph.index/name ?name] ]", getRawGraph(), indexName).iterator();
+        if (index.hasNext()) {
+            return index.next().get(0);
+        }
+        return null;
+    }
+
+    private String getIndexClassName(Class indexClass) {
+        if (Vertex.class.isAssignableFrom(indexClass)) {
+            return "vertex";
+        }
+        if (Edge.class.isAssignableFrom(indexClass)) {
+            return "edge";
+        }
+        throw new IllegalArgumentException("Index class " + indexClass.getName() + " not supported");
+    }
+
+    private String getIndexBuildKey(String key, Class elementClass) {
+        return key + "." + (elementClass.isAssignableFrom(FluxEdge.class) ? "edge" : "vertex");
+    }
+
     private void removeEdge(final Edge edge, boolean transact) {
         // Retract the edge element in its totality
         FluxEdge theEdge =  (FluxEdge)edge;
@@ -386,11 +834,40 @@ public class FluxGraph implements MetaGraph<Database>, KeyIndexableGraph, TimeAw
         }
     }
 
-    // Helper method to check whether the meta model of the graph still needs to be setup
-    protected boolean requiresMetaModel() {
-        return !Peer.q("[:find ?entity " +
-                       ":in $ " +
-                       ":where [?entity :db/ident :graph.element/type] ] ", getRawGraph()).iterator().hasNext();
+    // Setup of the attribute types required for manual indices (backdated to the beginning of time if requested)
+    protected void setupIndexMetaModel(final boolean backdate) throws ExecutionException, InterruptedException {
+
+        // The name of a manual index
+        tx.get().add(Util.map(":db/id", Peer.tempid(":db.part/db"),
+                              ":db/ident", ":graph.index/name",
+                              ":db/valueType", ":db.type/string",
+                              ":db/cardinality", ":db.cardinality/one",
+                              ":db/unique", ":db.unique/identity",
+                              ":db/doc", "The name of a manual index",
+                              ":db/index", true,
+                              ":db.install/_attribute", ":db.part/db"));
+
+        // The element class (vertex or edge) of a manual index
+        tx.get().add(Util.map(":db/id", Peer.tempid(":db.part/db"),
+                              ":db/ident", ":graph.index/class",
+                              ":db/valueType", ":db.type/string",
+                              ":db/cardinality", ":db.cardinality/one",
+                              ":db/doc", "The element class of a manual index",
+                              ":db.install/_attribute", ":db.part/db"));
+
+        // The attributes that store the entries of a manual index
+        tx.get().add(Util.map(":db/id", Peer.tempid(":db.part/db"),
+                              ":db/ident", ":graph.index/attribute",
+                              ":db/valueType", ":db.type/ref",
+                              ":db/cardinality", ":db.cardinality/many",
+                              ":db/doc", "The attributes that store the entries of a manual index",
+                              ":db.install/_attribute", ":db.part/db"));
+
+        if (backdate) {
+            tx.get().add(datomic.Util.map(":db/id", datomic.Peer.tempid(":db.part/tx"), ":db/txInstant", new Date(0)));
+        }
+        FluxMetrics.transact("FluxGraph.setupIndexMetaModel", connection, tx.get());
+        tx.get().clear();
     }
 
     // Setup of the various attribute types required for FluxGraph
@@ -481,7 +958,7 @@ public class FluxGraph implements MetaGraph<Database>, KeyIndexableGraph, TimeAw
                               ":db.install/_partition", ":db.part/db"));
 
         tx.get().add(datomic.Util.map(":db/id", datomic.Peer.tempid(":db.part/tx"), ":db/txInstant", new Date(0)));
-        connection.transact(tx.get()).get();
+        FluxMetrics.transact("FluxGraph.setupMetaModel", connection, tx.get());
         tx.get().clear();
     }
 
@@ -0,0 +1,141 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Vertex;
+
+import java.util.Date;
+
+/**
+ * A typed change of the graph, derived from the datoms of a Datomic transaction: a vertex or edge that was added or removed,
+ * or a property that was set or removed. Edge events include the label and the endpoints of the edge, property events the old and new value.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxGraphEvent {
+
+    public enum Type { VERTEX_ADDED, VERTEX_REMOVED, EDGE_ADDED, EDGE_REMOVED, PROPERTY_SET, PROPERTY_REMOVED }
+
+    private final Type type;
+    private final long t;
+    private final Date time;
+    private final Object elementId;
+    private final Class<? extends Element> elementClass;
+    private String label;
+    private Object outVertexId;
+    private Object inVertexId;
+    private String key;
+    private Object oldValue;
+    private Object newValue;
+
+    private FluxGraphEvent(final Type type, final long t, final Date time, final Object elementId, final Class<? extends Element> elementClass) {
+        this.type = type;
+        this.t = t;
+        this.time = time;
+        this.elementId = elementId;
+        this.elementClass = elementClass;
+    }
+
+    public static FluxGraphEvent vertexAdded(final long t, final Date time, final Object vertexId) {
+        return new FluxGraphEvent(Type.VERTEX_ADDED, t, time, vertexId, Vertex.class);
+    }
+
+    public static FluxGraphEvent vertexRemoved(final long t, final Date time, final Object vertexId) {
+        return new FluxGraphEvent(Type.VERTEX_REMOVED, t, time, vertexId, Vertex.class);
+    }
+
+    public static FluxGraphEvent edgeAdded(final long t, final Date time, final Object edgeId, final String label, final Object outVertexId, final Object inVertexId) {
+        return new FluxGraphEvent(Type.EDGE_ADDED, t, time, edgeId, Edge.class).withEdge(label, outVertexId, inVertexId);
+    }
+
+    public static FluxGraphEvent edgeRemoved(final long t, final Date time, final Object edgeId, final String label, final Object outVertexId, final Object inVertexId) {
+        return new FluxGraphEvent(Type.EDGE_REMOVED, t, time, edgeId, Edge.class).withEdge(label, outVertexId, inVertexId);
+    }
+
+    public static FluxGraphEvent propertySet(final long t, final Date time, final Object elementId, final Class<? extends Element> elementClass, final String key, final Object oldValue, final Object newValue) {
+        return new FluxGraphEvent(Type.PROPERTY_SET, t, time, elementId, elementClass).withProperty(key, oldValue, newValue);
+    }
+
+    public static FluxGraphEvent propertyRemoved(final long t, final Date time, final Object elementId, final Class<? extends Element> elementClass, final String key, final Object oldValue) {
+        return new FluxGraphEvent(Type.PROPERTY_REMOVED, t, time, elementId, elementClass).withProperty(key, oldValue, null);
+    }
+
+    private FluxGraphEvent withEdge(final String label, final Object outVertexId, final Object inVertexId) {
+        this.label = label;
+        this.outVertexId = outVertexId;
+        this.inVertexId = inVertexId;
+        return this;
+    }
+
+    private FluxGraphEvent withProperty(final String key, final Object oldValue, final Object newValue) {
+        this.key = key;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+        return this;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    // The Datomic t of the transaction that caused the change (use it to resume a subscription)
+    public long getT() {
+        return t;
+    }
+
+    // The time of the transaction that caused the change
+    public Date getTime() {
+        return time;
+    }
+
+    public Object getElementId() {
+        return elementId;
+    }
+
+    public Class<? extends Element> getElementClass() {
+        return elementClass;
+    }
+
+    // The label of the edge (edge events only)
+    public String getLabel() {
+        return label;
+    }
+
+    // The id of the outgoing vertex of the edge (edge events only)
+    public Object getOutVertexId() {
+        return outVertexId;
+    }
+
+    // The id of the incoming vertex of the edge (edge events only)
+    public Object getInVertexId() {
+        return inVertexId;
+    }
+
+    // The property key (property events only)
+    public String getKey() {
+        return key;
+    }
+
+    // The previous value of the property (null if the property was not set before)
+    public Object getOldValue() {
+        return oldValue;
+    }
+
+    // The new value of the property (null if the property was removed)
+    public Object getNewValue() {
+        return newValue;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(type.toString().toLowerCase()).append("[t:").append(t).append(", id:").append(elementId);
+        if (label != null) {
+            builder.append(", label:").append(label).append(", out:").append(outVertexId).append(", in:").append(inVertexId);
+        }
+        if (key != null) {
+            builder.append(", key:").append(key).append(", old:").append(oldValue).append(", new:").append(newValue);
+        }
+        return builder.append("]").toString();
+    }
+
+}
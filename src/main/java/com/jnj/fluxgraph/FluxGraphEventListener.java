@@ -0,0 +1,14 @@
+package com.jnj.fluxgraph;
+
+import java.util.List;
+
+/**
+ * Receives the changes of a graph, in batches of events (in transaction order) through a FluxSubscription.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public interface FluxGraphEventListener {
+
+    public void onEvents(List<FluxGraphEvent> events);
+
+}
@@ -0,0 +1,131 @@
+package com.jnj.fluxgraph;
+
+import datomic.Connection;
+import datomic.Peer;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Process-wide registry of FluxGraph instances and Datomic connections. Shared graphs are handed out per graph URI and are reference counted:
+ * each call to open needs to be matched by a call to shutdown on the returned graph, and the graph is only shut down once its last user did so.
+ * Connections are reference counted as well (Datomic hands out the same connection for the same URI), hence releasing the connection of one
+ * graph instance does not affect other instances on the same database. Datomic only provides a single transaction report queue per connection,
+ * hence the report dispatcher is shared by all graphs on the same connection as well and is only stopped once the connection is released.
+ *
+ * <code>
+ *     FluxGraph graph = FluxGraphRegistry.open("datomic:free://localhost:4334/flux");
+ *     ...
+ *     graph.shutdown();
+ * </code>
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public final class FluxGraphRegistry {
+
+    private static final Map<String,Shared<FluxGraph>> graphs = new HashMap<String,Shared<FluxGraph>>();
+    private static final Map<String,Shared<Connection>> connections = new HashMap<String,Shared<Connection>>();
+    private static final Map<String,FluxTransactionQueue> queues = new HashMap<String,FluxTransactionQueue>();
+
+    private FluxGraphRegistry() {
+    }
+
+    // Returns the shared graph for the given URI (creating it if required). The graph is created outside of the registry lock, as setting up
+    // a graph requires Datomic I/O
+    public static FluxGraph open(final String graphURI) {
+        synchronized (FluxGraphRegistry.class) {
+            Shared<FluxGraph> graph = graphs.get(graphURI);
+            if (graph != null) {
+                graph.references++;
+                return graph.value;
+            }
+        }
+        FluxGraph newGraph = new FluxGraph(graphURI);
+        Shared<FluxGraph> graph;
+        synchronized (FluxGraphRegistry.class) {
+            graph = graphs.get(graphURI);
+            if (graph == null) {
+                newGraph.shared = true;
+                graph = new Shared<FluxGraph>(newGraph);
+                graphs.put(graphURI, graph);
+            }
+            graph.references++;
+        }
+        // Another thread opened the same graph in the meantime
+        if (graph.value != newGraph) {
+            newGraph.shutdown();
+        }
+        return graph.value;
+    }
+
+    // Returns the number of users of the shared graph for the given URI
+    public static synchronized int getReferenceCount(final String graphURI) {
+        Shared<FluxGraph> graph = graphs.get(graphURI);
+        return graph != null ? graph.references : 0;
+    }
+
+    // Returns the URIs of the shared graphs that are currently open
+    public static synchronized Set<String> getGraphURIs() {
+        return new HashSet<String>(graphs.keySet());
+    }
+
+    // Signals that a user of a shared graph is done with it. Returns true if this was the last user (the graph should be shut down)
+    protected static synchronized boolean close(final FluxGraph graph) {
+        Shared<FluxGraph> shared = graphs.get(graph.getGraphURI());
+        if (shared == null || shared.value != graph) {
+            return true;
+        }
+        shared.references--;
+        if (shared.references > 0) {
+            return false;
+        }
+        graphs.remove(graph.getGraphURI());
+        return true;
+    }
+
+    // Retrieves a (reference counted) connection to the database with the given URI
+    protected static synchronized Connection connect(final String graphURI) {
+        Shared<Connection> connection = connections.get(graphURI);
+        if (connection == null) {
+            connection = new Shared<Connection>(Peer.connect(graphURI));
+            connections.put(graphURI, connection);
+            queues.put(graphURI, new FluxTransactionQueue(connection.value));
+        }
+        connection.references++;
+        return connection.value;
+    }
+
+    // Retrieves the transaction report dispatcher of a connection (shared by all graphs that use the connection)
+    protected static synchronized FluxTransactionQueue getTransactionQueue(final String graphURI) {
+        FluxTransactionQueue queue = queues.get(graphURI);
+        if (queue == null) {
+            throw new IllegalArgumentException("No connection available for " + graphURI);
+        }
+        return queue;
+    }
+
+    // Releases a connection. The resources of the connection (and its report queue) are released once it is no longer used by any graph
+    protected static synchronized void release(final String graphURI) {
+        Shared<Connection> connection = connections.get(graphURI);
+        if (connection != null) {
+            connection.references--;
+            if (connection.references == 0) {
+                connections.remove(graphURI);
+                queues.remove(graphURI).stop();
+                connection.value.release();
+            }
+        }
+    }
+
+    private static class Shared<T> {
+        private final T value;
+        private int references = 0;
+
+        private Shared(final T value) {
+            this.value = value;
+        }
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.jnj.fluxgraph;
+
+import clojure.lang.Keyword;
+import com.tinkerpop.blueprints.*;
+import com.tinkerpop.blueprints.util.ExceptionFactory;
+import com.tinkerpop.blueprints.util.StringFactory;
+import datomic.Database;
+import datomic.Datom;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * An immutable, read-only view on a FluxGraph that is pinned to a single database value (for instance the graph as of a particular date).
+ * The view does not hold any thread-bound state and does not require a connection of its own, hence it can be freely shared across threads.
+ * All elements retrieved through the view are scoped to the same database value.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxGraphView implements MetaGraph<Database>, TimeAwareGraph {
+
+    private final FluxGraph graph;
+    private final Database database;
+    private final FluxIndex vertexIndex;
+    private final FluxIndex edgeIndex;
+
+    public FluxGraphView(final FluxGraph graph, final Database database) {
+        this.graph = graph;
+        this.database = database;
+        this.vertexIndex = new FluxIndex("vertexIndex", graph, database, Vertex.class);
+        this.edgeIndex = new FluxIndex("edgeIndex", graph, database, Edge.class);
+    }
+
+    @Override
+    public Features getFeatures() {
+        return graph.getFeatures();
+    }
+
+    @Override
+    public void shutdown() {
+        // No actions required (the view does not own the connection)
+    }
+
+    @Override
+    public TimeAwareEdge getEdge(final Object id) {
+        if (null == id)
+            throw ExceptionFactory.edgeIdCanNotBeNull();
+        try {
+            return new FluxEdge(graph, database, Long.valueOf(id.toString()).longValue());
+        } catch (NumberFormatException e) {
+            return null;
+        } catch (RuntimeException re) {
+            return null;
+        }
+    }
+
+    @Override
+    public Iterable<Edge> getEdges() {
+        Iterable<Datom> edges = FluxMetrics.datoms("FluxGraphView.getEdges", database, Database.AVET, graph.GRAPH_ELEMENT_TYPE, graph.GRAPH_ELEMENT_TYPE_EDGE);
+        return new FluxIterable<Edge>(edges, graph, database, Edge.class);
+    }
+
+    @Override
+    public Iterable<Edge> getEdges(String key, Object value) {
+        return edgeIndex.get(key, value);
+    }
+
+    public Iterable<Edge> getEdges(String key, FluxRangeQuery query) {
+        return edgeIndex.query(key, query);
+    }
+
+    public List<Edge> getEdges(final Collection<Object> ids, final String... prefetchKeys) {
+        return FluxUtil.getElements(graph, database, ids, Edge.class, prefetchKeys);
+    }
+
+    @Override
+    public TimeAwareVertex getVertex(final Object id) {
+        if (null == id)
+            throw ExceptionFactory.vertexIdCanNotBeNull();
+        try {
+            return new FluxVertex(graph, database, Long.valueOf(id.toString()).longValue());
+        } catch (NumberFormatException e) {
+            return null;
+        } catch (RuntimeException re) {
+            return null;
+        }
+    }
+
+    @Override
+    public Iterable<Vertex> getVertices() {
+        Iterable<Datom> vertices = FluxMetrics.datoms("FluxGraphView.getVertices", database, Database.AVET, graph.GRAPH_ELEMENT_TYPE, graph.GRAPH_ELEMENT_TYPE_VERTEX);
+        return new FluxIterable<Vertex>(vertices, graph, database, Vertex.class);
+    }
+
+    public List<Vertex> getVertices(final Collection<Object> ids, final String... prefetchKeys) {
+        return FluxUtil.getElements(graph, database, ids, Vertex.class, prefetchKeys);
+    }
+
+    @Override
+    public Iterable<Vertex> getVertices(String key, Object value) {
+        return vertexIndex.get(key, value);
+    }
+
+    public Iterable<Vertex> getVertices(String key, FluxRangeQuery query) {
+        return vertexIndex.query(key, query);
+    }
+
+    public long countVertices() {
+        return FluxUtil.countElements(database, Keyword.intern("graph.element.type/vertex"));
+    }
+
+    public long countEdges() {
+        return FluxUtil.countElements(database, Keyword.intern("graph.element.type/edge"));
+    }
+
+    public long countEdges(final String label) {
+        return FluxUtil.countEdges(database, label);
+    }
+
+    @Override
+    public Database getRawGraph() {
+        return database;
+    }
+
+    // The graph this view was created from
+    public FluxGraph getGraph() {
+        return graph;
+    }
+
+    // Returns a view on the same graph as of another date
+    public FluxGraphView asOf(Date date) {
+        return graph.asOf(date);
+    }
+
+    // Returns a view on the same graph as of another transaction
+    public FluxGraphView asOf(Object transaction) {
+        return graph.asOf(transaction);
+    }
+
+    public List<FluxPropertyColumn> scanProperty(final String key, final Class<? extends Element> elementClass, final int chunks) {
+        return new FluxPropertyScan(database, key, elementClass).run(chunks);
+    }
+
+    // Builds an immutable adjacency snapshot (compressed sparse row) of the graph as seen by this view
+    public FluxSnapshot snapshot(final boolean offHeap) {
+        return new FluxSnapshot(graph, database, offHeap);
+    }
+
+    @Override
+    public Edge addEdge(Object id, Vertex outVertex, Vertex inVertex, String label) {
+        throw new IllegalArgumentException("FluxGraph view is read-only");
+    }
+
+    @Override
+    public void removeEdge(Edge edge) {
+        throw new IllegalArgumentException("FluxGraph view is read-only");
+    }
+
+    @Override
+    public Vertex addVertex(Object id) {
+        throw new IllegalArgumentException("FluxGraph view is read-only");
+    }
+
+    @Override
+    public void removeVertex(Vertex vertex) {
+        throw new IllegalArgumentException("FluxGraph view is read-only");
+    }
+
+    @Override
+    public void setCheckpointTime(Date time) {
+        throw new IllegalArgumentException("FluxGraph view is pinned to a single point in time");
+    }
+
+    @Override
+    public void setTransactionTime(Date time) {
+        throw new IllegalArgumentException("FluxGraph view is read-only");
+    }
+
+    // The difference is calculated on the database values at both dates, it does not depend on (nor change) any thread-bound state of the graph
+    @Override
+    public Graph difference(WorkingSet workingSet, Date date1, Date date2) {
+        return graph.difference(workingSet, date1, date2);
+    }
+
+    @Override
+    public Graph difference(TimeAwareElement element1, TimeAwareElement element2) {
+        return graph.difference(element1, element2);
+    }
+
+    @Override
+    public String toString() {
+        return StringFactory.graphString(this, graph.toString() + "[t=" + database.asOfT() + "]");
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.jnj.fluxgraph;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram with logarithmic buckets (each power of two is split into 8 linear sub-buckets), in the spirit of HdrHistogram.
+ * Recorded values are kept with a relative precision of about 12%, using a fixed amount of memory, which makes it cheap enough to record
+ * the latency of every Datomic call.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray((64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+    private final AtomicLong count = new AtomicLong(0);
+    private final AtomicLong total = new AtomicLong(0);
+    private final AtomicLong max = new AtomicLong(0);
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(getBucket(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getTotal() {
+        return total.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long currentCount = count.get();
+        return currentCount == 0 ? 0.0 : (double)total.get() / currentCount;
+    }
+
+    // Returns the (highest equivalent) value below which the given percentage (between 0 and 100) of the recorded values fall
+    public long getValueAtPercentile(final double percentile) {
+        long currentCount = count.get();
+        if (currentCount == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long)Math.ceil(Math.min(100.0, percentile) / 100.0 * currentCount));
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            cumulative = cumulative + buckets.get(i);
+            if (cumulative >= target) {
+                return Math.min(getLowerBound(i + 1) - 1, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    // Values smaller than the number of sub-buckets have a bucket of their own, larger values are bucketed per power of two
+    private static int getBucket(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int)value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int)((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long getLowerBound(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        if (exponent > 62) {
+            return Long.MAX_VALUE;
+        }
+        return ((long)(SUB_BUCKETS + bucket % SUB_BUCKETS)) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    @Override
+    public String toString() {
+        return "count:" + getCount() + ", mean:" + Math.round(getMean()) + ", p50:" + getValueAtPercentile(50) + ", p99:" + getValueAtPercentile(99) +
+               ", max:" + getMax();
+    }
+
+}
@@ -3,12 +3,9 @@ package com.jnj.fluxgraph;
 import clojure.lang.Keyword;
 import com.tinkerpop.blueprints.*;
 import datomic.Database;
-import datomic.Peer;
+import datomic.Datom;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 /**
  * @author Davy Suvee (http://datablend.be)
@@ -88,7 +85,92 @@ public class FluxIndex<T extends Element> implements Index<T> {
 
     @Override
     public CloseableIterable<T> query(String key, Object query) {
-        throw new UnsupportedOperationException();
+        if (query instanceof FluxRangeQuery) {
+            return query(key, (FluxRangeQuery)query);
+        }
+        if (query instanceof FluxTextQuery) {
+            return query(key, (FluxTextQuery)query);
+        }
+        if (query instanceof String) {
+            return query(key, new FluxTextQuery((String)query));
+        }
+        throw new IllegalArgumentException("Query type " + query.getClass().getName() + " not supported");
+    }
+
+    // Retrieves the elements matching a full-text query on a full-text key, in descending order of their score
+    public CloseableIterable<T> query(final String key, final FluxTextQuery query) {
+        List<Object> elements = new ArrayList<Object>();
+        for (List<Object> hit : getHits(key, query)) {
+            elements.add(hit.get(0));
+        }
+        return new FluxIterable(elements, graph, database, clazz);
+    }
+
+    // Retrieves the elements matching a full-text query on a full-text key, together with their score (in descending order of their score)
+    public Iterable<FluxSearchHit<T>> search(final String key, final FluxTextQuery query) {
+        final List<List<Object>> hits = getHits(key, query);
+        return new Iterable<FluxSearchHit<T>>() {
+            @Override
+            public Iterator<FluxSearchHit<T>> iterator() {
+                final Iterator<List<Object>> hitsIt = hits.iterator();
+                return new Iterator<FluxSearchHit<T>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return hitsIt.hasNext();
+                    }
+
+                    @Override
+                    public FluxSearchHit<T> next() {
+                        // Elements are only created when iterated
+                        List<Object> hit = hitsIt.next();
+                        T element = clazz == Vertex.class ? (T)new FluxVertex(graph, database, hit.get(0)) : (T)new FluxEdge(graph, database, hit.get(0));
+                        return new FluxSearchHit<T>(element, hit.get(1), ((Number)hit.get(2)).doubleValue());
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    // Retrieves the elements matching a range, prefix or ordered query. The elements are returned (lazily) in the order of their property values
+    public CloseableIterable<T> query(final String key, final FluxRangeQuery query) {
+        boolean matched = ((indexKeys == null) || ((indexKeys != null) && indexKeys.contains(key)));
+        Keyword attribute = FluxUtil.createKey(key, query.getValueClass(), clazz);
+        if (!matched || !FluxUtil.existingAttributeDefinition(attribute, graph)) {
+            return new FluxIterable(new ArrayList<Object>(), graph, database, clazz);
+        }
+        if (!FluxUtil.isIndexedAttribute(attribute, getDatabase()) || !graph.isIndexReady(key, clazz)) {
+            // No (complete) AVET index available for this attribute, fall back to a (sorted) query
+            return new FluxIterable(getElements(attribute, query, getDatabase()), graph, database, clazz);
+        }
+        return rangeQuery(attribute, query, graph, database, getDatabase(), clazz);
+    }
+
+    // Serves a range query through a scan of the AVET index of an indexed attribute
+    protected static CloseableIterable rangeQuery(Keyword attribute, FluxRangeQuery query, FluxGraph graph, Database elementDatabase, Database database, Class clazz) {
+        Iterable<Datom> datoms = FluxMetrics.indexRange("FluxIndex.rangeQuery", database, attribute, query.getStart(), query.getEnd());
+        if (query.getPrefix() != null) {
+            datoms = FluxUtil.withPrefix(datoms, query.getPrefix());
+        }
+        if (query.isDescending()) {
+            // The index can only be traversed in ascending order, hence we only retain the tail of the range
+            LinkedList<Object> elements = new LinkedList<Object>();
+            for (Datom datom : datoms) {
+                elements.addFirst(datom.e());
+                if (query.hasLimit() && elements.size() > query.getLimit()) {
+                    elements.removeLast();
+                }
+            }
+            return new FluxIterable(elements, graph, elementDatabase, clazz);
+        }
+        if (query.hasLimit()) {
+            datoms = FluxUtil.limit(datoms, query.getLimit());
+        }
+        return new FluxIterable(datoms, graph, elementDatabase, clazz);
     }
 
     public long count(final String key, final Object value) {
@@ -102,10 +184,10 @@ public class FluxIndex<T extends Element> implements Index<T> {
         }
         if (matched && FluxUtil.existingAttributeDefinition(attribute, graph)) {
             if (this.getIndexClass().isAssignableFrom(FluxVertex.class)) {
-                return getElements(attribute, value, Keyword.intern("graph.element.type/vertex"), getDatabase()).size();
+                return countElements(attribute, value, Keyword.intern("graph.element.type/vertex"), getDatabase());
             }
             if (this.getIndexClass().isAssignableFrom(FluxEdge.class)) {
-                return getElements(attribute, value, Keyword.intern("graph.element.type/edge"), getDatabase()).size();
+                return countElements(attribute, value, Keyword.intern("graph.element.type/edge"), getDatabase());
             }
             throw new RuntimeException(FluxGraph.DATOMIC_ERROR_EXCEPTION_MESSAGE);
         }
@@ -118,11 +200,92 @@ public class FluxIndex<T extends Element> implements Index<T> {
         throw new UnsupportedOperationException();
     }
 
-    private Collection<List<Object>> getElements(Keyword attribute, Object value, Keyword type, Database database) {
-        return Peer.q("[:find ?element " +
-                       ":in $ ?attribute ?value ?type " +
-                       ":where [?element :graph.element/type ?type] " +
-                              "[?element ?attribute ?value] ]", database, attribute, value, type);
+    private long[] getElements(Keyword attribute, Object value, Keyword type, Database database) {
+        return graph.getQueryCache().getIds(database, "[:find ?element " +
+                                                       ":in $ ?attribute ?value ?type " +
+                                                       ":where [?element :graph.element/type ?type] " +
+                                                              "[?element ?attribute ?value] ]", attribute, value, type);
+    }
+
+    // Query based alternative for range queries on attributes that are not indexed
+    private List<Object> getElements(Keyword attribute, FluxRangeQuery query, Database database) {
+        // Only the bounds that are specified are bound as query inputs
+        StringBuilder in = new StringBuilder("$ ?attribute ");
+        StringBuilder where = new StringBuilder("[?element ?attribute ?value] ");
+        List<Object> inputs = new ArrayList<Object>();
+        inputs.add(database);
+        inputs.add(attribute);
+        if (query.getStart() != null) {
+            in.append("?start ");
+            where.append("[(>= ?value ?start)] ");
+            inputs.add(query.getStart());
+        }
+        if (query.getEnd() != null) {
+            in.append("?end ");
+            where.append("[(< ?value ?end)] ");
+            inputs.add(query.getEnd());
+        }
+        if (query.getPrefix() != null) {
+            in.append("?prefix ");
+            where.append("[(.startsWith ^String ?value ?prefix)] ");
+            inputs.add(query.getPrefix());
+        }
+        List<List<Object>> found = new ArrayList<List<Object>>(FluxMetrics.q("FluxIndex.getElements", "[:find ?element ?value " +
+                                                                       ":in " + in +
+                                                                       ":where " + where + "]", inputs.toArray()));
+        Collections.sort(found, new Comparator<List<Object>>() {
+            @Override
+            public int compare(List<Object> element1, List<Object> element2) {
+                int compared = ((Comparable)element1.get(1)).compareTo(element2.get(1));
+                if (compared == 0) {
+                    compared = ((Comparable)element1.get(0)).compareTo(element2.get(0));
+                }
+                return compared;
+            }
+        });
+        if (query.isDescending()) {
+            Collections.reverse(found);
+        }
+        List<Object> elements = new ArrayList<Object>();
+        for (List<Object> element : found) {
+            if (query.hasLimit() && elements.size() == query.getLimit()) {
+                break;
+            }
+            elements.add(element.get(0));
+        }
+        return elements;
+    }
+
+    // Executes a full-text query (sorted on descending score). Each hit contains the element id, the matched value and the score
+    private List<List<Object>> getHits(String key, FluxTextQuery query) {
+        boolean matched = ((indexKeys == null) || ((indexKeys != null) && indexKeys.contains(key)));
+        Keyword attribute = FluxUtil.createKey(key, String.class, clazz);
+        if (!matched || !FluxUtil.existingAttributeDefinition(attribute, graph)) {
+            return new ArrayList<List<Object>>();
+        }
+        if (!FluxUtil.isFullTextAttribute(attribute, getDatabase())) {
+            throw new IllegalArgumentException("Key " + key + " is not a full-text key");
+        }
+        List<List<Object>> hits = new ArrayList<List<Object>>(FluxMetrics.q("FluxIndex.getHits", "[:find ?element ?value ?score " +
+                                                                      ":in $ ?attribute ?search " +
+                                                                      ":where [(fulltext $ ?attribute ?search) [[?element ?value _ ?score]]] ]", getDatabase(), attribute, query.getText()));
+        Collections.sort(hits, new Comparator<List<Object>>() {
+            @Override
+            public int compare(List<Object> hit1, List<Object> hit2) {
+                return Double.compare(((Number)hit2.get(2)).doubleValue(), ((Number)hit1.get(2)).doubleValue());
+            }
+        });
+        if (query.hasLimit() && hits.size() > query.getLimit()) {
+            return hits.subList(0, query.getLimit());
+        }
+        return hits;
+    }
+
+    private long countElements(Keyword attribute, Object value, Keyword type, Database database) {
+        return graph.getQueryCache().getCount(database, "[:find (count ?element) " +
+                                                         ":in $ ?attribute ?value ?type " +
+                                                         ":where [?element :graph.element/type ?type] " +
+                                                                "[?element ?attribute ?value] ]", attribute, value, type);
     }
 
 }
@@ -0,0 +1,83 @@
+package com.jnj.fluxgraph;
+
+import datomic.Database;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tracks the (asynchronous) build of the Datomic AVET index after a key index was created. Datomic only adds the datoms of an attribute to the
+ * AVET index during its next indexing job, hence the index can not be relied upon until the index includes the transaction that enabled it.
+ * Datomic does not report the progress of an indexing job, hence a build is either still building, ready or failed.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxIndexBuild {
+
+    public enum Status { BUILDING, READY, FAILED }
+
+    private final String key;
+    private final Class elementClass;
+    private final long basisT;
+    private final long startTime;
+    private final Future<Database> indexed;
+
+    public FluxIndexBuild(final String key, final Class elementClass, final long basisT, final Future<Database> indexed) {
+        this.key = key;
+        this.elementClass = elementClass;
+        this.basisT = basisT;
+        this.indexed = indexed;
+        this.startTime = System.currentTimeMillis();
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Class getElementClass() {
+        return elementClass;
+    }
+
+    // The basis t of the transaction that enabled the index
+    public long getBasisT() {
+        return basisT;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public Status getStatus() {
+        if (!indexed.isDone()) {
+            return Status.BUILDING;
+        }
+        try {
+            indexed.get();
+            return Status.READY;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Status.BUILDING;
+        } catch (ExecutionException e) {
+            return Status.FAILED;
+        }
+    }
+
+    public boolean isReady() {
+        return getStatus() == Status.READY;
+    }
+
+    // Waits until the index is built. Returns false if the index is not ready within the given timeout
+    public boolean await(final long timeout, final TimeUnit unit) throws InterruptedException {
+        try {
+            indexed.get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            throw new RuntimeException(FluxGraph.DATOMIC_ERROR_EXCEPTION_MESSAGE);
+        }
+    }
+
+}
@@ -7,6 +7,7 @@ import datomic.Datom;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * @author Davy Suvee (http://datablend.be)
@@ -16,6 +17,7 @@ public class FluxIterable<T extends Element> implements CloseableIterable<T> {
     private Iterable<Datom> datoms;
     private Collection<List<Object>> objects;
     private List<Object> ids;
+    private long[] idArray;
     private final FluxGraph graph;
     private final Database database;
     private Class<T> clazz;
@@ -41,6 +43,11 @@ public class FluxIterable<T extends Element> implements CloseableIterable<T> {
         this.ids = ids;
     }
 
+    public FluxIterable(final long[] ids, final FluxGraph graph, final Database database, final Class<T> clazz) {
+        this(graph, database, clazz);
+        this.idArray = ids;
+    }
+
     public Iterator<T> iterator() {
         if (datoms != null) {
             return new DatomicDatomIterator();
@@ -50,6 +57,9 @@ public class FluxIterable<T extends Element> implements CloseableIterable<T> {
                 return new DatomicQueryIterator();
             }
             else {
+                if (idArray != null) {
+                    return new DatomicIdArrayIterator();
+                }
                 return new DatomicIdIterator();
             }
         }
@@ -60,10 +70,27 @@ public class FluxIterable<T extends Element> implements CloseableIterable<T> {
 
     private abstract class DatomicIterator implements Iterator<T> {
 
+        private long wrapped = 0;
+        private boolean reported = false;
+
+        protected abstract boolean hasMore();
+
         protected abstract Object getNext();
 
+        public boolean hasNext() {
+            boolean hasMore = hasMore();
+            // Report the number of elements wrapped by this traversal once it is exhausted
+            if (!hasMore && !reported) {
+                reported = true;
+                FluxMetrics.count("elements.wrapped", wrapped);
+                FluxMetrics.record("elements.perIteration", wrapped);
+            }
+            return hasMore;
+        }
+
         public T next() {
             Object object = getNext();
+            wrapped++;
             T ret = null;
             if (clazz == Vertex.class) {
                 ret = (T) new FluxVertex(graph, database, object);
@@ -85,7 +112,7 @@ public class FluxIterable<T extends Element> implements CloseableIterable<T> {
     private class DatomicDatomIterator extends DatomicIterator {
         private Iterator<Datom> iterator = datoms.iterator();
 
-        public boolean hasNext() {
+        protected boolean hasMore() {
             return iterator.hasNext();
         }
 
@@ -99,7 +126,7 @@ public class FluxIterable<T extends Element> implements CloseableIterable<T> {
     private class DatomicQueryIterator extends DatomicIterator {
         private Iterator<List<Object>> iterator = objects.iterator();
 
-        public boolean hasNext() {
+        protected boolean hasMore() {
             return iterator.hasNext();
         }
 
@@ -113,8 +140,7 @@ public class FluxIterable<T extends Element> implements CloseableIterable<T> {
     private class DatomicIdIterator extends DatomicIterator {
         private Iterator<Object> iterator = ids.iterator();
 
-        @Override
-        public boolean hasNext() {
+        protected boolean hasMore() {
             return iterator.hasNext();
         }
 
@@ -124,4 +150,21 @@ public class FluxIterable<T extends Element> implements CloseableIterable<T> {
 
     }
 
+    // Iterator for (primitive) datomic ids
+    private class DatomicIdArrayIterator extends DatomicIterator {
+        private int position = 0;
+
+        protected boolean hasMore() {
+            return position < idArray.length;
+        }
+
+        protected Object getNext() {
+            if (!hasMore()) {
+                throw new NoSuchElementException();
+            }
+            return idArray[position++];
+        }
+
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,155 @@
+package com.jnj.fluxgraph;
+
+import clojure.lang.Keyword;
+import com.tinkerpop.blueprints.*;
+import com.tinkerpop.blueprints.util.StringFactory;
+import datomic.Database;
+import datomic.Datom;
+import datomic.Peer;
+import datomic.Util;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A named, manual index. Each key-valuetype combination of the index is stored as a dedicated (indexed, cardinality many) Datomic attribute
+ * on the indexed elements themselves, which makes lookups a scan of the AVET index and ensures that removed elements disappear from the index.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxManualIndex<T extends Element> implements Index<T> {
+
+    private final FluxGraph graph;
+    private final String name;
+    private final Class<T> clazz;
+    private final Object indexId;
+
+    public FluxManualIndex(final String name, final FluxGraph graph, final Class<T> clazz, final Object indexId) {
+        this.name = name;
+        this.graph = graph;
+        this.clazz = clazz;
+        this.indexId = indexId;
+    }
+
+    @Override
+    public String getIndexName() {
+        return name;
+    }
+
+    @Override
+    public Class<T> getIndexClass() {
+        return clazz;
+    }
+
+    @Override
+    public void put(final String key, final Object value, final T element) {
+        putInTransaction(key, value, element);
+        graph.transact();
+    }
+
+    // Adds the index entry to the current transaction of the graph (it will be committed with the next transact)
+    public void putInTransaction(final String key, final Object value, final T element) {
+        Keyword attribute = getAttribute(key, value.getClass());
+        if (!graph.getIndexAttributes(indexId).contains(attribute)) {
+            linkAttribute(attribute, value.getClass());
+        }
+        // Index entries are bookkeeping, they are not part of the time aware history of the element
+        graph.addToTransaction(Util.list(":db/add", element.getId(), attribute, FluxUtil.normalizeValue(value)));
+    }
+
+    @Override
+    public CloseableIterable<T> get(final String key, final Object value) {
+        Keyword attribute = getAttribute(key, value.getClass());
+        if (!FluxUtil.existingAttributeDefinition(attribute, graph)) {
+            return new FluxIterable(new ArrayList<Object>(), graph, null, clazz);
+        }
+        Iterable<Datom> elements = FluxMetrics.datoms("FluxManualIndex.get", graph.getRawGraph(), Database.AVET, attribute, FluxUtil.normalizeValue(value));
+        return new FluxIterable(elements, graph, null, clazz);
+    }
+
+    @Override
+    public CloseableIterable<T> query(final String key, final Object query) {
+        if (query instanceof FluxRangeQuery) {
+            Keyword attribute = getAttribute(key, ((FluxRangeQuery)query).getValueClass());
+            if (!FluxUtil.existingAttributeDefinition(attribute, graph)) {
+                return new FluxIterable(new ArrayList<Object>(), graph, null, clazz);
+            }
+            return FluxIndex.rangeQuery(attribute, (FluxRangeQuery)query, graph, null, graph.getRawGraph(), clazz);
+        }
+        throw new IllegalArgumentException("Query type " + query.getClass().getName() + " not supported");
+    }
+
+    @Override
+    public long count(final String key, final Object value) {
+        Keyword attribute = getAttribute(key, value.getClass());
+        if (!FluxUtil.existingAttributeDefinition(attribute, graph)) {
+            return 0;
+        }
+        return FluxUtil.getCount(FluxMetrics.q("FluxManualIndex.count", "[:find (count ?element) " +
+                                         ":in $ ?attribute ?value " +
+                                         ":where [?element ?attribute ?value] ]", graph.getRawGraph(), attribute, FluxUtil.normalizeValue(value)));
+    }
+
+    @Override
+    public void remove(final String key, final Object value, final T element) {
+        removeInTransaction(key, value, element);
+        graph.transact();
+    }
+
+    // Adds the removal of the index entry to the current transaction of the graph (it will be committed with the next transact)
+    public void removeInTransaction(final String key, final Object value, final T element) {
+        Keyword attribute = getAttribute(key, value.getClass());
+        if (FluxUtil.existingAttributeDefinition(attribute, graph)) {
+            graph.addToTransaction(Util.list(":db/retract", element.getId(), attribute, FluxUtil.normalizeValue(value)));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return StringFactory.indexString(this);
+    }
+
+    protected Object getIndexId() {
+        return indexId;
+    }
+
+    // Creates a unique attribute for each index-key-valuetype combination
+    protected Keyword getAttribute(final String key, final Class valueClazz) {
+        return FluxUtil.createIndexKey(name, key, valueClazz);
+    }
+
+    // Creates the attribute (if required) and links it to the index. Attributes need to be installed before they can be used within a transaction,
+    // the link itself is added to the current transaction of the graph. Links are only cached once they are part of the database
+    private void linkAttribute(final Keyword attribute, final Class valueClazz) {
+        if (!FluxUtil.existingAttributeDefinition(attribute, graph)) {
+            Map attributeDefinition = Util.map(":db/id", Peer.tempid(":db.part/db"),
+                                               ":db/ident", attribute,
+                                               ":db/valueType", FluxUtil.mapJavaTypeToDatomicType(valueClazz),
+                                               ":db/cardinality", ":db.cardinality/many",
+                                               ":db/index", true,
+                                               ":db.install/_attribute", ":db.part/db");
+            try {
+                if (graph.getTransactionTime() == null) {
+                    FluxMetrics.transact("FluxManualIndex.createAttribute", graph.getConnection(), Util.list(attributeDefinition));
+                }
+                else {
+                    FluxMetrics.transact("FluxManualIndex.createAttribute", graph.getConnection(), Util.list(attributeDefinition, Util.map(":db/id", Peer.tempid(":db.part/tx"), ":db/txInstant", graph.getTransactionTime())));
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(FluxGraph.DATOMIC_ERROR_EXCEPTION_MESSAGE);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(FluxGraph.DATOMIC_ERROR_EXCEPTION_MESSAGE);
+            }
+        }
+        else {
+            Database database = graph.getConnection().db();
+            if (FluxMetrics.datoms("FluxManualIndex.linkAttribute", database, Database.EAVT, indexId, Keyword.intern("graph.index/attribute"), database.entid(attribute)).iterator().hasNext()) {
+                graph.getIndexAttributes(indexId).add(attribute);
+                return;
+            }
+        }
+        graph.addToTransaction(Util.list(":db/add", indexId, ":graph.index/attribute", attribute));
+    }
+
+}
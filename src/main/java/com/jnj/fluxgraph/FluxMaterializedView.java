@@ -0,0 +1,93 @@
+package com.jnj.fluxgraph;
+
+import datomic.Database;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base class of derived, in-memory views on a graph (adjacency, counts, caches, ...) that are kept up to date incrementally. Once registered
+ * on a graph, a view is built from the current database value and from then on receives the changes of each transaction (in transaction
+ * order) from the transaction report queue. Each view is stamped with the basis t of the last database value it reflects, hence readers can
+ * wait until a view has caught up with their own writes.
+ *
+ * Updates are applied while holding the monitor of the view: readers that need a consistent state across multiple reads should synchronize
+ * on the view as well.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public abstract class FluxMaterializedView {
+
+    private long basisT = -1;
+    private boolean failed = false;
+
+    // (Re)builds the view from scratch for the given database value
+    protected abstract void rebuild(Database database);
+
+    // Applies the changes of a single transaction. The database is the value right after the transaction
+    protected abstract void apply(List<FluxGraphEvent> events, Database database);
+
+    // The basis t of the database value the view currently reflects (-1 if the view was not built yet)
+    public synchronized long getBasisT() {
+        return basisT;
+    }
+
+    // Whether the last update failed (the view is rebuilt with the next transaction)
+    public synchronized boolean isFailed() {
+        return failed;
+    }
+
+    // Waits until the view reflects (at least) the database value with the given basis t
+    public synchronized void awaitBasis(final long t) throws InterruptedException {
+        while (basisT < t) {
+            wait();
+        }
+    }
+
+    // Waits until the view reflects (at least) the database value with the given basis t. Returns false if the timeout expired first
+    public synchronized boolean awaitBasis(final long t, final long timeout, final TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (basisT < t) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    // Builds the view for the given database value
+    protected synchronized void initialize(final Database database) {
+        rebuild(database);
+        stamp(database.basisT(), false);
+    }
+
+    // Applies the changes of a transaction (transactions that are already reflected by the view are skipped). A failing update causes the
+    // view to be rebuilt with the next transaction
+    protected synchronized void update(final List<FluxGraphEvent> events, final Database database) {
+        long t = database.basisT();
+        if (t <= basisT) {
+            return;
+        }
+        try {
+            if (failed) {
+                rebuild(database);
+            }
+            else {
+                apply(events, database);
+            }
+            stamp(t, false);
+        } catch (RuntimeException e) {
+            FluxMetrics.count("views.failedUpdates");
+            stamp(basisT, true);
+        }
+    }
+
+    private void stamp(final long t, final boolean failed) {
+        this.basisT = t;
+        this.failed = failed;
+        notifyAll();
+    }
+
+}
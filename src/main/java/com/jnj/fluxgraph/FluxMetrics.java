@@ -0,0 +1,158 @@
+package com.jnj.fluxgraph;
+
+import datomic.Connection;
+import datomic.Database;
+import datomic.Datom;
+import datomic.Peer;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Entry point for the (process-wide) metrics of FluxGraph. All Datomic queries and transactions of FluxGraph go through this class, which
+ * records their number and latency per call site (named "q.<site>" and "transact.<site>"). Datoms scans are counted per call site ("datoms.<site>").
+ * Queries and scans are traced as well if the FluxTracer is enabled. By default, metrics are collected in memory by a
+ * FluxMetricsCollector. Plug in another registry to forward them, or set the registry to null to disable metrics altogether.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public final class FluxMetrics {
+
+    private static volatile FluxMetricsRegistry registry = new FluxMetricsCollector();
+    // The metric names per call site, built once to keep the instrumented calls free of allocations
+    private static final ConcurrentMap<String,String> queryNames = new ConcurrentHashMap<String,String>();
+    private static final ConcurrentMap<String,String> datomsNames = new ConcurrentHashMap<String,String>();
+    private static final ConcurrentMap<String,String> transactNames = new ConcurrentHashMap<String,String>();
+
+    private FluxMetrics() {
+    }
+
+    public static FluxMetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    public static void setRegistry(final FluxMetricsRegistry newRegistry) {
+        registry = newRegistry;
+    }
+
+    public static boolean isEnabled() {
+        return registry != null;
+    }
+
+    // Exposes the metrics over JMX (only supported for the default, in-memory registry)
+    public static void registerMBean() {
+        FluxMetricsRegistry current = registry;
+        if (current instanceof FluxMetricsCollector) {
+            ((FluxMetricsCollector)current).registerMBean(FluxMetricsCollector.DEFAULT_OBJECT_NAME);
+        }
+    }
+
+    // Executes a Datomic query, recording its latency for the given call site
+    public static Collection<List<Object>> q(final String site, final Object query, final Object... inputs) {
+        FluxMetricsRegistry current = registry;
+        boolean tracing = FluxTracer.isTracing();
+        if (current == null && !tracing) {
+            return Peer.q(query, inputs);
+        }
+        long start = System.nanoTime();
+        Collection<List<Object>> results = null;
+        try {
+            results = Peer.q(query, inputs);
+            return results;
+        } finally {
+            long duration = System.nanoTime() - start;
+            if (current != null) {
+                current.record(getName(queryNames, "q.", site), duration);
+            }
+            if (tracing) {
+                FluxTracer.record(site, query, inputs, results != null ? results.size() : -1, duration);
+            }
+        }
+    }
+
+    // Retrieves the datoms of an index, counting the scans per call site (and tracing them if required)
+    public static Iterable<Datom> datoms(final String site, final Database database, final Object index, final Object... components) {
+        FluxMetricsRegistry current = registry;
+        if (current != null) {
+            current.count(getName(datomsNames, "datoms.", site), 1);
+        }
+        if (FluxTracer.isTracing()) {
+            return FluxTracer.trace(site, database.datoms(index, components), index, components);
+        }
+        return database.datoms(index, components);
+    }
+
+    // Seeks into an index (the datoms start at the given components and run till the end of the index), counting the scans per call site
+    public static Iterable<Datom> seekDatoms(final String site, final Database database, final Object index, final Object... components) {
+        FluxMetricsRegistry current = registry;
+        if (current != null) {
+            current.count(getName(datomsNames, "datoms.", site), 1);
+        }
+        if (FluxTracer.isTracing()) {
+            return FluxTracer.trace(site, database.seekDatoms(index, components), index, components);
+        }
+        return database.seekDatoms(index, components);
+    }
+
+    // Retrieves a range of the AVET index, counting the scans per call site (and tracing them if required)
+    public static Iterable<Datom> indexRange(final String site, final Database database, final Object attribute, final Object start, final Object end) {
+        FluxMetricsRegistry current = registry;
+        if (current != null) {
+            current.count(getName(datomsNames, "datoms.", site), 1);
+        }
+        if (FluxTracer.isTracing()) {
+            return FluxTracer.trace(site, database.indexRange(attribute, start, end), "indexRange", new Object[] {attribute, start, end});
+        }
+        return database.indexRange(attribute, start, end);
+    }
+
+    // Executes a Datomic transaction (and waits for it to complete), recording its latency for the given call site
+    public static Map transact(final String site, final Connection connection, final List transaction) throws ExecutionException, InterruptedException {
+        FluxMetricsRegistry current = registry;
+        if (current == null) {
+            return connection.transact(transaction).get();
+        }
+        long start = System.nanoTime();
+        try {
+            return connection.transact(transaction).get();
+        } finally {
+            current.record(getName(transactNames, "transact.", site), System.nanoTime() - start);
+            current.count("transact.statements", transaction.size());
+        }
+    }
+
+    // Increments a counter
+    public static void count(final String name) {
+        count(name, 1);
+    }
+
+    public static void count(final String name, final long delta) {
+        FluxMetricsRegistry current = registry;
+        if (current != null) {
+            current.count(name, delta);
+        }
+    }
+
+    // Records a value in a histogram
+    public static void record(final String name, final long value) {
+        FluxMetricsRegistry current = registry;
+        if (current != null) {
+            current.record(name, value);
+        }
+    }
+
+
+    private static String getName(final ConcurrentMap<String,String> names, final String prefix, final String site) {
+        String name = names.get(site);
+        if (name == null) {
+            name = prefix + site;
+            names.putIfAbsent(site, name);
+        }
+        return name;
+    }
+
+}
@@ -0,0 +1,166 @@
+package com.jnj.fluxgraph;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Default, in-memory metrics registry. Counters and histograms are created on first use and can be inspected directly, through JMX or
+ * through the Rexster metrics extension.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxMetricsCollector implements FluxMetricsRegistry, FluxMetricsCollectorMBean {
+
+    public static final String DEFAULT_OBJECT_NAME = "com.jnj.fluxgraph:type=Metrics";
+
+    private final ConcurrentMap<String,AtomicLong> counters = new ConcurrentHashMap<String,AtomicLong>();
+    private final ConcurrentMap<String,FluxHistogram> histograms = new ConcurrentHashMap<String,FluxHistogram>();
+
+    @Override
+    public void count(final String name, final long delta) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            counters.putIfAbsent(name, new AtomicLong(0));
+            counter = counters.get(name);
+        }
+        counter.addAndGet(delta);
+    }
+
+    @Override
+    public void record(final String name, final long value) {
+        FluxHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histograms.putIfAbsent(name, new FluxHistogram());
+            histogram = histograms.get(name);
+        }
+        histogram.record(value);
+    }
+
+    // Returns the histogram with the given name (or null if nothing was recorded yet)
+    public FluxHistogram getHistogram(final String name) {
+        return histograms.get(name);
+    }
+
+    // Returns a snapshot of all counters
+    public Map<String,Long> getCounters() {
+        Map<String,Long> snapshot = new TreeMap<String,Long>();
+        for (Map.Entry<String,AtomicLong> counter : counters.entrySet()) {
+            snapshot.put(counter.getKey(), counter.getValue().get());
+        }
+        return snapshot;
+    }
+
+    // Returns a snapshot of all histograms (count, mean, p50, p90, p99 and max)
+    public Map<String,Map<String,Object>> getHistograms() {
+        Map<String,Map<String,Object>> snapshot = new TreeMap<String,Map<String,Object>>();
+        for (Map.Entry<String,FluxHistogram> histogram : histograms.entrySet()) {
+            Map<String,Object> values = new LinkedHashMap<String,Object>();
+            values.put("count", histogram.getValue().getCount());
+            values.put("mean", histogram.getValue().getMean());
+            values.put("p50", histogram.getValue().getValueAtPercentile(50));
+            values.put("p90", histogram.getValue().getValueAtPercentile(90));
+            values.put("p99", histogram.getValue().getValueAtPercentile(99));
+            values.put("max", histogram.getValue().getMax());
+            snapshot.put(histogram.getKey(), values);
+        }
+        return snapshot;
+    }
+
+    @Override
+    public String[] getCounterNames() {
+        return getCounters().keySet().toArray(new String[0]);
+    }
+
+    @Override
+    public String[] getHistogramNames() {
+        return new TreeSet<String>(histograms.keySet()).toArray(new String[0]);
+    }
+
+    @Override
+    public long getCount(final String name) {
+        AtomicLong counter = counters.get(name);
+        return counter != null ? counter.get() : 0;
+    }
+
+    @Override
+    public long getHistogramCount(final String name) {
+        FluxHistogram histogram = histograms.get(name);
+        return histogram != null ? histogram.getCount() : 0;
+    }
+
+    @Override
+    public double getMean(final String name) {
+        FluxHistogram histogram = histograms.get(name);
+        return histogram != null ? histogram.getMean() : 0.0;
+    }
+
+    @Override
+    public long getValueAtPercentile(final String name, final double percentile) {
+        FluxHistogram histogram = histograms.get(name);
+        return histogram != null ? histogram.getValueAtPercentile(percentile) : 0;
+    }
+
+    @Override
+    public long getMax(final String name) {
+        FluxHistogram histogram = histograms.get(name);
+        return histogram != null ? histogram.getMax() : 0;
+    }
+
+    @Override
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String,Long> counter : getCounters().entrySet()) {
+            report.append(counter.getKey()).append(": ").append(counter.getValue()).append("\n");
+        }
+        for (String name : getHistogramNames()) {
+            report.append(name).append(": ").append(histograms.get(name)).append("\n");
+        }
+        return report.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (AtomicLong counter : counters.values()) {
+            counter.set(0);
+        }
+        for (FluxHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    // Registers the collector with the platform MBean server
+    public ObjectName registerMBean(final String objectName) {
+        try {
+            ObjectName name = new ObjectName(objectName);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            return name;
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException("Invalid JMX object name " + objectName);
+        } catch (JMException e) {
+            throw new RuntimeException("Unable to register the FluxGraph metrics with JMX", e);
+        }
+    }
+
+    public void unregisterMBean(final String objectName) {
+        try {
+            ObjectName name = new ObjectName(objectName);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException("Invalid JMX object name " + objectName);
+        } catch (JMException e) {
+            throw new RuntimeException("Unable to unregister the FluxGraph metrics from JMX", e);
+        }
+    }
+
+}
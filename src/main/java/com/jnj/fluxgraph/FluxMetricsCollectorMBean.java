@@ -0,0 +1,28 @@
+package com.jnj.fluxgraph;
+
+/**
+ * JMX management interface of the FluxMetricsCollector.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public interface FluxMetricsCollectorMBean {
+
+    public String[] getCounterNames();
+
+    public String[] getHistogramNames();
+
+    public long getCount(String name);
+
+    public long getHistogramCount(String name);
+
+    public double getMean(String name);
+
+    public long getValueAtPercentile(String name, double percentile);
+
+    public long getMax(String name);
+
+    public String getReport();
+
+    public void reset();
+
+}
@@ -0,0 +1,17 @@
+package com.jnj.fluxgraph;
+
+/**
+ * Receives the metrics of FluxGraph (counters and latencies of the Datomic calls). Implement this interface to forward the metrics to an
+ * existing monitoring system and plug it in through FluxMetrics.setRegistry.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public interface FluxMetricsRegistry {
+
+    // Increments the counter with the given name
+    public void count(String name, long delta);
+
+    // Records a value (for latencies, expressed in nanoseconds) in the histogram with the given name
+    public void record(String name, long value);
+
+}
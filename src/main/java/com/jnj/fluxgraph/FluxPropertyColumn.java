@@ -0,0 +1,171 @@
+package com.jnj.fluxgraph;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The values of a property for all elements of a type, in columnar form: the (sorted) element ids and the values at the same positions.
+ * A column only holds values of a single type. Longs (and integers), floats and doubles and booleans are stored in primitive arrays,
+ * all other types as objects.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxPropertyColumn {
+
+    private final Class valueClass;
+    private final long[] ids;
+    private final long[] longValues;
+    private final double[] doubleValues;
+    private final boolean[] booleanValues;
+    private final Object[] values;
+
+    private FluxPropertyColumn(final Class valueClass, final long[] ids, final long[] longValues, final double[] doubleValues, final boolean[] booleanValues, final Object[] values) {
+        this.valueClass = valueClass;
+        this.ids = ids;
+        this.longValues = longValues;
+        this.doubleValues = doubleValues;
+        this.booleanValues = booleanValues;
+        this.values = values;
+    }
+
+    // The type of the values (as used to create the property)
+    public Class getValueClass() {
+        return valueClass;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public long[] getIds() {
+        return ids;
+    }
+
+    // The values of a Long (or Integer) property
+    public long[] getLongValues() {
+        if (longValues == null) {
+            throw new IllegalArgumentException("The column does not contain long values");
+        }
+        return longValues;
+    }
+
+    // The values of a Double (or Float) property
+    public double[] getDoubleValues() {
+        if (doubleValues == null) {
+            throw new IllegalArgumentException("The column does not contain double values");
+        }
+        return doubleValues;
+    }
+
+    public boolean[] getBooleanValues() {
+        if (booleanValues == null) {
+            throw new IllegalArgumentException("The column does not contain boolean values");
+        }
+        return booleanValues;
+    }
+
+    // The values of a property that is not stored in a primitive array (strings, big numbers, uuids, uris)
+    public Object[] getValues() {
+        if (values == null) {
+            throw new IllegalArgumentException("The column contains primitive values");
+        }
+        return values;
+    }
+
+    // Returns the value at the given position (boxed)
+    public Object getValue(final int i) {
+        if (longValues != null) {
+            return longValues[i];
+        }
+        if (doubleValues != null) {
+            return valueClass.equals(Float.class) ? Float.valueOf((float)doubleValues[i]) : Double.valueOf(doubleValues[i]);
+        }
+        if (booleanValues != null) {
+            return booleanValues[i];
+        }
+        return values[i];
+    }
+
+    @Override
+    public String toString() {
+        return "fluxcolumn[" + valueClass.getSimpleName() + ", size:" + ids.length + "]";
+    }
+
+    // Concatenates the (sorted) chunks into a single column
+    protected static FluxPropertyColumn concat(final Class valueClass, final List<Builder> chunks) {
+        Builder builder = new Builder(valueClass);
+        for (Builder chunk : chunks) {
+            for (int i = 0; i < chunk.size; i++) {
+                builder.add(chunk.ids[i], chunk.longValues != null ? chunk.longValues[i] :
+                                          chunk.doubleValues != null ? chunk.doubleValues[i] :
+                                          chunk.booleanValues != null ? chunk.booleanValues[i] : chunk.values[i]);
+            }
+        }
+        return builder.build();
+    }
+
+    // Collects the ids and values of a column (or a chunk of it)
+    protected static class Builder {
+        private final Class valueClass;
+        private long[] ids = new long[64];
+        private long[] longValues;
+        private double[] doubleValues;
+        private boolean[] booleanValues;
+        private Object[] values;
+        private int size = 0;
+
+        protected Builder(final Class valueClass) {
+            this.valueClass = valueClass;
+            if (valueClass.equals(Long.class) || valueClass.equals(Integer.class)) {
+                longValues = new long[64];
+            }
+            else if (valueClass.equals(Double.class) || valueClass.equals(Float.class)) {
+                doubleValues = new double[64];
+            }
+            else if (valueClass.equals(Boolean.class)) {
+                booleanValues = new boolean[64];
+            }
+            else {
+                values = new Object[64];
+            }
+        }
+
+        protected void add(final long id, final Object value) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                longValues = longValues != null ? Arrays.copyOf(longValues, capacity) : null;
+                doubleValues = doubleValues != null ? Arrays.copyOf(doubleValues, capacity) : null;
+                booleanValues = booleanValues != null ? Arrays.copyOf(booleanValues, capacity) : null;
+                values = values != null ? Arrays.copyOf(values, capacity) : null;
+            }
+            ids[size] = id;
+            if (longValues != null) {
+                longValues[size] = ((Number)value).longValue();
+            }
+            else if (doubleValues != null) {
+                doubleValues[size] = ((Number)value).doubleValue();
+            }
+            else if (booleanValues != null) {
+                booleanValues[size] = (Boolean)value;
+            }
+            else {
+                values[size] = value;
+            }
+            size++;
+        }
+
+        protected int size() {
+            return size;
+        }
+
+        protected FluxPropertyColumn build() {
+            return new FluxPropertyColumn(valueClass, Arrays.copyOf(ids, size),
+                                          longValues != null ? Arrays.copyOf(longValues, size) : null,
+                                          doubleValues != null ? Arrays.copyOf(doubleValues, size) : null,
+                                          booleanValues != null ? Arrays.copyOf(booleanValues, size) : null,
+                                          values != null ? Arrays.copyOf(values, size) : null);
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.jnj.fluxgraph;
+
+import clojure.lang.Keyword;
+import datomic.Database;
+import datomic.Datom;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Scans the values of a property for all elements of a type by walking the AEVT index of the typed attributes behind the key directly,
+ * without loading any entities. The result contains a column for each value type the property is used with.
+ * The scan can be split into chunks of entity ids (derived from the transactions in which the elements were created) that are scanned in parallel.
+ *
+ * <code>
+ *     for (FluxPropertyColumn column : graph.scanProperty("age", Vertex.class, 4)) { ... }
+ * </code>
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxPropertyScan {
+
+    // The partition in which vertices and edges are created
+    private static final String GRAPH_PARTITION = ":graph";
+
+    private final Database database;
+    private final String key;
+    private final Class elementClass;
+
+    public FluxPropertyScan(final Database database, final String key, final Class elementClass) {
+        if (FluxUtil.isReservedKey(key)) {
+            throw new IllegalArgumentException("Reserved properties can not be scanned: " + key);
+        }
+        this.database = database;
+        this.key = key;
+        this.elementClass = elementClass;
+    }
+
+    // Runs the scan, splitting each typed attribute in the given number of chunks that are scanned in parallel
+    public List<FluxPropertyColumn> run(final int chunks) {
+        if (chunks < 1) {
+            throw new IllegalArgumentException("The number of chunks should be at least 1");
+        }
+        long start = System.nanoTime();
+        List<FluxPropertyColumn> columns = new ArrayList<FluxPropertyColumn>();
+        Object[] boundaries = getBoundaries(chunks);
+        ExecutorService executor = chunks > 1 ? Executors.newFixedThreadPool(chunks, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "fluxgraph-property-scan");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }) : null;
+        try {
+            for (Class valueClass : FluxUtil.getValueClasses()) {
+                final Keyword attribute = FluxUtil.createKey(key, valueClass, elementClass);
+                final Object attributeId = database.entid(attribute);
+                if (attributeId == null) {
+                    continue;
+                }
+                List<FluxPropertyColumn.Builder> parts = new ArrayList<FluxPropertyColumn.Builder>();
+                if (executor == null) {
+                    parts.add(scan(attributeId, valueClass, null, null));
+                }
+                else {
+                    List<Future<FluxPropertyColumn.Builder>> futures = new ArrayList<Future<FluxPropertyColumn.Builder>>();
+                    for (int i = 0; i < chunks; i++) {
+                        final Class chunkValueClass = valueClass;
+                        final Object from = boundaries[i];
+                        final Object to = boundaries[i + 1];
+                        futures.add(executor.submit(new Callable<FluxPropertyColumn.Builder>() {
+                            @Override
+                            public FluxPropertyColumn.Builder call() {
+                                return scan(attributeId, chunkValueClass, from, to);
+                            }
+                        }));
+                    }
+                    for (Future<FluxPropertyColumn.Builder> future : futures) {
+                        parts.add(future.get());
+                    }
+                }
+                FluxPropertyColumn column = parts.size() == 1 ? parts.get(0).build() : FluxPropertyColumn.concat(valueClass, parts);
+                if (column.size() > 0) {
+                    columns.add(column);
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException(FluxGraph.DATOMIC_ERROR_EXCEPTION_MESSAGE);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(FluxGraph.DATOMIC_ERROR_EXCEPTION_MESSAGE);
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+        FluxMetrics.record("propertyScan", System.nanoTime() - start);
+        return columns;
+    }
+
+    // Scans the datoms of the attribute for the entities within [from, to) (null for an open boundary)
+    private FluxPropertyColumn.Builder scan(final Object attributeId, final Class valueClass, final Object from, final Object to) {
+        FluxPropertyColumn.Builder builder = new FluxPropertyColumn.Builder(valueClass);
+        long attribute = ((Number)attributeId).longValue();
+        long end = to != null ? ((Number)to).longValue() : Long.MAX_VALUE;
+        Iterable<Datom> datoms = from != null ? FluxMetrics.seekDatoms("FluxPropertyScan.scan", database, Database.AEVT, attributeId, from) :
+                                                FluxMetrics.datoms("FluxPropertyScan.scan", database, Database.AEVT, attributeId);
+        for (Datom datom : datoms) {
+            long id = ((Number)datom.e()).longValue();
+            // Seeking continues past the attribute (and the chunk)
+            if (((Number)datom.a()).longValue() != attribute || id >= end) {
+                break;
+            }
+            builder.add(id, datom.v());
+        }
+        return builder;
+    }
+
+    // Splits the entity ids of the graph partition in chunks, based on the transaction in which the entities were created
+    private Object[] getBoundaries(final int chunks) {
+        Object[] boundaries = new Object[chunks + 1];
+        long basisT = database.basisT();
+        for (int i = 1; i < chunks; i++) {
+            boundaries[i] = database.entidAt(GRAPH_PARTITION, Long.valueOf((basisT + 1) * i / chunks));
+        }
+        return boundaries;
+    }
+
+}
@@ -0,0 +1,243 @@
+package com.jnj.fluxgraph;
+
+import datomic.Database;
+
+import java.util.*;
+
+/**
+ * Bounded cache for the results of element lookup queries. Results are keyed by the query form, its arguments and the point in time of the
+ * database value it was executed against (basis t and asOf/since t), which makes them valid for as long as that database value is in use.
+ * Results are stored as compact arrays of element ids and the cache is bounded by the total number of cached ids.
+ * Entries for previous versions of the current database are dropped as soon as a lookup is done against a newer database value.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxQueryCache {
+
+    public static final long DEFAULT_MAX_SIZE = 4 * 1024 * 1024;
+    // Approximate size (expressed in ids) of the bookkeeping of a single entry
+    private static final int ENTRY_OVERHEAD = 16;
+
+    private final long maxSize;
+    private long size = 0;
+    private long latestBasisT = -1;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private final LinkedHashMap<Key,long[]> entries = new LinkedHashMap<Key,long[]>(1024, 0.75f, true);
+    private final Map<Point,Set<Key>> entriesPerPoint = new HashMap<Point,Set<Key>>();
+
+    public FluxQueryCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public FluxQueryCache(final long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    // Returns the ids (first variable of the find clause) of the query results
+    public long[] getIds(final Database database, final String query, final Object... inputs) {
+        Key key = new Key(database, query, inputs);
+        long[] ids = get(key);
+        if (ids == null) {
+            Collection<List<Object>> results = FluxMetrics.q("FluxQueryCache.getIds", query, prepend(database, inputs));
+            ids = new long[results.size()];
+            int i = 0;
+            for (List<Object> result : results) {
+                ids[i++] = ((Number)result.get(0)).longValue();
+            }
+            put(key, ids);
+        }
+        return ids;
+    }
+
+    // Returns the result of a (single) aggregate count query
+    public long getCount(final Database database, final String query, final Object... inputs) {
+        Key key = new Key(database, query, inputs);
+        long[] count = get(key);
+        if (count == null) {
+            count = new long[] {FluxUtil.getCount(FluxMetrics.q("FluxQueryCache.getCount", query, prepend(database, inputs)))};
+            put(key, count);
+        }
+        return count[0];
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    // The current size of the cache (expressed in ids)
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        entriesPerPoint.clear();
+        size = 0;
+    }
+
+    private synchronized long[] get(final Key key) {
+        if (key.point.isCurrent() && key.point.basisT > latestBasisT) {
+            dropPreviousPoints(key.point.basisT);
+        }
+        long[] ids = entries.get(key);
+        if (ids != null) {
+            hits++;
+        }
+        else {
+            misses++;
+        }
+        return ids;
+    }
+
+    private synchronized void put(final Key key, final long[] ids) {
+        // Results of previous versions of the current database are no longer cached
+        if (key.point.isCurrent() && key.point.basisT < latestBasisT) {
+            return;
+        }
+        long entrySize = ids.length + ENTRY_OVERHEAD;
+        if (entrySize > maxSize) {
+            return;
+        }
+        long[] previous = entries.put(key, ids);
+        if (previous != null) {
+            size = size - (previous.length + ENTRY_OVERHEAD);
+        }
+        size = size + entrySize;
+        Set<Key> pointEntries = entriesPerPoint.get(key.point);
+        if (pointEntries == null) {
+            pointEntries = new HashSet<Key>();
+            entriesPerPoint.put(key.point, pointEntries);
+        }
+        pointEntries.add(key);
+        // Evict the least recently used entries
+        Iterator<Map.Entry<Key,long[]>> entriesIt = entries.entrySet().iterator();
+        while (size > maxSize && entriesIt.hasNext()) {
+            Map.Entry<Key,long[]> eldest = entriesIt.next();
+            entriesIt.remove();
+            size = size - (eldest.getValue().length + ENTRY_OVERHEAD);
+            Set<Key> eldestPointEntries = entriesPerPoint.get(eldest.getKey().point);
+            eldestPointEntries.remove(eldest.getKey());
+            if (eldestPointEntries.isEmpty()) {
+                entriesPerPoint.remove(eldest.getKey().point);
+            }
+            evictions++;
+        }
+    }
+
+    // Drops all entries of the previous versions of the current database
+    private void dropPreviousPoints(final long basisT) {
+        latestBasisT = basisT;
+        Iterator<Map.Entry<Point,Set<Key>>> pointsIt = entriesPerPoint.entrySet().iterator();
+        while (pointsIt.hasNext()) {
+            Map.Entry<Point,Set<Key>> point = pointsIt.next();
+            if (point.getKey().isCurrent() && point.getKey().basisT < basisT) {
+                for (Key key : point.getValue()) {
+                    size = size - (entries.remove(key).length + ENTRY_OVERHEAD);
+                    evictions++;
+                }
+                pointsIt.remove();
+            }
+        }
+    }
+
+    private static Object[] prepend(final Database database, final Object[] inputs) {
+        Object[] allInputs = new Object[inputs.length + 1];
+        allInputs[0] = database;
+        System.arraycopy(inputs, 0, allInputs, 1, inputs.length);
+        return allInputs;
+    }
+
+    // The point in time of a database value
+    private static class Point {
+        private final long basisT;
+        private final Long asOfT;
+        private final Long sinceT;
+        private final boolean history;
+
+        private Point(final Database database) {
+            this.asOfT = database.asOfT();
+            // The results for an asOf point strictly before the basis of the database do not depend on that basis, as later transactions
+            // can not affect them. Results for an asOf point at (or after) the basis are only valid for that basis
+            this.basisT = asOfT != null && asOfT < database.basisT() ? -1 : database.basisT();
+            this.sinceT = database.sinceT();
+            this.history = database.isHistory();
+        }
+
+        private boolean isCurrent() {
+            return asOfT == null && sinceT == null && !history;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Point that = (Point) o;
+            if (basisT != that.basisT) return false;
+            if (history != that.history) return false;
+            if (asOfT != null ? !asOfT.equals(that.asOfT) : that.asOfT != null) return false;
+            if (sinceT != null ? !sinceT.equals(that.sinceT) : that.sinceT != null) return false;
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (int) (basisT ^ (basisT >>> 32));
+            result = 31 * result + (asOfT != null ? asOfT.hashCode() : 0);
+            result = 31 * result + (sinceT != null ? sinceT.hashCode() : 0);
+            result = 31 * result + (history ? 1 : 0);
+            return result;
+        }
+    }
+
+    // The key of a cached query result
+    private static class Key {
+        private final Point point;
+        private final String query;
+        private final List<Object> inputs;
+
+        private Key(final Database database, final String query, final Object[] inputs) {
+            this.point = new Point(database);
+            this.query = query;
+            this.inputs = new ArrayList<Object>(inputs.length);
+            for (Object input : inputs) {
+                // Collection inputs are compared by value
+                this.inputs.add(input instanceof Object[] ? Arrays.asList((Object[])input) : input);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key that = (Key) o;
+            return point.equals(that.point) && query.equals(that.query) && inputs.equals(that.inputs);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = point.hashCode();
+            result = 31 * result + query.hashCode();
+            result = 31 * result + inputs.hashCode();
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.jnj.fluxgraph;
+
+/**
+ * Describes a range, prefix or ordered query on a key-indexed property. Queries are served by a scan of the Datomic AVET index, and
+ * return the matching elements in the order of their property values.
+ *
+ * <code>
+ *     graph.getVertices("age", FluxRangeQuery.between(30, 40));
+ *     graph.getVertices("name", FluxRangeQuery.prefix("Acme"));
+ *     graph.getVertices("score", FluxRangeQuery.all(Double.class).descending().limit(100));
+ * </code>
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxRangeQuery {
+
+    private final Class valueClass;
+    private final Object start;
+    private final Object end;
+    private final String prefix;
+    private int limit = -1;
+    private boolean descending = false;
+
+    private FluxRangeQuery(final Class valueClass, final Object start, final Object end, final String prefix) {
+        this.valueClass = valueClass;
+        this.start = FluxUtil.normalizeValue(start);
+        this.end = FluxUtil.normalizeValue(end);
+        this.prefix = prefix;
+    }
+
+    // All values between start (inclusive) and end (exclusive)
+    public static FluxRangeQuery between(final Object start, final Object end) {
+        if (start == null || end == null) {
+            throw new IllegalArgumentException("The start and end of a range can not be null");
+        }
+        if (!start.getClass().equals(end.getClass())) {
+            throw new IllegalArgumentException("The start and end of a range should be of the same type");
+        }
+        return new FluxRangeQuery(start.getClass(), start, end, null);
+    }
+
+    // All values greater than or equal to start
+    public static FluxRangeQuery atLeast(final Object start) {
+        if (start == null) {
+            throw new IllegalArgumentException("The start of a range can not be null");
+        }
+        return new FluxRangeQuery(start.getClass(), start, null, null);
+    }
+
+    // All values strictly smaller than end
+    public static FluxRangeQuery lessThan(final Object end) {
+        if (end == null) {
+            throw new IllegalArgumentException("The end of a range can not be null");
+        }
+        return new FluxRangeQuery(end.getClass(), null, end, null);
+    }
+
+    // All string values starting with the particular prefix
+    public static FluxRangeQuery prefix(final String prefix) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("The prefix can not be null");
+        }
+        return new FluxRangeQuery(String.class, prefix, null, prefix);
+    }
+
+    // All values of a particular type (used for ordered queries)
+    public static FluxRangeQuery all(final Class valueClass) {
+        return new FluxRangeQuery(valueClass, null, null, null);
+    }
+
+    // Restricts the number of returned elements
+    public FluxRangeQuery limit(final int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("The limit can not be negative");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    // Returns the elements in descending order of their values
+    public FluxRangeQuery descending() {
+        this.descending = true;
+        return this;
+    }
+
+    public Class getValueClass() {
+        return valueClass;
+    }
+
+    public Object getStart() {
+        return start;
+    }
+
+    public Object getEnd() {
+        return end;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean hasLimit() {
+        return limit >= 0;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.jnj.fluxgraph;
+
+import datomic.Database;
+
+import java.io.Closeable;
+
+/**
+ * A read session pins a single database value for the thread that opened it. All elements and iterables used within the session read from
+ * this database value, which results in snapshot-consistent traversals and avoids retrieving the current database value on each access.
+ * Writes are not allowed while a session is open. Sessions need to be closed on the thread that opened them:
+ *
+ * <code>
+ *     FluxReadSession session = graph.readSession();
+ *     try {
+ *         ...
+ *     } finally {
+ *         session.close();
+ *     }
+ * </code>
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxReadSession implements Closeable {
+
+    private final FluxGraph graph;
+    private final Database database;
+    private final FluxReadSession previous;
+    private boolean closed = false;
+
+    protected FluxReadSession(final FluxGraph graph, final Database database, final FluxReadSession previous) {
+        this.graph = graph;
+        this.database = database;
+        this.previous = previous;
+    }
+
+    // The database value pinned by this session
+    public Database getDatabase() {
+        return database;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            graph.closeReadSession(this);
+            closed = true;
+        }
+    }
+
+    // The session that was open (on the same thread) when this session was opened
+    protected FluxReadSession getPrevious() {
+        return previous;
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Element;
+
+/**
+ * An element matching a full-text query, together with its score
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxSearchHit<T extends Element> {
+
+    private final T element;
+    private final Object value;
+    private final double score;
+
+    public FluxSearchHit(final T element, final Object value, final double score) {
+        this.element = element;
+        this.value = value;
+        this.score = score;
+    }
+
+    public T getElement() {
+        return element;
+    }
+
+    // The property value that matched the query
+    public Object getValue() {
+        return value;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+}
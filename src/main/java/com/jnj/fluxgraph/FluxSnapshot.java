@@ -0,0 +1,345 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Direction;
+import datomic.Database;
+import datomic.Datom;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.*;
+
+/**
+ * Immutable, compressed sparse row (CSR) snapshot of the adjacency of a graph at a particular database value. Vertices are mapped onto
+ * dense indices (0 till the number of vertices), sorted on their Datomic entity id, and the outgoing and incoming edges of each vertex are
+ * stored contiguously in primitive arrays. Edge labels are interned and stored as label indices. The arrays can be allocated off-heap
+ * (direct buffers) to keep large snapshots out of the garbage collected heap.
+ *
+ * The snapshot is built through a single scan of the AVET index for the vertices and a merge join of the AEVT scans of the out vertex,
+ * in vertex and label attribute of the edges. Once built, it does not touch Datomic anymore, hence the live graph can keep on changing.
+ *
+ * <code>
+ *     FluxSnapshot snapshot = graph.asOf(checkpoint).snapshot(false);
+ *     int vertex = snapshot.getIndex(id);
+ *     for (int neighbor : snapshot.getNeighbors(vertex, Direction.OUT)) { ... }
+ * </code>
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxSnapshot {
+
+    private final FluxGraph graph;
+    private final Database database;
+    private final boolean offHeap;
+    private final long[] vertexIds;
+    private final long[] edgeIds;
+    private final String[] labels;
+    // Edge index -> label index, out vertex index and in vertex index
+    private final IntBuffer edgeLabels;
+    private final IntBuffer edgeOutVertices;
+    private final IntBuffer edgeInVertices;
+    // Vertex index -> offset of its first outgoing (incoming) edge, followed by the edge indices of the outgoing (incoming) edges
+    private final IntBuffer outOffsets;
+    private final IntBuffer outEdges;
+    private final IntBuffer inOffsets;
+    private final IntBuffer inEdges;
+
+    public FluxSnapshot(final FluxGraph graph, final Database database, final boolean offHeap) {
+        long start = System.nanoTime();
+        this.graph = graph;
+        this.database = database;
+        this.offHeap = offHeap;
+        // Vertices (the AVET index is sorted on entity id for a single value)
+        LongList vertices = new LongList();
+        for (Datom datom : FluxMetrics.datoms("FluxSnapshot.build", database, Database.AVET, graph.GRAPH_ELEMENT_TYPE, graph.GRAPH_ELEMENT_TYPE_VERTEX)) {
+            vertices.add(((Number)datom.e()).longValue());
+        }
+        this.vertexIds = vertices.toArray();
+        // Edges (the AEVT index is sorted on entity id for a single attribute, hence the three scans can be merged)
+        LongList edges = new LongList();
+        IntList outVertices = new IntList();
+        IntList inVertices = new IntList();
+        IntList edgeLabelList = new IntList();
+        Map<String,Integer> labelIndices = new LinkedHashMap<String,Integer>();
+        Iterator<Datom> inIt = FluxMetrics.datoms("FluxSnapshot.build", database, Database.AEVT, graph.GRAPH_EDGE_IN_VERTEX).iterator();
+        Iterator<Datom> labelIt = FluxMetrics.datoms("FluxSnapshot.build", database, Database.AEVT, graph.GRAPH_EDGE_LABEL).iterator();
+        Datom in = inIt.hasNext() ? inIt.next() : null;
+        Datom label = labelIt.hasNext() ? labelIt.next() : null;
+        for (Datom out : FluxMetrics.datoms("FluxSnapshot.build", database, Database.AEVT, graph.GRAPH_EDGE_OUT_VERTEX)) {
+            long edge = ((Number)out.e()).longValue();
+            while (in != null && ((Number)in.e()).longValue() < edge) {
+                in = inIt.hasNext() ? inIt.next() : null;
+            }
+            while (label != null && ((Number)label.e()).longValue() < edge) {
+                label = labelIt.hasNext() ? labelIt.next() : null;
+            }
+            if (in == null || label == null || ((Number)in.e()).longValue() != edge || ((Number)label.e()).longValue() != edge) {
+                continue;
+            }
+            int outVertex = Arrays.binarySearch(vertexIds, ((Number)out.v()).longValue());
+            int inVertex = Arrays.binarySearch(vertexIds, ((Number)in.v()).longValue());
+            if (outVertex < 0 || inVertex < 0) {
+                continue;
+            }
+            Integer labelIndex = labelIndices.get(label.v());
+            if (labelIndex == null) {
+                labelIndex = labelIndices.size();
+                labelIndices.put((String)label.v(), labelIndex);
+            }
+            edges.add(edge);
+            outVertices.add(outVertex);
+            inVertices.add(inVertex);
+            edgeLabelList.add(labelIndex);
+        }
+        this.edgeIds = edges.toArray();
+        this.labels = labelIndices.keySet().toArray(new String[labelIndices.size()]);
+        this.edgeLabels = toBuffer(edgeLabelList.toArray());
+        this.edgeOutVertices = toBuffer(outVertices.toArray());
+        this.edgeInVertices = toBuffer(inVertices.toArray());
+        // Group the edges per vertex (counting sort)
+        this.outOffsets = allocate(vertexIds.length + 1);
+        this.outEdges = allocate(edgeIds.length);
+        this.inOffsets = allocate(vertexIds.length + 1);
+        this.inEdges = allocate(edgeIds.length);
+        group(edgeOutVertices, outOffsets, outEdges);
+        group(edgeInVertices, inOffsets, inEdges);
+        FluxMetrics.record("snapshot.build", System.nanoTime() - start);
+    }
+
+    public FluxGraph getGraph() {
+        return graph;
+    }
+
+    // The database value the snapshot was built from
+    public Database getDatabase() {
+        return database;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    public int getVertexCount() {
+        return vertexIds.length;
+    }
+
+    public int getEdgeCount() {
+        return edgeIds.length;
+    }
+
+    // Returns the dense index of the vertex with the given id (-1 if the vertex is not part of the snapshot)
+    public int getIndex(final Object vertexId) {
+        int index = Arrays.binarySearch(vertexIds, Long.valueOf(vertexId.toString()).longValue());
+        return index >= 0 ? index : -1;
+    }
+
+    public long getVertexId(final int vertex) {
+        return vertexIds[vertex];
+    }
+
+    public long getEdgeId(final int edge) {
+        return edgeIds[edge];
+    }
+
+    public String getLabel(final int edge) {
+        return labels[edgeLabels.get(edge)];
+    }
+
+    // The labels that are in use within the snapshot
+    public List<String> getLabels() {
+        return Collections.unmodifiableList(Arrays.asList(labels));
+    }
+
+    public int getVertex(final int edge, final Direction direction) {
+        if (direction.equals(Direction.OUT)) {
+            return edgeOutVertices.get(edge);
+        }
+        if (direction.equals(Direction.IN)) {
+            return edgeInVertices.get(edge);
+        }
+        throw new IllegalArgumentException("Only the in or out vertex of an edge can be retrieved");
+    }
+
+    public int getDegree(final int vertex, final Direction direction) {
+        int degree = 0;
+        if (!direction.equals(Direction.IN)) {
+            degree = degree + outOffsets.get(vertex + 1) - outOffsets.get(vertex);
+        }
+        if (!direction.equals(Direction.OUT)) {
+            degree = degree + inOffsets.get(vertex + 1) - inOffsets.get(vertex);
+        }
+        return degree;
+    }
+
+    // Returns the edge indices of the edges of a vertex (with one of the given labels)
+    public int[] getEdges(final int vertex, final Direction direction, final String... labels) {
+        int[] labelIndices = getLabelIndices(labels);
+        IntList edges = new IntList();
+        if (!direction.equals(Direction.IN)) {
+            addEdges(vertex, outOffsets, outEdges, labelIndices, edges);
+        }
+        if (!direction.equals(Direction.OUT)) {
+            addEdges(vertex, inOffsets, inEdges, labelIndices, edges);
+        }
+        return edges.toArray();
+    }
+
+    // Returns the indices of the adjacent vertices of a vertex (a vertex is returned once for each edge that connects it)
+    public int[] getNeighbors(final int vertex, final Direction direction, final String... labels) {
+        int[] labelIndices = getLabelIndices(labels);
+        IntList neighbors = new IntList();
+        if (!direction.equals(Direction.IN)) {
+            for (int i = outOffsets.get(vertex); i < outOffsets.get(vertex + 1); i++) {
+                int edge = outEdges.get(i);
+                if (hasLabel(edge, labelIndices)) {
+                    neighbors.add(edgeInVertices.get(edge));
+                }
+            }
+        }
+        if (!direction.equals(Direction.OUT)) {
+            for (int i = inOffsets.get(vertex); i < inOffsets.get(vertex + 1); i++) {
+                int edge = inEdges.get(i);
+                if (hasLabel(edge, labelIndices)) {
+                    neighbors.add(edgeOutVertices.get(edge));
+                }
+            }
+        }
+        return neighbors.toArray();
+    }
+
+    // Returns the i-th outgoing (or incoming) adjacent vertex of a vertex, without any allocation. Use getDegree for the number of adjacent vertices
+    public int getNeighbor(final int vertex, final Direction direction, final int i) {
+        if (direction.equals(Direction.OUT)) {
+            return edgeInVertices.get(outEdges.get(outOffsets.get(vertex) + i));
+        }
+        if (direction.equals(Direction.IN)) {
+            return edgeOutVertices.get(inEdges.get(inOffsets.get(vertex) + i));
+        }
+        throw new IllegalArgumentException("Only the outgoing or incoming adjacent vertices can be retrieved by position");
+    }
+
+    // The (approximate) number of bytes used by the snapshot
+    public long getSize() {
+        return 8L * (vertexIds.length + edgeIds.length) + 4L * (5L * edgeIds.length + 2L * (vertexIds.length + 1));
+    }
+
+    @Override
+    public String toString() {
+        return "fluxsnapshot[vertices:" + vertexIds.length + ", edges:" + edgeIds.length + ", labels:" + labels.length + ", t:" +
+               (database.asOfT() != null ? database.asOfT() : database.basisT()) + (offHeap ? ", off-heap" : "") + "]";
+    }
+
+    private void addEdges(final int vertex, final IntBuffer offsets, final IntBuffer vertexEdges, final int[] labelIndices, final IntList edges) {
+        for (int i = offsets.get(vertex); i < offsets.get(vertex + 1); i++) {
+            int edge = vertexEdges.get(i);
+            if (hasLabel(edge, labelIndices)) {
+                edges.add(edge);
+            }
+        }
+    }
+
+    private boolean hasLabel(final int edge, final int[] labelIndices) {
+        if (labelIndices == null) {
+            return true;
+        }
+        int label = edgeLabels.get(edge);
+        for (int labelIndex : labelIndices) {
+            if (labelIndex == label) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Returns the indices of the given labels (null if all labels are allowed)
+    private int[] getLabelIndices(final String... labels) {
+        if (labels.length == 0) {
+            return null;
+        }
+        IntList indices = new IntList();
+        List<String> allLabels = Arrays.asList(this.labels);
+        for (String label : labels) {
+            int index = allLabels.indexOf(label);
+            if (index >= 0) {
+                indices.add(index);
+            }
+        }
+        return indices.toArray();
+    }
+
+    // Groups the edges on the given vertex: offsets[v] till offsets[v+1] contain the edges of vertex v
+    private void group(final IntBuffer edgeVertices, final IntBuffer offsets, final IntBuffer groupedEdges) {
+        for (int edge = 0; edge < edgeIds.length; edge++) {
+            int vertex = edgeVertices.get(edge);
+            offsets.put(vertex + 1, offsets.get(vertex + 1) + 1);
+        }
+        for (int vertex = 0; vertex < vertexIds.length; vertex++) {
+            offsets.put(vertex + 1, offsets.get(vertex + 1) + offsets.get(vertex));
+        }
+        int[] positions = new int[vertexIds.length];
+        for (int edge = 0; edge < edgeIds.length; edge++) {
+            int vertex = edgeVertices.get(edge);
+            groupedEdges.put(offsets.get(vertex) + positions[vertex]++, edge);
+        }
+    }
+
+    private IntBuffer allocate(final int size) {
+        if (offHeap) {
+            return ByteBuffer.allocateDirect(4 * size).order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+        return IntBuffer.allocate(size);
+    }
+
+    private IntBuffer toBuffer(final int[] values) {
+        if (offHeap) {
+            IntBuffer buffer = allocate(values.length);
+            buffer.put(values);
+            buffer.clear();
+            return buffer;
+        }
+        return IntBuffer.wrap(values);
+    }
+
+    // Growable list of primitive ints
+    protected static class IntList {
+        private int[] values = new int[16];
+        private int size = 0;
+
+        protected void add(final int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        protected int size() {
+            return size;
+        }
+
+        protected int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    // Growable list of primitive longs
+    protected static class LongList {
+        private long[] values = new long[16];
+        private int size = 0;
+
+        protected void add(final long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        protected int size() {
+            return size;
+        }
+
+        protected long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+}
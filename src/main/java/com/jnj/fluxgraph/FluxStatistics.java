@@ -0,0 +1,267 @@
+package com.jnj.fluxgraph;
+
+import clojure.lang.Keyword;
+import com.tinkerpop.blueprints.Direction;
+import datomic.Connection;
+import datomic.Database;
+import datomic.Datom;
+
+import java.util.*;
+
+/**
+ * Incrementally maintained element counts for the current version of a graph. Vertex and edge totals, edge counts per label and
+ * the degrees of recently requested vertices are kept current from the Datomic transaction reports, which makes them available in constant time.
+ * The counters are initialized lazily (through aggregate queries) the first time they are requested. When the counters can not catch up with
+ * the current database value in time, the aggregate queries are used instead. If a report can not be processed, the counters are marked as
+ * stale and are recalculated (through the aggregate queries) the next time they are requested.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxStatistics implements FluxTransactionListener {
+
+    private static final int MAX_CACHED_DEGREES = 100000;
+    private static final long SYNC_TIMEOUT = 1000;
+
+    private final FluxGraph graph;
+    private boolean initialized = false;
+    private long basisT = -1;
+    private long vertexCount = 0;
+    private long edgeCount = 0;
+    private final Map<String,Long> labelCounts = new HashMap<String,Long>();
+    // The degrees of a vertex per label. Position 0 contains the out degree, position 1 the in degree
+    private final Map<Object,Map<String,long[]>> degrees = new LinkedHashMap<Object,Map<String,long[]>>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object,Map<String,long[]>> eldest) {
+            return size() > MAX_CACHED_DEGREES;
+        }
+    };
+
+    public FluxStatistics(final FluxGraph graph) {
+        this.graph = graph;
+    }
+
+    public long getVertexCount() {
+        Database database = graph.getConnection().db();
+        synchronized (this) {
+            if (sync(database)) {
+                return vertexCount;
+            }
+        }
+        return FluxUtil.countElements(database, Keyword.intern("graph.element.type/vertex"));
+    }
+
+    public long getEdgeCount() {
+        Database database = graph.getConnection().db();
+        synchronized (this) {
+            if (sync(database)) {
+                return edgeCount;
+            }
+        }
+        return FluxUtil.countElements(database, Keyword.intern("graph.element.type/edge"));
+    }
+
+    public long getEdgeCount(final String label) {
+        Database database = graph.getConnection().db();
+        synchronized (this) {
+            if (sync(database)) {
+                Long count = labelCounts.get(label);
+                return count != null ? count : 0;
+            }
+        }
+        return FluxUtil.countEdges(database, label);
+    }
+
+    public long getDegree(final Object vertexId, final Direction direction, final String... labels) {
+        Database database = graph.getConnection().db();
+        long syncedT;
+        synchronized (this) {
+            if (!sync(database)) {
+                return FluxUtil.countEdges(database, vertexId, direction, labels);
+            }
+            Map<String,long[]> vertexDegrees = degrees.get(vertexId);
+            if (vertexDegrees != null) {
+                return getDegree(vertexDegrees, direction, labels);
+            }
+            syncedT = basisT;
+        }
+        // Calculate the degrees on the database value the counters were synced with. The query runs outside of the lock, as the report
+        // dispatcher (shared by all graphs on the connection) needs it to apply the next reports
+        Map<String,long[]> vertexDegrees = FluxUtil.countEdgesPerLabel(graph.getConnection().db().asOf(syncedT), vertexId);
+        long degree = getDegree(vertexDegrees, direction, labels);
+        synchronized (this) {
+            // The degrees can only be maintained from here on if no report was applied in the meantime
+            if (initialized && basisT == syncedT && !degrees.containsKey(vertexId)) {
+                degrees.put(vertexId, vertexDegrees);
+            }
+        }
+        return degree;
+    }
+
+    private static long getDegree(final Map<String,long[]> vertexDegrees, final Direction direction, final String... labels) {
+        long degree = 0;
+        if (labels.length == 0) {
+            for (long[] labelDegrees : vertexDegrees.values()) {
+                degree = degree + getDegree(labelDegrees, direction);
+            }
+        }
+        else {
+            for (String label : labels) {
+                long[] labelDegrees = vertexDegrees.get(label);
+                if (labelDegrees != null) {
+                    degree = degree + getDegree(labelDegrees, direction);
+                }
+            }
+        }
+        return degree;
+    }
+
+    @Override
+    public synchronized void transactionApplied(final Map report) {
+        long reportBasisT = ((Database)report.get(Connection.DB_AFTER)).basisT();
+        // Reports that are already part of the initial counts are skipped
+        if (!initialized || reportBasisT <= basisT) {
+            return;
+        }
+        try {
+            apply(report);
+            basisT = reportBasisT;
+        } catch (RuntimeException e) {
+            // The deltas of the report are lost, the counters need to be recalculated
+            initialized = false;
+            FluxMetrics.count("statistics.stale");
+            throw e;
+        } finally {
+            notifyAll();
+        }
+    }
+
+    // Whether the counters need to be recalculated before they can be used
+    public synchronized boolean isStale() {
+        return !initialized;
+    }
+
+    private void apply(final Map report) {
+        Map<Object,EdgeDelta> edgeDeltas = new HashMap<Object,EdgeDelta>();
+        for (Datom datom : (Collection<Datom>)report.get(Connection.TX_DATA)) {
+            long attribute = ((Number)datom.a()).longValue();
+            int delta = datom.added() ? 1 : -1;
+            if (attribute == id(graph.GRAPH_ELEMENT_TYPE)) {
+                if (datom.v().equals(graph.GRAPH_ELEMENT_TYPE_VERTEX)) {
+                    vertexCount = vertexCount + delta;
+                    if (!datom.added()) {
+                        degrees.remove(datom.e());
+                    }
+                }
+                else if (datom.v().equals(graph.GRAPH_ELEMENT_TYPE_EDGE)) {
+                    edgeCount = edgeCount + delta;
+                }
+            }
+            else if (attribute == id(graph.GRAPH_EDGE_LABEL)) {
+                getEdgeDelta(edgeDeltas, datom).label = (String)datom.v();
+            }
+            else if (attribute == id(graph.GRAPH_EDGE_OUT_VERTEX)) {
+                getEdgeDelta(edgeDeltas, datom).outVertex = datom.v();
+            }
+            else if (attribute == id(graph.GRAPH_EDGE_IN_VERTEX)) {
+                getEdgeDelta(edgeDeltas, datom).inVertex = datom.v();
+            }
+        }
+        // Apply the edge changes on the label counts and the cached degrees
+        for (EdgeDelta edgeDelta : edgeDeltas.values()) {
+            if (edgeDelta.label != null) {
+                Long count = labelCounts.get(edgeDelta.label);
+                long newCount = (count != null ? count : 0) + edgeDelta.delta;
+                if (newCount == 0) {
+                    labelCounts.remove(edgeDelta.label);
+                }
+                else {
+                    labelCounts.put(edgeDelta.label, newCount);
+                }
+                updateDegree(edgeDelta.outVertex, edgeDelta.label, 0, edgeDelta.delta);
+                updateDegree(edgeDelta.inVertex, edgeDelta.label, 1, edgeDelta.delta);
+            }
+        }
+    }
+
+    // Makes sure the counters are initialized and waits (for a limited amount of time) until they reflect the changes of the given database value
+    private boolean sync(final Database database) {
+        long timeout = System.currentTimeMillis() + SYNC_TIMEOUT;
+        while (!initialized || basisT < database.basisT()) {
+            if (!initialized) {
+                initialize();
+                continue;
+            }
+            long remaining = timeout - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Calculates the initial counts. The listener is registered first to make sure that no transaction report is missed
+    private void initialize() {
+        graph.getTransactionQueue().addListener(this);
+        Database database = graph.getConnection().db();
+        vertexCount = FluxUtil.countElements(database, Keyword.intern("graph.element.type/vertex"));
+        edgeCount = FluxUtil.countElements(database, Keyword.intern("graph.element.type/edge"));
+        labelCounts.clear();
+        labelCounts.putAll(FluxUtil.countEdgesPerLabel(database));
+        degrees.clear();
+        basisT = database.basisT();
+        initialized = true;
+    }
+
+    private void updateDegree(final Object vertexId, final String label, final int position, final int delta) {
+        if (vertexId != null) {
+            Map<String,long[]> vertexDegrees = degrees.get(vertexId);
+            if (vertexDegrees != null) {
+                long[] labelDegrees = vertexDegrees.get(label);
+                if (labelDegrees == null) {
+                    labelDegrees = new long[2];
+                    vertexDegrees.put(label, labelDegrees);
+                }
+                labelDegrees[position] = labelDegrees[position] + delta;
+            }
+        }
+    }
+
+    private static long getDegree(final long[] labelDegrees, final Direction direction) {
+        if (direction.equals(Direction.OUT)) {
+            return labelDegrees[0];
+        }
+        if (direction.equals(Direction.IN)) {
+            return labelDegrees[1];
+        }
+        return labelDegrees[0] + labelDegrees[1];
+    }
+
+    private static EdgeDelta getEdgeDelta(final Map<Object,EdgeDelta> edgeDeltas, final Datom datom) {
+        EdgeDelta edgeDelta = edgeDeltas.get(datom.e());
+        if (edgeDelta == null) {
+            edgeDelta = new EdgeDelta();
+            edgeDeltas.put(datom.e(), edgeDelta);
+        }
+        edgeDelta.delta = datom.added() ? 1 : -1;
+        return edgeDelta;
+    }
+
+    private static long id(final Object entity) {
+        return ((Number)entity).longValue();
+    }
+
+    // The changes of a single edge within a transaction
+    private static class EdgeDelta {
+        private String label;
+        private Object outVertex;
+        private Object inVertex;
+        private int delta;
+    }
+
+}
@@ -0,0 +1,246 @@
+package com.jnj.fluxgraph;
+
+import clojure.lang.Keyword;
+import datomic.Connection;
+import datomic.Database;
+import datomic.Datom;
+import datomic.Log;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A subscription on the changes of a graph. Transaction reports are received from the shared transaction report queue of the graph,
+ * translated into graph events and delivered in batches to the listener on a dedicated thread.
+ * Reports are buffered in a bounded queue. If the listener can not keep up and the buffer overflows, the subscription stops buffering and
+ * catches up by reading the Datomic log from the last delivered transaction instead (if the log is not available, the dispatcher of the
+ * report queue is blocked until there is room in the buffer). A subscription can be resumed from a particular transaction (t, transaction id or date).
+ * If the changes of a report can not be translated and the log is not available to retry, the subscription is closed with an error (see getFailure).
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxSubscription implements FluxTransactionListener, Closeable {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+
+    private static final Logger LOGGER = Logger.getLogger(FluxSubscription.class.getName());
+    private static final long POLL_INTERVAL = 100;
+    private static final Keyword LOG_T = Keyword.intern("t");
+    private static final Keyword LOG_DATA = Keyword.intern("data");
+
+    private final FluxGraph graph;
+    private final FluxGraphEventListener listener;
+    private final FluxEventTranslator translator;
+    private final BlockingQueue<Map> pending;
+    private final int maxBatchSize;
+    private final ExecutorService executor;
+    private volatile Object resumeFrom;
+    private volatile boolean running = false;
+    private volatile boolean lagging = false;
+    private volatile long lastT = -1;
+    private volatile long deliveredEvents = 0;
+    private volatile long failedBatches = 0;
+    private volatile RuntimeException failure = null;
+
+    public FluxSubscription(final FluxGraph graph, final FluxGraphEventListener listener, final Object fromTransaction, final int capacity, final int maxBatchSize) {
+        if (capacity < 1 || maxBatchSize < 1) {
+            throw new IllegalArgumentException("The capacity and maximum batch size of a subscription should be at least 1");
+        }
+        if (fromTransaction != null && graph.getConnection().log() == null) {
+            throw new IllegalArgumentException("Resuming a subscription requires the Datomic log, which is not available for this database");
+        }
+        this.graph = graph;
+        this.listener = listener;
+        this.translator = new FluxEventTranslator(graph);
+        this.pending = new ArrayBlockingQueue<Map>(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.resumeFrom = fromTransaction;
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "fluxgraph-subscription");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    // Starts receiving (and delivering) the changes. The listener is registered first to make sure that no transaction is missed
+    public synchronized void start() {
+        if (!running) {
+            running = true;
+            graph.getTransactionQueue().addListener(this);
+            if (resumeFrom != null) {
+                lagging = true;
+            }
+            else {
+                lastT = graph.getConnection().db().basisT();
+            }
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    deliver();
+                }
+            });
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (running) {
+            running = false;
+            graph.getTransactionQueue().removeListener(this);
+            graph.removeSubscription(this);
+            executor.shutdownNow();
+            pending.clear();
+        }
+    }
+
+    @Override
+    public void transactionApplied(final Map report) {
+        if (!running || lagging) {
+            return;
+        }
+        if (!pending.offer(report)) {
+            if (graph.getConnection().log() != null) {
+                // Switch to catching up from the log
+                lagging = true;
+            }
+            else {
+                try {
+                    pending.put(report);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Whether the subscription is catching up from the log
+    public boolean isLagging() {
+        return lagging;
+    }
+
+    // The t of the last transaction of which the changes were delivered (resume from lastT + 1 to continue after a restart)
+    public long getLastT() {
+        return lastT;
+    }
+
+    public int getPendingReports() {
+        return pending.size();
+    }
+
+    public long getDeliveredEvents() {
+        return deliveredEvents;
+    }
+
+    // The error that closed the subscription (null if the subscription was not closed because of an error). The changes after getLastT
+    // were not delivered
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    // The number of batches for which the listener failed
+    public long getFailedBatches() {
+        return failedBatches;
+    }
+
+    private void deliver() {
+        while (running) {
+            try {
+                if (lagging) {
+                    catchUp();
+                    continue;
+                }
+                Map report = pending.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                List<FluxGraphEvent> events = new ArrayList<FluxGraphEvent>();
+                long t = lastT;
+                while (report != null) {
+                    Database database = (Database)report.get(Connection.DB_AFTER);
+                    long reportT = database.basisT();
+                    // Reports that were already delivered (while catching up) are skipped
+                    if (reportT > t) {
+                        events.addAll(translator.translate(database, (Collection<Datom>)report.get(Connection.TX_DATA), reportT));
+                        t = reportT;
+                    }
+                    report = events.size() < maxBatchSize && !lagging ? pending.poll() : null;
+                }
+                publish(events, t);
+            } catch (InterruptedException e) {
+                // Interrupted while closing the subscription
+            } catch (RuntimeException e) {
+                FluxMetrics.count("subscription.errors");
+                if (graph.getConnection().log() != null) {
+                    // Translation failed, catch up from the log to retry
+                    lagging = true;
+                }
+                else {
+                    // The reports can not be retrieved again, stop rather than silently skipping their changes
+                    fail(e);
+                }
+            }
+        }
+    }
+
+    // Delivers the changes from the log, starting from the last delivered transaction (or the requested start) up to the current database value
+    private void catchUp() {
+        pending.clear();
+        lagging = false;
+        Database database = graph.getConnection().db();
+        long targetT = database.basisT();
+        Object start = resumeFrom != null ? resumeFrom : Long.valueOf(lastT + 1);
+        List<FluxGraphEvent> events = new ArrayList<FluxGraphEvent>();
+        long t = lastT;
+        for (Map transaction : graph.getConnection().log().txRange(start, Long.valueOf(targetT + 1))) {
+            if (!running) {
+                return;
+            }
+            long transactionT = ((Number)transaction.get(LOG_T)).longValue();
+            if (transactionT > t) {
+                events.addAll(translator.translate(database, (Iterable<Datom>)transaction.get(LOG_DATA), transactionT));
+                t = transactionT;
+                if (events.size() >= maxBatchSize) {
+                    publish(events, t);
+                    events = new ArrayList<FluxGraphEvent>();
+                }
+            }
+        }
+        publish(events, targetT);
+        resumeFrom = null;
+    }
+
+    private void fail(final RuntimeException e) {
+        failure = e;
+        LOGGER.log(Level.SEVERE, "Subscription closed, the changes after t=" + lastT + " could not be delivered", e);
+        close();
+    }
+
+    private void publish(final List<FluxGraphEvent> events, final long t) {
+        if (!events.isEmpty()) {
+            try {
+                listener.onEvents(events);
+                deliveredEvents = deliveredEvents + events.size();
+                FluxMetrics.count("subscription.events", events.size());
+            } catch (RuntimeException e) {
+                // A failing listener should not stop the subscription
+                failedBatches++;
+                FluxMetrics.count("subscription.failedBatches");
+            }
+        }
+        if (t > lastT) {
+            lastT = t;
+        }
+    }
+
+}
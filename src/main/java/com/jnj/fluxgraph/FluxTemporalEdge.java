@@ -0,0 +1,83 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.TimeAwareEdge;
+import com.tinkerpop.blueprints.TimeAwareVertex;
+import datomic.Database;
+import org.joda.time.Interval;
+
+/**
+ * An edge together with the interval in which it existed (its validity interval). The end of the validity interval of an edge that
+ * still exists is unbounded (Long.MAX_VALUE), similar to the time interval of the current version of an element.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxTemporalEdge {
+
+    private final FluxGraph graph;
+    private final Object edgeId;
+    private final String label;
+    private final Object outVertexId;
+    private final Object inVertexId;
+    private final Interval validity;
+    // The t of the transaction that removed the edge (-1 if the edge still exists)
+    private final long removalT;
+
+    public FluxTemporalEdge(final FluxGraph graph, final Object edgeId, final String label, final Object outVertexId, final Object inVertexId, final Interval validity, final long removalT) {
+        this.graph = graph;
+        this.edgeId = edgeId;
+        this.label = label;
+        this.outVertexId = outVertexId;
+        this.inVertexId = inVertexId;
+        this.validity = validity;
+        this.removalT = removalT;
+    }
+
+    public Object getId() {
+        return edgeId;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public Object getVertexId(final Direction direction) {
+        if (direction.equals(Direction.OUT)) {
+            return outVertexId;
+        }
+        if (direction.equals(Direction.IN)) {
+            return inVertexId;
+        }
+        throw new IllegalArgumentException("Only the in or out vertex of an edge can be retrieved");
+    }
+
+    // The interval in which the edge existed
+    public Interval getValidity() {
+        return validity;
+    }
+
+    // Whether the edge still exists
+    public boolean isCurrent() {
+        return removalT < 0;
+    }
+
+    // Returns the edge. For a removed edge, this is the last version of the edge before it was removed
+    public TimeAwareEdge getEdge() {
+        return new FluxEdge(graph, getDatabase(), edgeId);
+    }
+
+    // Returns a vertex of the edge, scoped to the same point in time as the edge itself
+    public TimeAwareVertex getVertex(final Direction direction) {
+        return new FluxVertex(graph, getDatabase(), getVertexId(direction));
+    }
+
+    private Database getDatabase() {
+        return isCurrent() ? null : graph.getRawGraph(Long.valueOf(removalT - 1));
+    }
+
+    @Override
+    public String toString() {
+        return "e[" + edgeId + "][" + outVertexId + "-" + label + "->" + inVertexId + "]" + validity;
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.jnj.fluxgraph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A time-respecting path: a sequence of edges where each hop is taken at (or after) the time of the previous hop, while the edge existed.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxTemporalPath {
+
+    private final List<Object> vertexIds;
+    private final List<FluxTemporalEdge> edges;
+    private final List<Long> times;
+    private final long departure;
+    private final long arrival;
+
+    public FluxTemporalPath(final List<Object> vertexIds, final List<FluxTemporalEdge> edges, final List<Long> times, final long departure, final long arrival) {
+        this.vertexIds = Collections.unmodifiableList(new ArrayList<Object>(vertexIds));
+        this.edges = Collections.unmodifiableList(new ArrayList<FluxTemporalEdge>(edges));
+        this.times = Collections.unmodifiableList(new ArrayList<Long>(times));
+        this.departure = departure;
+        this.arrival = arrival;
+    }
+
+    // The ids of the vertices along the path (starting with the source vertex)
+    public List<Object> getVertexIds() {
+        return vertexIds;
+    }
+
+    public List<FluxTemporalEdge> getEdges() {
+        return edges;
+    }
+
+    // The time (in milliseconds) at which each of the edges is traversed
+    public List<Long> getTimes() {
+        return times;
+    }
+
+    // The time at which the path leaves the source vertex
+    public long getDeparture() {
+        return departure;
+    }
+
+    // The time at which the path reaches the target vertex
+    public long getArrival() {
+        return arrival;
+    }
+
+    public int getLength() {
+        return edges.size();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder path = new StringBuilder("fluxpath[" + vertexIds.get(0));
+        for (int i = 0; i < edges.size(); i++) {
+            FluxTemporalEdge edge = edges.get(i);
+            path.append(" -").append(edge.getLabel()).append("@").append(times.get(i)).append("- ").append(vertexIds.get(i + 1));
+        }
+        return path.append("]").toString();
+    }
+
+}
@@ -0,0 +1,252 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Vertex;
+import org.joda.time.Interval;
+
+import java.util.*;
+
+/**
+ * Time-respecting path queries on a FluxGraph. Edges can only be traversed while they existed (their validity interval is taken from the
+ * history of the graph) and each hop needs to take place at or after the time of the previous hop. Traversing an edge does not take time.
+ * Paths are found through a label-setting search using a priority queue ordered on time: a vertex is only expanded again if it is reached
+ * through fewer hops than before, hence the search is exact for the given maximum depth.
+ *
+ * <code>
+ *     FluxTemporalPath path = new FluxTemporalPaths(graph).labels("contact").maxDepth(6).earliestArrivalPath(source, target, start);
+ * </code>
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxTemporalPaths {
+
+    private final FluxGraph graph;
+    private Direction direction = Direction.OUT;
+    private String[] labels = new String[0];
+    private int maxDepth = Integer.MAX_VALUE;
+    private long windowStart = 0;
+    private long windowEnd = Long.MAX_VALUE;
+    // The temporal edges of the vertices that were expanded (per search direction)
+    private final Map<Object,List<FluxTemporalEdge>> forwardEdges = new HashMap<Object,List<FluxTemporalEdge>>();
+    private final Map<Object,List<FluxTemporalEdge>> backwardEdges = new HashMap<Object,List<FluxTemporalEdge>>();
+    private long expansions = 0;
+
+    public FluxTemporalPaths(final FluxGraph graph) {
+        this.graph = graph;
+    }
+
+    // The direction in which edges are followed (OUT by default)
+    public FluxTemporalPaths direction(final Direction direction) {
+        this.direction = direction;
+        clearEdges();
+        return this;
+    }
+
+    // Only follow edges with one of the given labels
+    public FluxTemporalPaths labels(final String... labels) {
+        this.labels = labels;
+        clearEdges();
+        return this;
+    }
+
+    // The maximum number of hops of a path
+    public FluxTemporalPaths maxDepth(final int maxDepth) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("The maximum depth should be positive");
+        }
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    // Only consider hops that take place within the given time window
+    public FluxTemporalPaths window(final Date from, final Date to) {
+        if (from.after(to)) {
+            throw new IllegalArgumentException("The start of the window should be before its end");
+        }
+        this.windowStart = from.getTime();
+        this.windowEnd = to.getTime();
+        clearEdges();
+        return this;
+    }
+
+    // The number of vertices that were expanded by the searches so far
+    public long getExpansions() {
+        return expansions;
+    }
+
+    // Returns the earliest arrival time of all vertices that can be reached from the source when leaving at the given time
+    public Map<Object,Long> earliestArrivals(final Vertex source, final Date start) {
+        Map<Object,Long> arrivals = new HashMap<Object,Long>();
+        for (Map.Entry<Object,Label> settled : search(source.getId(), null, start.getTime(), true).entrySet()) {
+            arrivals.put(settled.getKey(), settled.getValue().time);
+        }
+        return arrivals;
+    }
+
+    // Returns the path that reaches the target as early as possible when leaving the source at the given time (null if it can not be reached)
+    public FluxTemporalPath earliestArrivalPath(final Vertex source, final Vertex target, final Date start) {
+        Label label = search(source.getId(), target.getId(), start.getTime(), true).get(target.getId());
+        return label != null ? forwardPath(label, start.getTime()) : null;
+    }
+
+    // Returns the latest time at which each vertex can be left to reach the target before the given deadline
+    public Map<Object,Long> latestDepartures(final Vertex target, final Date deadline) {
+        Map<Object,Long> departures = new HashMap<Object,Long>();
+        for (Map.Entry<Object,Label> settled : search(target.getId(), null, deadline.getTime(), false).entrySet()) {
+            departures.put(settled.getKey(), settled.getValue().time);
+        }
+        return departures;
+    }
+
+    // Returns the path that leaves the source as late as possible while reaching the target before the given deadline (null if it can not be reached)
+    public FluxTemporalPath latestDeparturePath(final Vertex source, final Vertex target, final Date deadline) {
+        Label label = search(target.getId(), source.getId(), deadline.getTime(), false).get(source.getId());
+        return label != null ? backwardPath(label, deadline.getTime()) : null;
+    }
+
+    // Searches forward in time (from the origin at the given time) or backward in time (towards the origin before the given time).
+    // Returns the first label that settled each vertex. The search stops as soon as the destination (if any) is settled
+    private Map<Object,Label> search(final Object origin, final Object destination, final long time, final boolean forward) {
+        Map<Object,Label> settled = new HashMap<Object,Label>();
+        Map<Object,Integer> settledDepths = new HashMap<Object,Integer>();
+        if (time < windowStart || time > windowEnd) {
+            return settled;
+        }
+        PriorityQueue<Label> queue = new PriorityQueue<Label>(64, forward ? EARLIEST_FIRST : LATEST_FIRST);
+        queue.add(new Label(origin, time, 0, null, null));
+        while (!queue.isEmpty()) {
+            Label label = queue.poll();
+            // A vertex that was settled at a better (or equal) time with fewer (or equal) hops can be pruned
+            Integer settledDepth = settledDepths.get(label.vertex);
+            if (settledDepth != null && settledDepth <= label.depth) {
+                continue;
+            }
+            settledDepths.put(label.vertex, label.depth);
+            if (!settled.containsKey(label.vertex)) {
+                settled.put(label.vertex, label);
+                if (label.vertex.equals(destination)) {
+                    break;
+                }
+            }
+            if (label.depth >= maxDepth) {
+                continue;
+            }
+            expansions++;
+            for (FluxTemporalEdge edge : getEdges(label.vertex, forward)) {
+                long hop;
+                if (forward) {
+                    // Leave as soon as the edge exists
+                    hop = Math.max(label.time, edge.getValidity().getStartMillis());
+                    if (hop >= edge.getValidity().getEndMillis() || hop > windowEnd) {
+                        continue;
+                    }
+                }
+                else {
+                    // Arrive as late as the edge exists
+                    hop = Math.min(label.time, edge.getValidity().getEndMillis() - 1);
+                    if (hop < edge.getValidity().getStartMillis() || hop < windowStart) {
+                        continue;
+                    }
+                }
+                Object other = getOtherVertex(edge, label.vertex);
+                Integer otherDepth = settledDepths.get(other);
+                if (otherDepth == null || otherDepth > label.depth + 1) {
+                    queue.add(new Label(other, hop, label.depth + 1, edge, label));
+                }
+            }
+        }
+        return settled;
+    }
+
+    // Returns the temporal edges of a vertex within the window. A backward search follows the edges in the opposite direction
+    private List<FluxTemporalEdge> getEdges(final Object vertexId, final boolean forward) {
+        Map<Object,List<FluxTemporalEdge>> cache = forward ? forwardEdges : backwardEdges;
+        List<FluxTemporalEdge> edges = cache.get(vertexId);
+        if (edges == null) {
+            edges = new ArrayList<FluxTemporalEdge>();
+            Direction edgeDirection = forward ? direction : direction.opposite();
+            FluxVertex vertex = new FluxVertex(graph, null, vertexId);
+            for (FluxTemporalEdge edge : vertex.getEdges(edgeDirection, new Interval(windowStart, windowEnd == Long.MAX_VALUE ? windowEnd : windowEnd + 1), labels)) {
+                edges.add(edge);
+            }
+            cache.put(vertexId, edges);
+        }
+        return edges;
+    }
+
+    private static Object getOtherVertex(final FluxTemporalEdge edge, final Object vertexId) {
+        Object outVertex = edge.getVertexId(Direction.OUT);
+        return outVertex.equals(vertexId) ? edge.getVertexId(Direction.IN) : outVertex;
+    }
+
+    private void clearEdges() {
+        forwardEdges.clear();
+        backwardEdges.clear();
+    }
+
+    // The labels of a forward search point back towards the source
+    private static FluxTemporalPath forwardPath(final Label target, final long start) {
+        LinkedList<Object> vertexIds = new LinkedList<Object>();
+        LinkedList<FluxTemporalEdge> edges = new LinkedList<FluxTemporalEdge>();
+        LinkedList<Long> times = new LinkedList<Long>();
+        Label label = target;
+        while (label.previous != null) {
+            vertexIds.addFirst(label.vertex);
+            edges.addFirst(label.edge);
+            times.addFirst(label.time);
+            label = label.previous;
+        }
+        vertexIds.addFirst(label.vertex);
+        return new FluxTemporalPath(vertexIds, edges, times, times.isEmpty() ? start : times.getFirst(), target.time);
+    }
+
+    // The labels of a backward search point forward towards the target
+    private static FluxTemporalPath backwardPath(final Label source, final long deadline) {
+        List<Object> vertexIds = new ArrayList<Object>();
+        List<FluxTemporalEdge> edges = new ArrayList<FluxTemporalEdge>();
+        List<Long> times = new ArrayList<Long>();
+        Label label = source;
+        while (label.previous != null) {
+            vertexIds.add(label.vertex);
+            edges.add(label.edge);
+            times.add(label.time);
+            label = label.previous;
+        }
+        vertexIds.add(label.vertex);
+        return new FluxTemporalPath(vertexIds, edges, times, source.time, times.isEmpty() ? deadline : times.get(times.size() - 1));
+    }
+
+    private static final Comparator<Label> EARLIEST_FIRST = new Comparator<Label>() {
+        @Override
+        public int compare(Label label1, Label label2) {
+            int result = label1.time < label2.time ? -1 : (label1.time > label2.time ? 1 : 0);
+            return result != 0 ? result : label1.depth - label2.depth;
+        }
+    };
+
+    private static final Comparator<Label> LATEST_FIRST = new Comparator<Label>() {
+        @Override
+        public int compare(Label label1, Label label2) {
+            int result = label1.time > label2.time ? -1 : (label1.time < label2.time ? 1 : 0);
+            return result != 0 ? result : label1.depth - label2.depth;
+        }
+    };
+
+    // A vertex reached at a particular time through a particular number of hops
+    private static class Label {
+        private final Object vertex;
+        private final long time;
+        private final int depth;
+        private final FluxTemporalEdge edge;
+        private final Label previous;
+
+        private Label(final Object vertex, final long time, final int depth, final FluxTemporalEdge edge, final Label previous) {
+            this.vertex = vertex;
+            this.time = time;
+            this.depth = depth;
+            this.edge = edge;
+            this.previous = previous;
+        }
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.jnj.fluxgraph;
+
+/**
+ * Describes a full-text query on a property that was declared as a full-text key. Queries are served by the Datomic fulltext function and
+ * return the matching elements in descending order of their score.
+ * The fulltext function returns all hits at once and the hits need to be ranked on their score, hence the hits (ids, values and scores) are
+ * retrieved upfront. Only the elements themselves are created lazily, while iterating.
+ *
+ * <code>
+ *     graph.getVertices("description", new FluxTextQuery("graph database").limit(20));
+ *     graph.searchVertices("description", new FluxTextQuery("graph database").limit(20));
+ * </code>
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxTextQuery {
+
+    private final String text;
+    private int limit = -1;
+
+    public FluxTextQuery(final String text) {
+        if (text == null) {
+            throw new IllegalArgumentException("The text of a full-text query can not be null");
+        }
+        this.text = text;
+    }
+
+    // Restricts the number of returned elements
+    public FluxTextQuery limit(final int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("The limit can not be negative");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean hasLimit() {
+        return limit >= 0;
+    }
+
+}
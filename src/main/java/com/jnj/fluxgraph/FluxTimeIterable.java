@@ -2,7 +2,9 @@ package com.jnj.fluxgraph;
 
 import com.tinkerpop.blueprints.*;
 
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * @author Davy Suvee (http://datablend.be)
@@ -30,6 +32,10 @@ public class FluxTimeIterable implements CloseableIterable {
 
     @Override
     public Iterator iterator() {
+        // Declarative filters are evaluated on the version history, only the matching versions are materialized
+        if (timeAwareFilter != null && timeAwareElement instanceof FluxElement && FluxVersionHistory.isDeclarative(timeAwareFilter)) {
+            return new HistoryTimeIterator();
+        }
         if (forward) {
             return new ForwardTimeIterator();
         }
@@ -70,6 +76,59 @@ public class FluxTimeIterable implements CloseableIterable {
         }
     }
 
+    // Iterator for time aware iteration that evaluates declarative filters on the version history of the element
+    private class HistoryTimeIterator implements Iterator {
+
+        private final FluxVersionHistory history;
+        private final long[] transactions;
+        private int position;
+        private FluxElement next = null;
+
+        private HistoryTimeIterator() {
+            FluxElement element = (FluxElement)timeAwareElement;
+            history = new FluxVersionHistory(element.fluxGraph, element);
+            transactions = history.getTransactions();
+            long current = ((Number)element.getTimeId()).longValue();
+            // Position on the first version before (backward) or after (forward) the current version
+            int index = Arrays.binarySearch(transactions, current);
+            if (index < 0) {
+                index = -index - 1;
+                position = forward ? index : index - 1;
+            }
+            else {
+                position = forward ? index + 1 : index - 1;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && position >= 0 && position < transactions.length) {
+                long transaction = transactions[position];
+                position = forward ? position + 1 : position - 1;
+                if (history.matches(timeAwareFilter, transaction)) {
+                    next = history.getVersion(transaction);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public TimeAwareElement next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            FluxElement found = next;
+            next = null;
+            return found;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
     // Iterator for time aware iteration
     private abstract class TimeIterator implements Iterator {
 
@@ -0,0 +1,110 @@
+package com.jnj.fluxgraph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The Datomic calls issued on behalf of a single request (identified by a request id), recorded by the FluxTracer.
+ * The number of recorded entries is bounded; calls beyond that bound are only counted.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxTrace {
+
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    private final String requestId;
+    private final int maxEntries;
+    private final long startTime;
+    private final List<FluxTraceEntry> entries = new ArrayList<FluxTraceEntry>();
+    // Scans that were started but are not exhausted (yet), these are recorded as partial scans when the trace is stopped
+    private final List<FluxTracer.Scan> openScans = new ArrayList<FluxTracer.Scan>();
+    private long calls = 0;
+    private long totalDuration = 0;
+
+    public FluxTrace(final String requestId, final int maxEntries) {
+        this.requestId = requestId;
+        this.maxEntries = maxEntries;
+        this.startTime = System.currentTimeMillis();
+    }
+
+    protected synchronized void add(final FluxTraceEntry entry) {
+        calls++;
+        totalDuration = totalDuration + entry.getDuration();
+        if (entries.size() < maxEntries) {
+            entries.add(entry);
+        }
+    }
+
+    protected void open(final FluxTracer.Scan scan) {
+        FluxTracer.Scan oldest = null;
+        synchronized (this) {
+            // Bound the number of open scans, the oldest ones are recorded as partial scans
+            if (openScans.size() >= maxEntries) {
+                oldest = openScans.remove(0);
+            }
+            openScans.add(scan);
+        }
+        if (oldest != null) {
+            oldest.finish(true);
+        }
+    }
+
+    protected synchronized void close(final FluxTracer.Scan scan) {
+        openScans.remove(scan);
+    }
+
+    // Records the scans that were not exhausted
+    protected void closeAll() {
+        List<FluxTracer.Scan> scans;
+        synchronized (this) {
+            scans = new ArrayList<FluxTracer.Scan>(openScans);
+            openScans.clear();
+        }
+        for (FluxTracer.Scan scan : scans) {
+            scan.finish(true);
+        }
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public synchronized List<FluxTraceEntry> getEntries() {
+        return Collections.unmodifiableList(new ArrayList<FluxTraceEntry>(entries));
+    }
+
+    // The total number of traced calls (including the ones that were not recorded)
+    public synchronized long getCalls() {
+        return calls;
+    }
+
+    // The total duration (in nanoseconds) of all traced calls
+    public synchronized long getTotalDuration() {
+        return totalDuration;
+    }
+
+    // Returns the recorded entries, slowest first
+    public List<FluxTraceEntry> getSlowestEntries(final int number) {
+        List<FluxTraceEntry> sorted = new ArrayList<FluxTraceEntry>(getEntries());
+        Collections.sort(sorted, new Comparator<FluxTraceEntry>() {
+            @Override
+            public int compare(FluxTraceEntry entry1, FluxTraceEntry entry2) {
+                return entry1.getDuration() < entry2.getDuration() ? 1 : (entry1.getDuration() == entry2.getDuration() ? 0 : -1);
+            }
+        });
+        return sorted.subList(0, Math.min(number, sorted.size()));
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "fluxtrace[" + requestId + ", calls:" + calls + ", duration:" + (totalDuration / 1000000.0) + " ms]";
+    }
+
+}
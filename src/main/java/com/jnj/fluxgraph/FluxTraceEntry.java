@@ -0,0 +1,60 @@
+package com.jnj.fluxgraph;
+
+/**
+ * A single traced Datomic call: a Datalog query or a datoms scan, with its call site, form, arguments, result cardinality and duration.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxTraceEntry {
+
+    private final String site;
+    private final String form;
+    private final String arguments;
+    private final long cardinality;
+    private final long duration;
+    private final long timestamp;
+
+    public FluxTraceEntry(final String site, final String form, final String arguments, final long cardinality, final long duration) {
+        this.site = site;
+        this.form = form;
+        this.arguments = arguments;
+        this.cardinality = cardinality;
+        this.duration = duration;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    // The call site (class and method) that issued the call
+    public String getSite() {
+        return site;
+    }
+
+    // The Datalog query or the index that was scanned
+    public String getForm() {
+        return form;
+    }
+
+    public String getArguments() {
+        return arguments;
+    }
+
+    // The number of results (or scanned datoms), -1 if the call failed
+    public long getCardinality() {
+        return cardinality;
+    }
+
+    // The duration of the call in nanoseconds. For datoms scans this is only the time spent within the scan itself, not the time spent by
+    // the consumer of the datoms
+    public long getDuration() {
+        return duration;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return site + " [" + (duration / 1000000.0) + " ms, " + cardinality + " results] " + form + " " + arguments;
+    }
+
+}
@@ -0,0 +1,230 @@
+package com.jnj.fluxgraph;
+
+import datomic.Database;
+import datomic.Datom;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Opt-in tracing of the Datomic calls (Datalog queries and datoms scans) issued by FluxGraph. Two mechanisms are available:
+ * a slow-query log (calls that exceed a configurable threshold are logged through java.util.logging) and request traces
+ * (all calls issued by the current thread between startTrace and stopTrace are recorded, optionally for a sample of the requests only).
+ *
+ * <code>
+ *     FluxTracer.setSlowQueryThreshold(100);
+ *     FluxTracer.startTrace(requestId, 0.01);
+ *     ...
+ *     FluxTrace trace = FluxTracer.stopTrace();
+ * </code>
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public final class FluxTracer {
+
+    public static final Logger SLOW_QUERY_LOG = Logger.getLogger("com.jnj.fluxgraph.slowquery");
+    // Maximum length of the logged arguments of a call
+    private static final int MAX_ARGUMENTS_LENGTH = 500;
+
+    private static volatile long slowQueryThreshold = -1;
+    private static volatile int activeTraces = 0;
+    private static final ThreadLocal<FluxTrace> trace = new ThreadLocal<FluxTrace>();
+    private static final Random random = new Random();
+
+    private FluxTracer() {
+    }
+
+    // Calls that take longer than the threshold (expressed in milliseconds) are logged. Use a negative threshold to disable the log
+    public static void setSlowQueryThreshold(final long milliseconds) {
+        slowQueryThreshold = milliseconds;
+    }
+
+    public static long getSlowQueryThreshold() {
+        return slowQueryThreshold;
+    }
+
+    // Starts tracing the calls of the current thread for the request with the given id
+    public static FluxTrace startTrace(final String requestId) {
+        return startTrace(requestId, 1.0);
+    }
+
+    // Starts tracing the calls of the current thread for the request with the given id, for the given fraction of the requests only.
+    // Returns null if the request was not sampled
+    public static FluxTrace startTrace(final String requestId, final double sampleRate) {
+        stopTrace();
+        if (sampleRate < 1.0 && random.nextDouble() >= sampleRate) {
+            return null;
+        }
+        FluxTrace newTrace = new FluxTrace(requestId, FluxTrace.DEFAULT_MAX_ENTRIES);
+        trace.set(newTrace);
+        synchronized (FluxTracer.class) {
+            activeTraces++;
+        }
+        return newTrace;
+    }
+
+    // Stops tracing the current thread and returns the trace (or null if the thread was not traced)
+    public static FluxTrace stopTrace() {
+        FluxTrace currentTrace = trace.get();
+        if (currentTrace != null) {
+            currentTrace.closeAll();
+            trace.remove();
+            synchronized (FluxTracer.class) {
+                activeTraces--;
+            }
+        }
+        return currentTrace;
+    }
+
+    public static FluxTrace getCurrentTrace() {
+        return activeTraces > 0 ? trace.get() : null;
+    }
+
+    // Checks whether calls need to be traced (cheap check, which avoids the thread local lookup if no thread is traced)
+    public static boolean isTracing() {
+        return slowQueryThreshold >= 0 || (activeTraces > 0 && trace.get() != null);
+    }
+
+    // Records a call
+    public static void record(final String site, final Object form, final Object[] arguments, final long cardinality, final long duration) {
+        record(getCurrentTrace(), site, form, arguments, cardinality, duration);
+    }
+
+    private static void record(final FluxTrace currentTrace, final String site, final Object form, final Object[] arguments, final long cardinality, final long duration) {
+        long threshold = slowQueryThreshold;
+        boolean slow = threshold >= 0 && duration >= threshold * 1000000L;
+        if (currentTrace == null && !slow) {
+            return;
+        }
+        FluxTraceEntry entry = new FluxTraceEntry(site, String.valueOf(form), toString(arguments), cardinality, duration);
+        if (currentTrace != null) {
+            currentTrace.add(entry);
+        }
+        if (slow) {
+            FluxMetrics.count("slowQueries");
+            if (SLOW_QUERY_LOG.isLoggable(Level.WARNING)) {
+                SLOW_QUERY_LOG.warning("Slow query" + (currentTrace != null ? " (request " + currentTrace.getRequestId() + ")" : "") + ": " + entry);
+            }
+        }
+    }
+
+    // Wraps a datoms scan. Only the time spent within the scan itself (retrieving the iterator and the datoms) is measured, not the time
+    // spent by the consumer of the datoms. A scan is recorded once it is exhausted. Scans that are only partially consumed are recorded
+    // when the trace is stopped, or as soon as they exceed the slow-query threshold (if the thread is not traced)
+    public static Iterable<Datom> trace(final String site, final Iterable<Datom> datoms, final Object index, final Object[] components) {
+        return new Iterable<Datom>() {
+            @Override
+            public Iterator<Datom> iterator() {
+                final Scan scan = new Scan(getCurrentTrace(), site, index, components);
+                long start = System.nanoTime();
+                final Iterator<Datom> datomsIt = datoms.iterator();
+                scan.time(start, false);
+                return new Iterator<Datom>() {
+                    @Override
+                    public boolean hasNext() {
+                        long start = System.nanoTime();
+                        boolean hasNext = datomsIt.hasNext();
+                        scan.time(start, !hasNext);
+                        return hasNext;
+                    }
+
+                    @Override
+                    public Datom next() {
+                        long start = System.nanoTime();
+                        Datom datom = datomsIt.next();
+                        scan.count++;
+                        scan.time(start, false);
+                        return datom;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    // The measurements of a single (traced) datoms scan
+    protected static class Scan {
+        private final FluxTrace trace;
+        private final String site;
+        private final Object index;
+        private final Object[] components;
+        private long count = 0;
+        private long duration = 0;
+        private boolean finished = false;
+
+        private Scan(final FluxTrace trace, final String site, final Object index, final Object[] components) {
+            this.trace = trace;
+            this.site = site;
+            this.index = index;
+            this.components = components;
+            if (trace != null) {
+                trace.open(this);
+            }
+        }
+
+        // Adds the time spent since the given start
+        private void time(final long start, final boolean exhausted) {
+            duration = duration + System.nanoTime() - start;
+            if (exhausted) {
+                finish(false);
+            }
+            else if (trace == null) {
+                long threshold = slowQueryThreshold;
+                if (threshold >= 0 && duration >= threshold * 1000000L) {
+                    finish(true);
+                }
+            }
+        }
+
+        protected synchronized void finish(final boolean partial) {
+            if (!finished) {
+                finished = true;
+                if (trace != null && !partial) {
+                    trace.close(this);
+                }
+                record(trace, site, "datoms " + index + (partial ? " (partial)" : ""), components, count, duration);
+            }
+        }
+    }
+
+    private static String toString(final Object[] arguments) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < arguments.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            Object argument = arguments[i];
+            if (argument instanceof Database) {
+                Database database = (Database)argument;
+                builder.append("$[t=").append(database.basisT());
+                if (database.asOfT() != null) {
+                    builder.append(", asOf=").append(database.asOfT());
+                }
+                if (database.isHistory()) {
+                    builder.append(", history");
+                }
+                builder.append("]");
+            }
+            else if (argument instanceof Object[]) {
+                builder.append(Arrays.toString((Object[])argument));
+            }
+            else {
+                builder.append(argument);
+            }
+            if (builder.length() > MAX_ARGUMENTS_LENGTH) {
+                builder.setLength(MAX_ARGUMENTS_LENGTH);
+                builder.append("...");
+                return builder.toString();
+            }
+        }
+        return builder.append("]").toString();
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.jnj.fluxgraph;
+
+import java.util.Map;
+
+/**
+ * Callback for components that need to follow the transactions applied to the underlying Datomic database
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public interface FluxTransactionListener {
+
+    /**
+     * Called (in transaction order) for each transaction report taken from the Datomic transaction report queue
+     *
+     * @param report the Datomic transaction report (containing the db-before, db-after and tx-data entries)
+     */
+    public void transactionApplied(Map report);
+
+}
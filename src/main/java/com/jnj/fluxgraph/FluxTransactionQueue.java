@@ -0,0 +1,90 @@
+package com.jnj.fluxgraph;
+
+import datomic.Connection;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Consumes the Datomic transaction report queue of a connection and dispatches each report to the registered listeners.
+ * Datomic only provides a single report queue per connection, hence all listeners of all graphs on the same connection share this dispatcher
+ * (see FluxGraphRegistry). The dispatcher thread is only started once the first listener registers itself and is stopped when the connection is released.
+ * Failing listeners are logged. Listeners are responsible for recovering from the reports they failed to process.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxTransactionQueue {
+
+    private static final Logger LOGGER = Logger.getLogger(FluxTransactionQueue.class.getName());
+
+    private final Connection connection;
+    private final CopyOnWriteArrayList<FluxTransactionListener> listeners = new CopyOnWriteArrayList<FluxTransactionListener>();
+    private Thread dispatcher = null;
+    private volatile boolean running = false;
+    private boolean stopped = false;
+
+    public FluxTransactionQueue(final Connection connection) {
+        this.connection = connection;
+    }
+
+    public void addListener(final FluxTransactionListener listener) {
+        listeners.addIfAbsent(listener);
+        start();
+    }
+
+    public void removeListener(final FluxTransactionListener listener) {
+        listeners.remove(listener);
+    }
+
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    public synchronized void start() {
+        if (!running && !stopped) {
+            final BlockingQueue<Map> queue = connection.txReportQueue();
+            running = true;
+            dispatcher = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (running) {
+                        try {
+                            dispatch(queue.take());
+                        } catch (InterruptedException e) {
+                            // Interrupted while stopping the dispatcher
+                        }
+                    }
+                }
+            }, "fluxgraph-tx-report-dispatcher");
+            dispatcher.setDaemon(true);
+            dispatcher.start();
+        }
+    }
+
+    // Stops the dispatcher and removes the report queue of the connection. A stopped dispatcher can not be restarted
+    public synchronized void stop() {
+        stopped = true;
+        if (running) {
+            running = false;
+            dispatcher.interrupt();
+            dispatcher = null;
+            connection.removeTxReportQueue();
+        }
+    }
+
+    private void dispatch(final Map report) {
+        for (FluxTransactionListener listener : listeners) {
+            try {
+                listener.transactionApplied(report);
+            } catch (RuntimeException e) {
+                // A failing listener should not prevent the other listeners from receiving the report
+                FluxMetrics.count("txReports.failedListeners");
+                LOGGER.log(Level.WARNING, "Transaction report listener " + listener + " failed", e);
+            }
+        }
+    }
+
+}
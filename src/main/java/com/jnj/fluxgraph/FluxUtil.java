@@ -1,8 +1,13 @@
 package com.jnj.fluxgraph;
 
 import clojure.lang.Keyword;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Element;
 import com.tinkerpop.blueprints.TimeAwareElement;
+import datomic.Connection;
 import datomic.Database;
+import datomic.Datom;
+import datomic.Entity;
 import datomic.Peer;
 import datomic.Util;
 
@@ -15,6 +20,9 @@ import java.util.concurrent.ExecutionException;
 public class FluxUtil {
 
     private static final Map<String,String> types;
+    // One java class for each of the supported Datomic value types
+    private static final Class[] valueClasses = new Class[] {String.class, Boolean.class, Long.class, java.math.BigInteger.class, Float.class,
+                                                             Double.class, java.math.BigDecimal.class, UUID.class, java.net.URI.class};
     private static final String RESERVED = ":graph";
 
     static {
@@ -54,23 +62,40 @@ public class FluxUtil {
         throw new IllegalArgumentException("Object type " + clazz.getName() + " not supported");
     }
 
+    // Converts a value into the representation in which it is stored by Datomic (integers are stored as Datomic longs)
+    public static Object normalizeValue(final Object value) {
+        if (value instanceof Integer) {
+            return ((Integer)value).longValue();
+        }
+        return value;
+    }
+
     // Create the attribute definition if it does not exist yet
     public static void createAttributeDefinition(final String key, final Class valueClazz, final Class elementClazz, FluxGraph graph) {
+        createAttributeDefinition(key, valueClazz, elementClazz, graph, false);
+    }
+
+    // Create the attribute definition if it does not exist yet. Full-text attributes (only supported for strings) can be searched through the Datomic fulltext function
+    public static void createAttributeDefinition(final String key, final Class valueClazz, final Class elementClazz, FluxGraph graph, boolean fulltext) {
         if (!existingAttributeDefinition(key, valueClazz, elementClazz, graph)) {
+            if (fulltext && !String.class.equals(valueClazz)) {
+                throw new IllegalArgumentException("Full-text attributes are only supported for strings");
+            }
             try {
+                Map attributeDefinition = map(":db/id", Peer.tempid(":db.part/db"),
+                                              ":db/ident", createKey(key, valueClazz, elementClazz),
+                                              ":db/valueType", mapJavaTypeToDatomicType(valueClazz),
+                                              ":db/cardinality", ":db.cardinality/one",
+                                              ":db.install/_attribute", ":db.part/db");
+                if (fulltext) {
+                    attributeDefinition.put(":db/fulltext", true);
+                    attributeDefinition.put(":db/index", true);
+                }
                 if (graph.getTransactionTime() == null) {
-                    graph.getConnection().transact(Util.list(Util.map(":db/id", Peer.tempid(":db.part/db"),
-                                                                      ":db/ident", createKey(key, valueClazz, elementClazz),
-                                                                      ":db/valueType", mapJavaTypeToDatomicType(valueClazz),
-                                                                      ":db/cardinality", ":db.cardinality/one",
-                                                                      ":db.install/_attribute", ":db.part/db"))).get();
+                    FluxMetrics.transact("FluxUtil.createAttributeDefinition", graph.getConnection(), Util.list(attributeDefinition));
                 }
                 else {
-                    graph.getConnection().transact(Util.list(Util.map(":db/id", Peer.tempid(":db.part/db"),
-                                                                      ":db/ident", createKey(key, valueClazz, elementClazz),
-                                                                      ":db/valueType", mapJavaTypeToDatomicType(valueClazz),
-                                                                      ":db/cardinality", ":db.cardinality/one",
-                                                                      ":db.install/_attribute", ":db.part/db"), datomic.Util.map(":db/id", datomic.Peer.tempid(":db.part/tx"), ":db/txInstant", graph.getTransactionTime()))).get();
+                    FluxMetrics.transact("FluxUtil.createAttributeDefinition", graph.getConnection(), Util.list(attributeDefinition, datomic.Util.map(":db/id", datomic.Peer.tempid(":db.part/tx"), ":db/txInstant", graph.getTransactionTime())));
                 }
             } catch (InterruptedException e) {
                 throw new RuntimeException(FluxGraph.DATOMIC_ERROR_EXCEPTION_MESSAGE);
@@ -81,41 +106,90 @@ public class FluxUtil {
     }
 
     // Sets/Unsets an index for a particular attribute
-    public static void setAttributeIndex(final String key, final Class elementClazz, FluxGraph graph, boolean index) {
+    public static long setAttributeIndex(final String key, final Class elementClazz, FluxGraph graph, boolean index) {
+        return setAttributeIndices(Collections.singletonMap(key, elementClazz), graph, index);
+    }
+
+    // Sets/Unsets an index for a set of keys (mapped on their element class). All schema changes are installed in a single transaction
+    // Returns the basis t of the transaction that installed the changes (or -1 if no changes were required)
+    public static long setAttributeIndices(final Map<String,Class> keys, FluxGraph graph, boolean index) {
         // For a specific key, multiple attributes could be specified in Datomic that have a different type. We need to create an index for all of them
-        for (String type : types.keySet()) {
-            try {
-                if (!existingAttributeDefinition(key, Class.forName(type), elementClazz, graph)) {
-                    // Attribute of this type does not exist, create it first
-                    createAttributeDefinition(key, Class.forName(type), elementClazz, graph);
+        List<Keyword> attributes = new ArrayList<Keyword>();
+        Map<Keyword,Class> attributeTypes = new HashMap<Keyword,Class>();
+        for (Map.Entry<String,Class> key : keys.entrySet()) {
+            for (Class valueClazz : valueClasses) {
+                Keyword attribute = createKey(key.getKey(), valueClazz, key.getValue());
+                attributes.add(attribute);
+                attributeTypes.put(attribute, valueClazz);
+            }
+        }
+        // Retrieve the attribute definitions that already exist in one go
+        Database database = graph.getRawGraph();
+        Set<Object> existingAttributes = new HashSet<Object>();
+        Collection<List<Object>> found = FluxMetrics.q("FluxUtil.setAttributeIndices", "[:find ?key " +
+                                                 ":in $ [?key ...] " +
+                                                 ":where [?attribute :db/ident ?key] ]", database, attributes);
+        for (List<Object> existingAttribute : found) {
+            existingAttributes.add(existingAttribute.get(0));
+        }
+        List schemaChanges = new ArrayList();
+        for (Keyword attribute : attributes) {
+            if (existingAttributes.contains(attribute)) {
+                // Only change the attributes for which the index setting differs
+                if (index != isIndexedAttribute(attribute, database)) {
+                    schemaChanges.add(Util.map(":db/id", attribute,
+                                               ":db/index", index));
                 }
-                // Retrieve the attribute and index it
-                Object attribute = getAttributeDefinition(key, Class.forName(type), elementClazz, graph);
-                graph.getConnection().transact(Util.list(Util.map(":db/id", attribute,
-                                                                  ":db/index", index))).get();
-            } catch(ClassNotFoundException e) {
-                throw new RuntimeException(FluxGraph.DATOMIC_ERROR_EXCEPTION_MESSAGE);
+            }
+            else if (index) {
+                // Attribute of this type does not exist, create it (already indexed)
+                schemaChanges.add(Util.map(":db/id", Peer.tempid(":db.part/db"),
+                                           ":db/ident", attribute,
+                                           ":db/valueType", mapJavaTypeToDatomicType(attributeTypes.get(attribute)),
+                                           ":db/cardinality", ":db.cardinality/one",
+                                           ":db/index", true,
+                                           ":db.install/_attribute", ":db.part/db"));
+            }
+        }
+        if (!schemaChanges.isEmpty()) {
+            if (graph.getTransactionTime() != null) {
+                schemaChanges.add(datomic.Util.map(":db/id", datomic.Peer.tempid(":db.part/tx"), ":db/txInstant", graph.getTransactionTime()));
+            }
+            try {
+                Map report = FluxMetrics.transact("FluxUtil.setAttributeIndices", graph.getConnection(), schemaChanges);
+                return ((Database)report.get(Connection.DB_AFTER)).basisT();
             } catch (InterruptedException e) {
                 throw new RuntimeException(FluxGraph.DATOMIC_ERROR_EXCEPTION_MESSAGE);
             } catch (ExecutionException e) {
                 throw new RuntimeException(FluxGraph.DATOMIC_ERROR_EXCEPTION_MESSAGE);
             }
         }
+        return -1;
     }
 
     // Creates an index for a particular attribute
-    public static void createAttributeIndex(final String key, final Class elementClazz, FluxGraph graph) {
-        setAttributeIndex(key, elementClazz, graph, true);
+    public static long createAttributeIndex(final String key, final Class elementClazz, FluxGraph graph) {
+        return setAttributeIndex(key, elementClazz, graph, true);
     }
 
-    // Creates an index for a particular attribute
+    // Creates an index for the attributes of a set of keys
+    public static long createAttributeIndices(final Map<String,Class> keys, FluxGraph graph) {
+        return setAttributeIndices(keys, graph, true);
+    }
+
+    // Removes the index for a particular attribute
     public static void removeAttributeIndex(final String key, final Class elementClazz, final FluxGraph graph)  {
         setAttributeIndex(key, elementClazz, graph, false);
     }
 
+    // Removes the index for the attributes of a set of keys
+    public static void removeAttributeIndices(final Map<String,Class> keys, final FluxGraph graph)  {
+        setAttributeIndices(keys, graph, false);
+    }
+
     // Checks whether a new attribute defintion needs to be created on the fly
     public static boolean existingAttributeDefinition(final String key, final Class valueClazz, final Class elementClazz, final FluxGraph graph) {
-        int attributekeysize = Peer.q("[:find ?attribute " +
+        int attributekeysize = FluxMetrics.q("FluxUtil.existingAttributeDefinition", "[:find ?attribute " +
                                        ":in $ ?key " +
                                        ":where [?attribute :db/ident ?key] ]", graph.getRawGraph(), createKey(key, valueClazz, elementClazz)).size();
         // Existing attribute
@@ -125,7 +199,7 @@ public class FluxUtil {
     // Retrieve the attribute definition (if it exists). Otherwise, it returns null
     public static Object getAttributeDefinition(final String key, final Class valueClazz, final Class elementClazz, final FluxGraph graph) {
         if (existingAttributeDefinition(key, valueClazz, elementClazz, graph)) {
-            Collection<List<Object>> attributekeysize = Peer.q("[:find ?attribute " +
+            Collection<List<Object>> attributekeysize = FluxMetrics.q("FluxUtil.getAttributeDefinition", "[:find ?attribute " +
                                                                 ":in $ ?key " +
                                                                 ":where [?attribute :db/ident ?key] ]", graph.getRawGraph(), createKey(key, valueClazz, elementClazz));
             return attributekeysize.iterator().next().get(0);
@@ -133,9 +207,93 @@ public class FluxUtil {
         return null;
     }
 
+    // Retrieves the elements (of the given type) with the given ids in one go, together with the values of the given properties.
+    // Elements are returned in the order of the ids. Ids that do not belong to an existing element of the given type are skipped
+    public static <T extends Element> List<T> getElements(final FluxGraph graph, final Database database, final Collection<Object> ids, final Class<T> elementClazz, final String... keys) {
+        List<Long> elementIds = new ArrayList<Long>(ids.size());
+        for (Object id : ids) {
+            try {
+                elementIds.add(Long.valueOf(id.toString()));
+            } catch (NumberFormatException e) {
+                // Not a valid id
+            }
+        }
+        // Resolve the existence (and type) of all elements
+        Object type = elementClazz.isAssignableFrom(FluxEdge.class) ? graph.GRAPH_ELEMENT_TYPE_EDGE : graph.GRAPH_ELEMENT_TYPE_VERTEX;
+        Set<Long> existing = new HashSet<Long>();
+        for (List<Object> element : FluxMetrics.q("FluxUtil.getElements", "[:find ?element " +
+                                                      ":in $ [?element ...] ?type " +
+                                                      ":where [?element :graph.element/type ?type] ]", database, elementIds, type)) {
+            existing.add(((Number)element.get(0)).longValue());
+        }
+        // Retrieve the values of the (typed) attributes of all requested keys
+        Map<Long,Map<String,Object>> values = new HashMap<Long,Map<String,Object>>();
+        List<Object> attributes = new ArrayList<Object>();
+        for (String key : keys) {
+            if (isReservedKey(key)) {
+                throw new IllegalArgumentException("Reserved properties can not be prefetched: " + key);
+            }
+            attributes.addAll(getAttributeDefinitions(key, elementClazz, database));
+        }
+        if (!existing.isEmpty() && !attributes.isEmpty()) {
+            for (List<Object> value : FluxMetrics.q("FluxUtil.getElements", "[:find ?element ?ident ?value " +
+                                                        ":in $ [?element ...] [?attribute ...] " +
+                                                        ":where [?element ?attribute ?value] " +
+                                                               "[?attribute :db/ident ?ident] ]", database, new ArrayList<Long>(existing), attributes)) {
+                Long element = ((Number)value.get(0)).longValue();
+                Map<String,Object> elementValues = values.get(element);
+                if (elementValues == null) {
+                    elementValues = new HashMap<String,Object>();
+                    values.put(element, elementValues);
+                }
+                elementValues.put(getPropertyName((Keyword)value.get(1)), value.get(2));
+            }
+        }
+        List<T> elements = new ArrayList<T>(existing.size());
+        for (Long id : elementIds) {
+            if (existing.contains(id)) {
+                FluxElement element = elementClazz.isAssignableFrom(FluxEdge.class) ? new FluxEdge(graph, database, id) : new FluxVertex(graph, database, id);
+                if (keys.length > 0) {
+                    Map<String,Object> prefetched = new HashMap<String,Object>();
+                    for (String key : keys) {
+                        prefetched.put(key, null);
+                    }
+                    if (values.containsKey(id)) {
+                        prefetched.putAll(values.get(id));
+                    }
+                    element.prefetch(prefetched);
+                }
+                elements.add((T)element);
+            }
+        }
+        FluxMetrics.count("elements.multiGet", elements.size());
+        return elements;
+    }
+
+    // The value types that are supported for properties
+    public static Class[] getValueClasses() {
+        return valueClasses.clone();
+    }
+
+    // Retrieves the ids of the (typed) attributes that exist for a particular key
+    public static List<Object> getAttributeDefinitions(final String key, final Class elementClazz, final Database database) {
+        List<Keyword> attributes = new ArrayList<Keyword>();
+        for (Class valueClazz : valueClasses) {
+            attributes.add(createKey(key, valueClazz, elementClazz));
+        }
+        List<Object> attributeIds = new ArrayList<Object>();
+        Collection<List<Object>> found = FluxMetrics.q("FluxUtil.getAttributeDefinitions", "[:find ?attribute " +
+                                                 ":in $ [?key ...] " +
+                                                 ":where [?attribute :db/ident ?key] ]", database, attributes);
+        for (List<Object> attribute : found) {
+            attributeIds.add(attribute.get(0));
+        }
+        return attributeIds;
+    }
+
     public static Set<String> getIndexedAttributes(final Class elementClazz, final FluxGraph graph) {
         Set<String> results = new HashSet<String>();
-        Collection<List<Object>> indexedAttributes = Peer.q("[:find ?key " +
+        Collection<List<Object>> indexedAttributes = FluxMetrics.q("FluxUtil.getIndexedAttributes", "[:find ?key " +
                                                              ":in $ " +
                                                              ":where [?attribute :db/ident ?key] " +
                                                                     "[?attribute :db/index true] ]", graph.getRawGraph());
@@ -150,13 +308,105 @@ public class FluxUtil {
 
     // Checks whether a new attribute defintion needs to be created on the fly
     public static boolean existingAttributeDefinition(final Keyword key, final FluxGraph graph) {
-        int attributekeysize = Peer.q("[:find ?attribute " +
+        int attributekeysize = FluxMetrics.q("FluxUtil.existingAttributeDefinition", "[:find ?attribute " +
                                        ":in $ ?key " +
                                        ":where [?attribute :db/ident ?key] ]", graph.getRawGraph(), key).size();
         // Existing attribute
         return attributekeysize != 0;
     }
 
+    // Checks whether an (existing) attribute is backed by the AVET index
+    public static boolean isIndexedAttribute(final Keyword key, final Database database) {
+        Entity attribute = database.entity(key);
+        return attribute != null && Boolean.TRUE.equals(attribute.get(":db/index"));
+    }
+
+    // Checks whether an (existing) attribute supports full-text search
+    public static boolean isFullTextAttribute(final Keyword key, final Database database) {
+        Entity attribute = database.entity(key);
+        return attribute != null && Boolean.TRUE.equals(attribute.get(":db/fulltext"));
+    }
+
+    // Lazily restricts an iterable of datoms to a maximum number of datoms
+    public static Iterable<Datom> limit(final Iterable<Datom> datoms, final int limit) {
+        return new Iterable<Datom>() {
+            @Override
+            public Iterator<Datom> iterator() {
+                final Iterator<Datom> datomsIt = datoms.iterator();
+                return new Iterator<Datom>() {
+                    private int count = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return count < limit && datomsIt.hasNext();
+                    }
+
+                    @Override
+                    public Datom next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        count++;
+                        return datomsIt.next();
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    // Lazily iterates the (sorted) datoms as long as their string value starts with the particular prefix
+    public static Iterable<Datom> withPrefix(final Iterable<Datom> datoms, final String prefix) {
+        return new Iterable<Datom>() {
+            @Override
+            public Iterator<Datom> iterator() {
+                final Iterator<Datom> datomsIt = datoms.iterator();
+                return new Iterator<Datom>() {
+                    private Datom next = null;
+                    private boolean done = false;
+
+                    @Override
+                    public boolean hasNext() {
+                        if (next == null && !done) {
+                            if (datomsIt.hasNext()) {
+                                Datom datom = datomsIt.next();
+                                if (((String)datom.v()).startsWith(prefix)) {
+                                    next = datom;
+                                }
+                                else {
+                                    done = true;
+                                }
+                            }
+                            else {
+                                done = true;
+                            }
+                        }
+                        return next != null;
+                    }
+
+                    @Override
+                    public Datom next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Datom datom = next;
+                        next = null;
+                        return datom;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
     // Creates a unique key for each key-valuetype attribute (as only one attribute with the same name can be specified)
     public static Keyword createKey(final String key, final Class valueClazz, final Class elementClazz) {
         String elementType = "vertex";
@@ -166,9 +416,43 @@ public class FluxUtil {
         return Keyword.intern(key.replace("_","$") + "." + mapJavaTypeToDatomicType(valueClazz).split("/")[1] + "." + elementType);
     }
 
+    // Creates a unique key for each index-key-valuetype attribute of a manual index (part of the reserved graph namespace)
+    public static Keyword createIndexKey(final String index, final String key, final Class valueClazz) {
+        return Keyword.intern("graph.index." + index.replace("/", "$"), key.replace("/", "$") + "." + mapJavaTypeToDatomicType(valueClazz).split("/")[1]);
+    }
+
+    // Checks whether a property (attribute) is used to store the entries of a manual index
+    public static boolean isIndexKey(final Keyword property) {
+        return property.toString().startsWith(":graph.index.");
+    }
+
+    // Returns the changes of the typed attributes behind a property of an element (read from the history database), ordered in time.
+    // Within a transaction, retractions precede assertions
+    public static List<Datom> getPropertyChanges(final Database database, final Object id, final String key, final Class elementClazz) {
+        List<Datom> changes = new ArrayList<Datom>();
+        Database history = database.history();
+        for (Object attribute : getAttributeDefinitions(key, elementClazz, database)) {
+            for (Datom datom : FluxMetrics.datoms("FluxUtil.getPropertyChanges", history, Database.EAVT, id, attribute)) {
+                changes.add(datom);
+            }
+        }
+        Collections.sort(changes, new Comparator<Datom>() {
+            @Override
+            public int compare(Datom datom1, Datom datom2) {
+                long tx1 = ((Number)datom1.tx()).longValue();
+                long tx2 = ((Number)datom2.tx()).longValue();
+                if (tx1 != tx2) {
+                    return tx1 < tx2 ? -1 : 1;
+                }
+                return datom1.added() == datom2.added() ? 0 : (datom1.added() ? 1 : -1);
+            }
+        });
+        return changes;
+    }
+
     // Returns the previous transaction for a particular time aware element
     public static Object getPreviousTransaction(FluxGraph graph, TimeAwareElement element) {
-        Iterator<List<Object>> previoustransaction  = (Peer.q("[:find ?previousTransactionId " +
+        Iterator<List<Object>> previoustransaction  = (FluxMetrics.q("FluxUtil.getPreviousTransaction", "[:find ?previousTransactionId " +
                                                                ":in $ ?currentTransactionId ?id " +
                                                                ":where [?currentTransactionId :graph.element/previousTransaction ?previousTransaction] " +
                                                                       "[?previousTransaction :graph.element/previousTransaction/elementId ?id] " +
@@ -182,7 +466,7 @@ public class FluxUtil {
     // Returns the next transaction for a particular time aware element (null if the transaction id does not exist)
     public static Object getNextTransactionId(FluxGraph graph, TimeAwareElement element) {
         // Retrieve the last encountered transaction before the input transaction
-        Iterator<List<Object>> nexttransaction = (Peer.q("[:find ?nextTransactionId " +
+        Iterator<List<Object>> nexttransaction = (FluxMetrics.q("FluxUtil.getNextTransactionId", "[:find ?nextTransactionId " +
                                                           ":in $ ?currenttransactionId ?id " +
                                                           ":where [?nextTransactionId :graph.element/previousTransaction ?currenttransaction] " +
                                                                  "[?currenttransaction :graph.element/previousTransaction/elementId ?id] " +
@@ -195,40 +479,139 @@ public class FluxUtil {
 
     public static Object getActualTimeId(Database database, TimeAwareElement element) {
         // Get the actual time id for a particular element and database value
-        String timeRule = "[ [ (previous ?id ?tx) [?id _ _ ?tx] ] " +
-                            "[ (previous ?id ?tx) [_ :graph.element/previousTransaction/elementId ?id ?tx] ] ] ]";
-        Collection<List<Object>> alltxs = (datomic.Peer.q("[:find ?tx " +
+        long[] transactions = getVersionTransactions(database, element.getId());
+        return transactions.length > 0 ? Long.valueOf(transactions[transactions.length - 1]) : null;
+    }
+
+    // Retrieves the transactions (in ascending order) in which an element changed. Transactions that only changed manual index entries are not part of the history of an element
+    public static long[] getVersionTransactions(Database database, Object id) {
+        FluxMetrics.count("history.scans");
+        String timeRule = "[ [ (previous ?id ?tx ?attribute) [?id ?attribute _ ?tx] ] " +
+                            "[ (previous ?id ?tx ?attribute) [_ ?attribute ?id ?tx] [?attribute :db/ident :graph.element/previousTransaction/elementId] ] ]";
+        Collection<List<Object>> alltxs = (FluxMetrics.q("FluxUtil.getVersionTransactions", "[:find ?tx ?attribute " +
                                                            ":in $ ?id % " +
-                                                           ":where [previous ?id ?tx] ]", database.history(), element.getId(), timeRule));
-        Iterator<List<Object>> tx = alltxs.iterator();
-        Object lastTransaction = null;
-        if (tx.hasNext()) {
-            List<Object> transactionElement = tx.next();
-            lastTransaction = transactionElement.get(0);
-        }
-        while (tx.hasNext()) {
-            List<Object> transactionElement = tx.next();
-            if ((Long)transactionElement.get(0) > (Long)lastTransaction) {
-                lastTransaction = transactionElement.get(0);
+                                                           ":where [previous ?id ?tx ?attribute] ]", database.history(), id, timeRule));
+        Set<Long> transactions = new HashSet<Long>();
+        Map<Object,Boolean> indexAttributes = new HashMap<Object,Boolean>();
+        for (List<Object> transaction : alltxs) {
+            Boolean indexAttribute = indexAttributes.get(transaction.get(1));
+            if (indexAttribute == null) {
+                indexAttribute = isIndexKey((Keyword)database.ident(transaction.get(1)));
+                indexAttributes.put(transaction.get(1), indexAttribute);
+            }
+            if (!indexAttribute) {
+                transactions.add(((Number)transaction.get(0)).longValue());
             }
         }
-
-        return lastTransaction;
+        long[] sorted = new long[transactions.size()];
+        int i = 0;
+        for (Long transaction : transactions) {
+            sorted[i++] = transaction;
+        }
+        Arrays.sort(sorted);
+        return sorted;
     }
 
     // Helper method to retrieve the date associated with a particular transaction id
     public static Date getTransactionDate(FluxGraph graph, Object transaction) {
-        return (Date)datomic.Peer.q("[:find ?time " +
+        return (Date)FluxMetrics.q("FluxUtil.getTransactionDate", "[:find ?time " +
                                      ":in $ ?tx " +
                                      ":where [?tx :db/txInstant ?time] ]", graph.getRawGraph(), transaction).iterator().next().get(0);
     }
 
     public static Object getIdForAttribute(FluxGraph graph, String attribute) {
-        return Peer.q("[:find ?entity " +
+        return FluxMetrics.q("FluxUtil.getIdForAttribute", "[:find ?entity " +
                        ":in $ ?attribute " +
                        ":where [?entity :db/ident ?attribute] ] ", graph.getRawGraph(), Keyword.intern(attribute)).iterator().next().get(0);
     }
 
+    // Helper method to retrieve the ids of multiple idents through a single query. Idents that do not exist are not part of the result
+    public static Map<Keyword,Object> getIdsForAttributes(final Database database, final String... attributes) {
+        List<Keyword> idents = new ArrayList<Keyword>(attributes.length);
+        for (String attribute : attributes) {
+            idents.add(Keyword.intern(attribute));
+        }
+        Map<Keyword,Object> ids = new HashMap<Keyword,Object>();
+        Collection<List<Object>> results = FluxMetrics.q("FluxUtil.getIdsForAttributes", "[:find ?attribute ?entity " +
+                                                   ":in $ [?attribute ...] " +
+                                                   ":where [?entity :db/ident ?attribute] ] ", database, idents);
+        for (List<Object> result : results) {
+            ids.put((Keyword)result.get(0), result.get(1));
+        }
+        return ids;
+    }
+
+    // Helper method to extract the value of a single aggregate (count) query. Datomic returns no result at all if nothing was counted
+    public static long getCount(final Collection<List<Object>> result) {
+        if (result.isEmpty()) {
+            return 0;
+        }
+        return ((Number)result.iterator().next().get(0)).longValue();
+    }
+
+    // Counts the number of elements of a particular type (vertex or edge) through an aggregate query
+    public static long countElements(final Database database, final Keyword type) {
+        return getCount(FluxMetrics.q("FluxUtil.countElements", "[:find (count ?element) " +
+                                ":in $ ?type " +
+                                ":where [?element :graph.element/type ?type] ]", database, type));
+    }
+
+    // Counts the number of edges with a particular label through an aggregate query
+    public static long countEdges(final Database database, final String label) {
+        return getCount(FluxMetrics.q("FluxUtil.countEdges", "[:find (count ?edge) " +
+                                ":in $ ?label " +
+                                ":where [?edge :graph.edge/label ?label] ]", database, label));
+    }
+
+    // Counts the number of edges for each of the labels in use through an aggregate query
+    public static Map<String,Long> countEdgesPerLabel(final Database database) {
+        Map<String,Long> counts = new HashMap<String,Long>();
+        Collection<List<Object>> labelCounts = FluxMetrics.q("FluxUtil.countEdgesPerLabel", "[:find ?label (count ?edge) " +
+                                                       ":in $ " +
+                                                       ":where [?edge :graph.edge/label ?label] ]", database);
+        for (List<Object> labelCount : labelCounts) {
+            counts.put((String)labelCount.get(0), ((Number)labelCount.get(1)).longValue());
+        }
+        return counts;
+    }
+
+    // Counts the number of edges of a vertex in a particular direction (optionally restricted to a set of labels) through an aggregate query
+    public static long countEdges(final Database database, final Object vertexId, final Direction direction, final String... labels) {
+        if (direction.equals(Direction.BOTH)) {
+            return countEdges(database, vertexId, Direction.OUT, labels) + countEdges(database, vertexId, Direction.IN, labels);
+        }
+        String vertexAttribute = direction.equals(Direction.OUT) ? ":graph.edge/outVertex" : ":graph.edge/inVertex";
+        if (labels.length == 0) {
+            return getCount(FluxMetrics.q("FluxUtil.countEdges", "[:find (count ?edge) " +
+                                    ":in $ ?vertex " +
+                                    ":where [?edge " + vertexAttribute + " ?vertex] ]", database, vertexId));
+        }
+        return getCount(FluxMetrics.q("FluxUtil.countEdges", "[:find (count ?edge) " +
+                                ":in $ ?vertex [?label ...] " +
+                                ":where [?edge " + vertexAttribute + " ?vertex] " +
+                                       "[?edge :graph.edge/label ?label] ]", database, vertexId, labels));
+    }
+
+    // Counts the number of edges of a vertex per label and direction. The returned arrays contain the out degree at position 0 and the in degree at position 1
+    public static Map<String,long[]> countEdgesPerLabel(final Database database, final Object vertexId) {
+        Map<String,long[]> degrees = new HashMap<String,long[]>();
+        String[] vertexAttributes = new String[] {":graph.edge/outVertex", ":graph.edge/inVertex"};
+        for (int i = 0; i < vertexAttributes.length; i++) {
+            Collection<List<Object>> labelCounts = FluxMetrics.q("FluxUtil.countEdgesPerLabel", "[:find ?label (count ?edge) " +
+                                                           ":in $ ?vertex " +
+                                                           ":where [?edge " + vertexAttributes[i] + " ?vertex] " +
+                                                                  "[?edge :graph.edge/label ?label] ]", database, vertexId);
+            for (List<Object> labelCount : labelCounts) {
+                String label = (String)labelCount.get(0);
+                if (!degrees.containsKey(label)) {
+                    degrees.put(label, new long[2]);
+                }
+                degrees.get(label)[i] = ((Number)labelCount.get(1)).longValue();
+            }
+        }
+        return degrees;
+    }
+
     // Helper method to create a mutable map (instead of an immutable map via the datomic Util.map method)
     public static Map map(Object... mapValues) {
         Map map = new HashMap();
@@ -0,0 +1,123 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.*;
+import datomic.Database;
+import datomic.Datom;
+
+import java.util.*;
+
+/**
+ * The version history of a single element, read from the history database: the transactions of all its versions and the changes of the
+ * properties that are needed to evaluate declarative time aware filters. This allows to evaluate the filters for each version without
+ * materializing the version itself (with its own asOf database value and lookups).
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxVersionHistory {
+
+    private final FluxGraph graph;
+    private final FluxElement element;
+    private final Database database;
+    private final long[] transactions;
+    private final Map<Long,Long> instants = new HashMap<Long,Long>();
+    private final Map<String,List<Datom>> propertyChanges = new HashMap<String,List<Datom>>();
+
+    public FluxVersionHistory(final FluxGraph graph, final FluxElement element) {
+        this.graph = graph;
+        this.element = element;
+        this.database = graph.getRawGraph();
+        // The same transactions as the ones used to find the time id of an element, but retaining all of them
+        this.transactions = FluxUtil.getVersionTransactions(database, element.getId());
+    }
+
+    // Checks whether a filter can be evaluated based on the version history
+    public static boolean isDeclarative(final TimeAwareFilter filter) {
+        if (filter instanceof TimeAwareAndFilter) {
+            for (TimeAwareFilter subFilter : ((TimeAwareAndFilter)filter).getFilters()) {
+                if (!isDeclarative(subFilter)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return filter instanceof TimeAwareWindowFilter || filter instanceof TimeAwarePropertyChangedFilter || filter instanceof TimeAwarePropertyFilter;
+    }
+
+    // The transactions of all versions, in ascending order
+    public long[] getTransactions() {
+        return transactions;
+    }
+
+    // Evaluates a declarative filter for the version of the given transaction
+    public boolean matches(final TimeAwareFilter filter, final long transaction) {
+        if (filter instanceof TimeAwareAndFilter) {
+            for (TimeAwareFilter subFilter : ((TimeAwareAndFilter)filter).getFilters()) {
+                if (!matches(subFilter, transaction)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (filter instanceof TimeAwareWindowFilter) {
+            return ((TimeAwareWindowFilter)filter).contains(getInstant(transaction));
+        }
+        if (filter instanceof TimeAwarePropertyChangedFilter) {
+            for (Datom change : getPropertyChanges(((TimeAwarePropertyChangedFilter)filter).getKey())) {
+                if (((Number)change.tx()).longValue() == transaction) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (filter instanceof TimeAwarePropertyFilter) {
+            TimeAwarePropertyFilter propertyFilter = (TimeAwarePropertyFilter)filter;
+            return propertyFilter.evaluate(getValue(propertyFilter.getKey(), transaction));
+        }
+        throw new IllegalArgumentException("Filter " + filter.getClass().getName() + " is not a declarative filter");
+    }
+
+    // The value of a property as of a particular transaction (null if the property was not set)
+    public Object getValue(final String key, final long transaction) {
+        Object value = null;
+        for (Datom change : getPropertyChanges(key)) {
+            if (((Number)change.tx()).longValue() > transaction) {
+                break;
+            }
+            if (change.added()) {
+                value = change.v();
+            }
+            else if (change.v().equals(value)) {
+                value = null;
+            }
+        }
+        return value;
+    }
+
+    private long getInstant(final long transaction) {
+        Long instant = instants.get(transaction);
+        if (instant == null) {
+            instant = ((Date)database.entity(transaction).get(":db/txInstant")).getTime();
+            instants.put(transaction, instant);
+        }
+        return instant;
+    }
+
+    private List<Datom> getPropertyChanges(final String key) {
+        List<Datom> changes = propertyChanges.get(key);
+        if (changes == null) {
+            changes = FluxUtil.getPropertyChanges(database, element.getId(), key, element.getClass());
+            propertyChanges.put(key, changes);
+        }
+        return changes;
+    }
+
+    // Creates the version of the element for the given transaction (the latest version is the current version)
+    public FluxElement getVersion(final long transaction) {
+        Database versionDatabase = transaction == transactions[transactions.length - 1] ? null : graph.getRawGraph(transaction);
+        if (element instanceof FluxEdge) {
+            return new FluxEdge(graph, versionDatabase, element.getId());
+        }
+        return new FluxVertex(graph, versionDatabase, element.getId());
+    }
+
+}
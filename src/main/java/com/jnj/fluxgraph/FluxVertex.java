@@ -5,6 +5,7 @@ import com.tinkerpop.blueprints.util.DefaultQuery;
 import com.tinkerpop.blueprints.util.MultiIterable;
 import com.tinkerpop.blueprints.util.StringFactory;
 import datomic.*;
+import org.joda.time.Interval;
 
 import java.util.*;
 
@@ -116,6 +117,14 @@ public class FluxVertex extends FluxElement implements TimeAwareVertex {
         }
     }
 
+    // Returns the number of edges in a particular direction (optionally restricted to a set of labels). For the current version, it is served from the maintained counters
+    public long getDegree(final Direction direction, final String... labels) {
+        if (database == null && !fluxGraph.isPinned()) {
+            return fluxGraph.getStatistics().getDegree(id, direction, labels);
+        }
+        return FluxUtil.countEdges(getDatabase(), id, direction, labels);
+    }
+
     @Override
     public String toString() {
         return StringFactory.vertexString(this);
@@ -147,19 +156,97 @@ public class FluxVertex extends FluxElement implements TimeAwareVertex {
         return theFacts;
     }
 
+    // Returns the edges (with one of the given labels) that existed at any point in time within the interval, together with their validity interval.
+    // The edges are found through a single scan of the history of the in or out vertex attribute (or both) of the database this vertex belongs to,
+    // after which the labels and vertices of all candidate edges are resolved with one query
+    public Iterable<FluxTemporalEdge> getEdges(final Direction direction, final Interval interval, final String... labels) {
+        Database database = getDatabase();
+        Database history = database.history();
+        Map<Object,Long> instants = new HashMap<Object,Long>();
+        List<Map<Object,long[]>> lifetimes = new ArrayList<Map<Object,long[]>>();
+        if (!direction.equals(Direction.IN)) {
+            lifetimes.add(getLifetimes(database, history, fluxGraph.GRAPH_EDGE_OUT_VERTEX, interval, instants));
+        }
+        if (!direction.equals(Direction.OUT)) {
+            lifetimes.add(getLifetimes(database, history, fluxGraph.GRAPH_EDGE_IN_VERTEX, interval, instants));
+        }
+        // Retrieve the label and vertices of all candidate edges at once (also available if the edge was removed)
+        Set<Object> candidates = new HashSet<Object>();
+        for (Map<Object,long[]> lifetime : lifetimes) {
+            candidates.addAll(lifetime.keySet());
+        }
+        Map<Object,List<Object>> details = new HashMap<Object,List<Object>>();
+        if (!candidates.isEmpty()) {
+            for (List<Object> detail : FluxMetrics.q("FluxVertex.getTemporalEdges", "[:find ?edge ?label ?out ?in " +
+                                                                                    ":in $ [?edge ...] " +
+                                                                                    ":where [?edge :graph.edge/label ?label] " +
+                                                                                           "[?edge :graph.edge/outVertex ?out] " +
+                                                                                           "[?edge :graph.edge/inVertex ?in] ]", history, new ArrayList<Object>(candidates))) {
+                details.put(detail.get(0), detail);
+            }
+        }
+        Set<String> labelSet = new HashSet<String>(Arrays.asList(labels));
+        List<FluxTemporalEdge> edges = new ArrayList<FluxTemporalEdge>();
+        for (Map<Object,long[]> lifetime : lifetimes) {
+            for (Map.Entry<Object,long[]> edge : lifetime.entrySet()) {
+                List<Object> detail = details.get(edge.getKey());
+                if (detail != null && (labelSet.isEmpty() || labelSet.contains(detail.get(1)))) {
+                    long start = getInstant(database, edge.getValue()[0], instants);
+                    long end = edge.getValue()[1] >= 0 ? getInstant(database, edge.getValue()[1], instants) : Long.MAX_VALUE;
+                    long removalT = edge.getValue()[1] >= 0 ? Peer.toT(edge.getValue()[1]) : -1;
+                    edges.add(new FluxTemporalEdge(fluxGraph, edge.getKey(), (String)detail.get(1), detail.get(2), detail.get(3), new Interval(start, end), removalT));
+                }
+            }
+        }
+        return edges;
+    }
+
+    // Collects the assertion and retraction of the vertex reference of each edge whose lifetime overlaps the interval
+    private Map<Object,long[]> getLifetimes(final Database database, final Database history, final Object vertexAttribute,
+                                            final Interval interval, final Map<Object,Long> instants) {
+        Map<Object,long[]> lifetimes = new LinkedHashMap<Object,long[]>();
+        for (Datom datom : FluxMetrics.datoms("FluxVertex.getTemporalEdges", history, Database.AVET, vertexAttribute, getId())) {
+            long[] lifetime = lifetimes.get(datom.e());
+            if (lifetime == null) {
+                lifetime = new long[] {-1, -1};
+                lifetimes.put(datom.e(), lifetime);
+            }
+            lifetime[datom.added() ? 0 : 1] = ((Number)datom.tx()).longValue();
+        }
+        Iterator<long[]> it = lifetimes.values().iterator();
+        while (it.hasNext()) {
+            long[] lifetime = it.next();
+            long start = getInstant(database, lifetime[0], instants);
+            long end = lifetime[1] >= 0 ? getInstant(database, lifetime[1], instants) : Long.MAX_VALUE;
+            if (start >= interval.getEndMillis() || end <= interval.getStartMillis()) {
+                it.remove();
+            }
+        }
+        return lifetimes;
+    }
+
+    private static long getInstant(final Database database, final long transaction, final Map<Object,Long> instants) {
+        Long instant = instants.get(transaction);
+        if (instant == null) {
+            instant = ((Date)database.entity(transaction).get(":db/txInstant")).getTime();
+            instants.put(transaction, instant);
+        }
+        return instant;
+    }
+
     private Iterable<Edge> getInEdges(final String... labels) {
         if (labels.length == 0) {
             return getInEdges();
         }
-        Collection<List<Object>> inEdges = Peer.q("[:find ?edge " +
-                                                   ":in $ ?vertex [?label ...] " +
-                                                   ":where [?edge :graph.edge/inVertex ?vertex] " +
-                                                          "[?edge :graph.edge/label ?label ] ]", getDatabase(), id, labels);
+        long[] inEdges = fluxGraph.getQueryCache().getIds(getDatabase(), "[:find ?edge " +
+                                                                          ":in $ ?vertex [?label ...] " +
+                                                                          ":where [?edge :graph.edge/inVertex ?vertex] " +
+                                                                                 "[?edge :graph.edge/label ?label ] ]", id, labels);
         return new FluxIterable(inEdges, fluxGraph, database, Edge.class);
     }
 
     private Iterable<Edge> getInEdges() {
-        Iterable<Datom> inEdges = getDatabase().datoms(Database.AVET, fluxGraph.GRAPH_EDGE_IN_VERTEX, getId());
+        Iterable<Datom> inEdges = FluxMetrics.datoms("FluxVertex.getInEdges", getDatabase(), Database.AVET, fluxGraph.GRAPH_EDGE_IN_VERTEX, getId());
         return new FluxIterable(inEdges, fluxGraph, database, Edge.class);
     }
 
@@ -167,15 +254,15 @@ public class FluxVertex extends FluxElement implements TimeAwareVertex {
         if (labels.length == 0) {
             return getOutEdges();
         }
-        Collection<List<Object>> outEdges = Peer.q("[:find ?edge " +
-                                                    ":in $ ?vertex [?label ...] " +
-                                                    ":where [?edge :graph.edge/outVertex ?vertex] " +
-                                                           "[?edge :graph.edge/label ?label ] ]", getDatabase(), id, labels);
+        long[] outEdges = fluxGraph.getQueryCache().getIds(getDatabase(), "[:find ?edge " +
+                                                                           ":in $ ?vertex [?label ...] " +
+                                                                           ":where [?edge :graph.edge/outVertex ?vertex] " +
+                                                                                  "[?edge :graph.edge/label ?label ] ]", id, labels);
         return new FluxIterable(outEdges, fluxGraph, database, Edge.class);
     }
 
     private Iterable<Edge> getOutEdges() {
-        Iterable<Datom> outEdges = getDatabase().datoms(Database.AVET, fluxGraph.GRAPH_EDGE_OUT_VERTEX, getId());
+        Iterable<Datom> outEdges = FluxMetrics.datoms("FluxVertex.getOutEdges", getDatabase(), Database.AVET, fluxGraph.GRAPH_EDGE_OUT_VERTEX, getId());
         return new FluxIterable(outEdges, fluxGraph, database, Edge.class);
     }
 
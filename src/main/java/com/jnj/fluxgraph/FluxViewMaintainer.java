@@ -0,0 +1,71 @@
+package com.jnj.fluxgraph;
+
+import datomic.Connection;
+import datomic.Database;
+import datomic.Datom;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps the materialized views of a graph up to date. The maintainer follows the transaction report queue of the graph, translates each
+ * report once into graph events and applies them to all registered views (in transaction order, on the dispatcher thread of the queue).
+ * Views are registered before they are built, which guarantees that no transaction is missed between building a view and following its changes.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxViewMaintainer implements FluxTransactionListener {
+
+    private final FluxGraph graph;
+    private final FluxEventTranslator translator;
+    private final CopyOnWriteArrayList<FluxMaterializedView> views = new CopyOnWriteArrayList<FluxMaterializedView>();
+
+    public FluxViewMaintainer(final FluxGraph graph) {
+        this.graph = graph;
+        this.translator = new FluxEventTranslator(graph);
+    }
+
+    // Registers and builds a view. Returns the view once it reflects the current version of the graph
+    public <T extends FluxMaterializedView> T register(final T view) {
+        synchronized (view) {
+            if (!views.addIfAbsent(view)) {
+                throw new IllegalArgumentException("The view is already registered");
+            }
+            graph.getTransactionQueue().addListener(this);
+            // Transactions that are applied from here on are either part of the database value or delivered afterwards (the update waits for the view)
+            view.initialize(graph.getConnection().db());
+        }
+        return view;
+    }
+
+    public void unregister(final FluxMaterializedView view) {
+        views.remove(view);
+        if (views.isEmpty()) {
+            graph.getTransactionQueue().removeListener(this);
+        }
+    }
+
+    public List<FluxMaterializedView> getViews() {
+        return Collections.unmodifiableList(views);
+    }
+
+    public void close() {
+        views.clear();
+        graph.getTransactionQueue().removeListener(this);
+    }
+
+    @Override
+    public void transactionApplied(final Map report) {
+        if (views.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        Database database = (Database)report.get(Connection.DB_AFTER);
+        List<FluxGraphEvent> events = Collections.unmodifiableList(translator.translate(database, (Collection<Datom>)report.get(Connection.TX_DATA), database.basisT()));
+        for (FluxMaterializedView view : views) {
+            view.update(events, database);
+        }
+        FluxMetrics.record("views.update", System.nanoTime() - start);
+    }
+
+}
@@ -0,0 +1,160 @@
+package com.jnj.fluxgraph;
+
+import datomic.Database;
+import datomic.Datom;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Warms up the Datomic peer cache of a graph by scanning the AVET index of the structural attributes (element type, in and out vertex, label)
+ * and of a selection of key-indexed properties. The attributes are scanned in parallel, either blocking or in the background.
+ *
+ * <code>
+ *     graph.warmup().key("name", Vertex.class).start(4);
+ * </code>
+ *
+ * Datomic does not expose the number of segments that were fetched, hence it is estimated from the number of scanned datoms.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxWarmup {
+
+    // Rough number of datoms stored in a single index segment, only used to estimate the number of segments that were touched
+    public static final int ESTIMATED_DATOMS_PER_SEGMENT = 1000;
+
+    private final FluxGraph graph;
+    private final List<Object> attributes = new ArrayList<Object>();
+    private final AtomicLong datoms = new AtomicLong(0);
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile long startTime = -1;
+    private volatile long endTime = -1;
+    private volatile boolean failed = false;
+
+    public FluxWarmup(final FluxGraph graph) {
+        this.graph = graph;
+        attributes.add(graph.GRAPH_ELEMENT_TYPE);
+        attributes.add(graph.GRAPH_EDGE_IN_VERTEX);
+        attributes.add(graph.GRAPH_EDGE_OUT_VERTEX);
+        attributes.add(graph.GRAPH_EDGE_LABEL);
+    }
+
+    // Adds the (typed) attributes of a key-indexed property to the warm-up. Only attributes that are backed by the AVET index can be warmed up
+    public FluxWarmup key(final String key, final Class elementClass) {
+        if (startTime >= 0) {
+            throw new IllegalArgumentException("The warm-up was already started");
+        }
+        Database database = graph.getRawGraph();
+        List<Object> keyAttributes = FluxUtil.getAttributeDefinitions(key, elementClass, database);
+        if (keyAttributes.isEmpty()) {
+            throw new IllegalArgumentException("Property " + key + " is not key-indexed");
+        }
+        for (Object attribute : keyAttributes) {
+            if (!Boolean.TRUE.equals(database.entity(attribute).get(":db/index"))) {
+                throw new IllegalArgumentException("Property " + key + " is not key-indexed");
+            }
+        }
+        attributes.addAll(keyAttributes);
+        return this;
+    }
+
+    // Runs the warm-up (blocking) using the given number of threads
+    public FluxWarmup run(final int threads) {
+        start(threads);
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return this;
+    }
+
+    // Runs the warm-up in the background using the given number of threads
+    public FluxWarmup start(final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of warm-up threads should be at least 1");
+        }
+        if (startTime >= 0) {
+            throw new IllegalArgumentException("The warm-up was already started");
+        }
+        startTime = System.currentTimeMillis();
+        final Database database = graph.getRawGraph();
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, attributes.size()), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "fluxgraph-warmup");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        final CountDownLatch scanned = new CountDownLatch(attributes.size());
+        for (final Object attribute : attributes) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        long count = 0;
+                        for (Datom ignored : database.datoms(Database.AVET, attribute)) {
+                            count++;
+                        }
+                        datoms.addAndGet(count);
+                    } catch (RuntimeException e) {
+                        failed = true;
+                    } finally {
+                        scanned.countDown();
+                        if (scanned.getCount() == 0) {
+                            endTime = System.currentTimeMillis();
+                            done.countDown();
+                        }
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        return this;
+    }
+
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    // Whether the scan of one or more attributes failed
+    public boolean isFailed() {
+        return failed;
+    }
+
+    // Waits until the warm-up is finished. Returns false if the warm-up is not finished within the given timeout
+    public boolean await(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return done.await(timeout, unit);
+    }
+
+    // The number of attributes that are (or will be) scanned
+    public int getAttributeCount() {
+        return attributes.size();
+    }
+
+    // The duration of the warm-up in milliseconds (up till now if it is still running)
+    public long getDuration() {
+        if (startTime < 0) {
+            return 0;
+        }
+        return (endTime >= 0 ? endTime : System.currentTimeMillis()) - startTime;
+    }
+
+    public long getDatoms() {
+        return datoms.get();
+    }
+
+    public long getEstimatedSegments() {
+        return (datoms.get() + ESTIMATED_DATOMS_PER_SEGMENT - 1) / ESTIMATED_DATOMS_PER_SEGMENT;
+    }
+
+    @Override
+    public String toString() {
+        return "fluxwarmup[attributes:" + attributes.size() + ", datoms:" + getDatoms() + ", estimated segments:" + getEstimatedSegments() +
+               ", duration:" + getDuration() + "ms" + (isDone() ? "" : ", running") + (failed ? ", failed" : "") + "]";
+    }
+
+}
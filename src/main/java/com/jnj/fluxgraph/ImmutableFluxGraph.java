@@ -19,11 +19,13 @@ import java.util.concurrent.ExecutionException;
 public class ImmutableFluxGraph extends FluxGraph {
 
     private FluxGraph originGraph;
+    private Date checkpointDate;
 
     public ImmutableFluxGraph(final String graphURI, FluxGraph originGraph, Set<Object> differenceFacts) {
         super(graphURI);
         this.originGraph = originGraph;
         // Add the additional meta model
+        boolean setupDone = false;
         try {
             setupAdditionalMetaModel();
             // Add the various fact that together define the difference graph
@@ -31,16 +33,48 @@ public class ImmutableFluxGraph extends FluxGraph {
                 addToTransaction(differenceFact);
             }
             transact();
+            setupDone = true;
         } catch (ExecutionException e) {
             throw new RuntimeException(FluxGraph.DATOMIC_ERROR_EXCEPTION_MESSAGE);
         } catch (InterruptedException e) {
             throw new RuntimeException(FluxGraph.DATOMIC_ERROR_EXCEPTION_MESSAGE);
+        } finally {
+            // Release the connection and remove the temporary database when the difference graph can not be set up
+            if (!setupDone) {
+                shutdown();
+            }
         }
     }
 
+    // Creates a graph that is pinned to a particular date (for all threads). Use FluxGraph.asOf to create a view without a new connection
     public ImmutableFluxGraph(final String graphURI, final Date date) {
         super(graphURI);
-        this.checkpointTime.set(date.getTime());
+        this.checkpointDate = date;
+    }
+
+    @Override
+    public Database getRawGraph() {
+        if (checkpointDate != null) {
+            return getRawGraph(checkpointDate);
+        }
+        return super.getRawGraph();
+    }
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        // A difference graph is backed by a temporary database of its own
+        if (originGraph != null) {
+            Peer.deleteDatabase(getGraphURI());
+        }
+    }
+
+    @Override
+    public void setCheckpointTime(Date date) {
+        if (checkpointDate != null) {
+            throw new IllegalArgumentException("FluxGraph instance is immutable");
+        }
+        super.setCheckpointTime(date);
     }
 
     @Override
@@ -76,7 +110,7 @@ public class ImmutableFluxGraph extends FluxGraph {
     protected void setupAdditionalMetaModel() throws ExecutionException, InterruptedException {
         // Add the attribute types contained in the origin graph
         // Retrieve the attributes
-        Iterator<List<Object>> schemaIds = Peer.q("[:find ?id " +
+        Iterator<List<Object>> schemaIds = FluxMetrics.q("ImmutableFluxGraph.setupAdditionalMetaModel", "[:find ?id " +
                                                    ":where [?id :db/valueType _] " +
                                                           "[?id ?attribute ?value] ]", originGraph.getRawGraph().since(new Date(1))).iterator();
 
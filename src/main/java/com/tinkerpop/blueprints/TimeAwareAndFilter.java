@@ -0,0 +1,34 @@
+package com.tinkerpop.blueprints;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Filter that only retains the versions of an element that satisfy all of its filters.
+ * Implementations can evaluate the combination without materializing rejected versions if all of its filters are declarative.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class TimeAwareAndFilter implements TimeAwareFilter {
+
+    private final List<TimeAwareFilter> filters;
+
+    public TimeAwareAndFilter(final TimeAwareFilter... filters) {
+        this.filters = Arrays.asList(filters);
+    }
+
+    public List<TimeAwareFilter> getFilters() {
+        return filters;
+    }
+
+    @Override
+    public TimeAwareElement filter(final TimeAwareElement timeAwareElement) {
+        for (TimeAwareFilter filter : filters) {
+            if (filter.filter(timeAwareElement) == null) {
+                return null;
+            }
+        }
+        return timeAwareElement;
+    }
+
+}
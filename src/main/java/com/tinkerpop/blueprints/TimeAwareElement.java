@@ -2,6 +2,8 @@ package com.tinkerpop.blueprints;
 
 import org.joda.time.Interval;
 
+import java.util.Date;
+
 /**
  * A TimeAwareElement is the base interface for time-aware elements (i.e. time-aware vertices and edges).
  * It extends the base blueprints Element interface with time-based operations
@@ -82,4 +84,22 @@ public interface TimeAwareElement extends Element {
      */
     public Interval getTimeInterval();
 
+    /**
+     * Returns all changes of a property of this element (up till the time scope of this version of the element)
+     *
+     * @param key the key of the property
+     * @return the property history, ordered in time
+     */
+    public TimeAwarePropertyHistory getPropertyHistory(String key);
+
+    /**
+     * Returns the changes of a property of this element that occurred within a particular time window
+     *
+     * @param key the key of the property
+     * @param from the start of the window (inclusive), or null for no lower bound
+     * @param to the end of the window (exclusive), or null for no upper bound
+     * @return the property history, ordered in time
+     */
+    public TimeAwarePropertyHistory getPropertyHistory(String key, Date from, Date to);
+
 }
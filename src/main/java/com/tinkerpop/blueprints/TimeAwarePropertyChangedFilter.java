@@ -0,0 +1,30 @@
+package com.tinkerpop.blueprints;
+
+/**
+ * Declarative filter that only retains the versions of an element in which a particular property was set, changed or removed.
+ * Implementations can evaluate this filter without materializing the versions that are rejected.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class TimeAwarePropertyChangedFilter implements TimeAwareFilter {
+
+    private final String key;
+
+    public TimeAwarePropertyChangedFilter(final String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public TimeAwareElement filter(final TimeAwareElement timeAwareElement) {
+        TimeAwareElement previousVersion = timeAwareElement.getPreviousVersion();
+        Object previousValue = previousVersion != null ? previousVersion.getProperty(key) : null;
+        Object value = timeAwareElement.getProperty(key);
+        boolean changed = value == null ? previousValue != null : !value.equals(previousValue);
+        return changed ? timeAwareElement : null;
+    }
+
+}
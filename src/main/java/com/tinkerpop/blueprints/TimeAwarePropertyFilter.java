@@ -0,0 +1,80 @@
+package com.tinkerpop.blueprints;
+
+/**
+ * Declarative filter that only retains the versions of an element for which the value of a property satisfies a comparison.
+ * Versions in which the property is not set never satisfy the comparison. Implementations can evaluate this filter without
+ * materializing the versions that are rejected.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class TimeAwarePropertyFilter implements TimeAwareFilter {
+
+    private final String key;
+    private final Query.Compare compare;
+    private final Object value;
+
+    public TimeAwarePropertyFilter(final String key, final Query.Compare compare, final Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("The value of a property filter can not be null");
+        }
+        this.key = key;
+        this.compare = compare;
+        this.value = value;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Query.Compare getCompare() {
+        return compare;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * Checks whether a property value satisfies the comparison
+     *
+     * @param propertyValue the property value (null if the property is not set)
+     * @return true if the property value satisfies the comparison
+     */
+    public boolean evaluate(final Object propertyValue) {
+        if (propertyValue == null) {
+            return false;
+        }
+        Integer comparison = compareTo(propertyValue);
+        switch (compare) {
+            case EQUAL:
+                return comparison != null ? comparison == 0 : propertyValue.equals(value);
+            case NOT_EQUAL:
+                return comparison != null ? comparison != 0 : !propertyValue.equals(value);
+            case GREATER_THAN:
+                return comparison != null && comparison > 0;
+            case GREATER_THAN_EQUAL:
+                return comparison != null && comparison >= 0;
+            case LESS_THAN:
+                return comparison != null && comparison < 0;
+            default:
+                return comparison != null && comparison <= 0;
+        }
+    }
+
+    // Numbers are compared by value (independent of their type), other values need to be comparable to the value of the filter (null otherwise)
+    private Integer compareTo(final Object propertyValue) {
+        if (propertyValue instanceof Number && value instanceof Number) {
+            return Double.compare(((Number)propertyValue).doubleValue(), ((Number)value).doubleValue());
+        }
+        if (propertyValue instanceof Comparable && propertyValue.getClass().equals(value.getClass())) {
+            return ((Comparable)propertyValue).compareTo(value);
+        }
+        return null;
+    }
+
+    @Override
+    public TimeAwareElement filter(final TimeAwareElement timeAwareElement) {
+        return evaluate(timeAwareElement.getProperty(key)) ? timeAwareElement : null;
+    }
+
+}
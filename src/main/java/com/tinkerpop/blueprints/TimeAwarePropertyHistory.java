@@ -0,0 +1,89 @@
+package com.tinkerpop.blueprints;
+
+import java.util.Date;
+
+/**
+ * The history of a single property of a time aware element, stored in columnar form: for each change (ordered in time),
+ * the instant on which it occurred, the value and whether the value was asserted (set) or retracted (removed).
+ * An update of a property is represented as the retraction of the old value followed by the assertion of the new value.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class TimeAwarePropertyHistory {
+
+    private final String key;
+    private final long[] times;
+    private final Object[] values;
+    private final boolean[] asserted;
+
+    public TimeAwarePropertyHistory(final String key, final long[] times, final Object[] values, final boolean[] asserted) {
+        if (times.length != values.length || times.length != asserted.length) {
+            throw new IllegalArgumentException("All columns of a property history should have the same length");
+        }
+        this.key = key;
+        this.times = times;
+        this.values = values;
+        this.asserted = asserted;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    // The number of changes
+    public int size() {
+        return times.length;
+    }
+
+    public boolean isEmpty() {
+        return times.length == 0;
+    }
+
+    // The instant (in milliseconds since the epoch) of the change at the given position
+    public long getTime(final int index) {
+        return times[index];
+    }
+
+    public Date getDate(final int index) {
+        return new Date(times[index]);
+    }
+
+    public Object getValue(final int index) {
+        return values[index];
+    }
+
+    // Returns true if the value at the given position was asserted, false if it was retracted
+    public boolean isAsserted(final int index) {
+        return asserted[index];
+    }
+
+    // The instants of all changes (the array is shared, do not modify)
+    public long[] getTimes() {
+        return times;
+    }
+
+    // The values of all changes (the array is shared, do not modify)
+    public Object[] getValues() {
+        return values;
+    }
+
+    // The assertion flags of all changes (the array is shared, do not modify)
+    public boolean[] getAsserted() {
+        return asserted;
+    }
+
+    // The values of all changes as doubles (NaN for non-numeric values)
+    public double[] getValuesAsDoubles() {
+        double[] doubles = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            doubles[i] = values[i] instanceof Number ? ((Number)values[i]).doubleValue() : Double.NaN;
+        }
+        return doubles;
+    }
+
+    @Override
+    public String toString() {
+        return "propertyhistory[" + key + ", changes:" + times.length + "]";
+    }
+
+}
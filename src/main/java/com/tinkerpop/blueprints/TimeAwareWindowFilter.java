@@ -0,0 +1,48 @@
+package com.tinkerpop.blueprints;
+
+import java.util.Date;
+
+/**
+ * Declarative filter that only retains the versions of an element that started within a particular time window.
+ * Implementations can evaluate this filter without materializing the versions that are rejected.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class TimeAwareWindowFilter implements TimeAwareFilter {
+
+    private final Date from;
+    private final Date to;
+
+    /**
+     * @param from the start of the window (inclusive), or null for no lower bound
+     * @param to the end of the window (exclusive), or null for no upper bound
+     */
+    public TimeAwareWindowFilter(final Date from, final Date to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    public Date getFrom() {
+        return from;
+    }
+
+    public Date getTo() {
+        return to;
+    }
+
+    /**
+     * Checks whether an instant (in milliseconds since the epoch) falls within the window
+     *
+     * @param time the instant
+     * @return true if the instant falls within the window
+     */
+    public boolean contains(final long time) {
+        return (from == null || time >= from.getTime()) && (to == null || time < to.getTime());
+    }
+
+    @Override
+    public TimeAwareElement filter(final TimeAwareElement timeAwareElement) {
+        return contains(timeAwareElement.getTimeInterval().getStartMillis()) ? timeAwareElement : null;
+    }
+
+}
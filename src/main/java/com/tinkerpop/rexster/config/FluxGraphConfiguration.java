@@ -1,7 +1,13 @@
 package com.tinkerpop.rexster.config;
 
 import com.jnj.fluxgraph.FluxGraph;
+import com.jnj.fluxgraph.FluxGraphRegistry;
+import com.jnj.fluxgraph.FluxMetrics;
+import com.jnj.fluxgraph.FluxTracer;
+import com.jnj.fluxgraph.FluxWarmup;
+import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
 import com.tinkerpop.rexster.Tokens;
 import org.apache.commons.configuration.Configuration;
 
@@ -13,11 +19,25 @@ import org.apache.commons.configuration.Configuration;
  *    <graph-name>fluxgraphexample</graph-name>
  *    <graph-type>com.tinkerpop.rexster.config.FluxGraphConfiguration</graph-type>
  *    <graph-location>datomic:free://localhost:4334/flux</graph-location>
+ *    <properties>
+ *      <warmup>true</warmup>
+ *      <warmup-background>true</warmup-background>
+ *      <warmup-threads>4</warmup-threads>
+ *      <warmup-vertex-keys>name,age</warmup-vertex-keys>
+ *      <warmup-edge-keys>weight</warmup-edge-keys>
+ *      <metrics-jmx>true</metrics-jmx>
+ *      <slow-query-threshold>100</slow-query-threshold>
+ *    </properties>
  *  </graph>
  * </code>
  *
+ * The metrics of FluxGraph are exposed over JMX (unless metrics-jmx is false) and through the flux:metrics extension.
+ * Datomic calls that take longer than the slow query threshold (in milliseconds) are logged to the com.jnj.fluxgraph.slowquery logger.
+ * The (optional) warm-up preloads the peer cache with the structural indexes and the indexes of the listed key-indexed properties.
+ * Listing a property that is not key-indexed is a configuration error.
+ *
  * To deploy copy the FluxGraph jar (with dependencies) to the Rexster ext directory.   Ensure that the FluxGraph
- * is running.
+ * is running. Graph instances are shared (per location) through the FluxGraphRegistry.
  *
  * @author Stephen Mallette (http://stephen.genoprime.com)
  */
@@ -33,7 +53,37 @@ public class FluxGraphConfiguration implements GraphConfiguration {
 
         try {
 
-            return new FluxGraph(graphFile);
+            final FluxGraph graph = FluxGraphRegistry.open(graphFile);
+            final Configuration graphProperties = properties.subset(Tokens.REXSTER_GRAPH_PROPERTIES);
+            if (graphProperties.getBoolean("metrics-jmx", true)) {
+                FluxMetrics.registerMBean();
+            }
+            if (graphProperties.containsKey("slow-query-threshold")) {
+                FluxTracer.setSlowQueryThreshold(graphProperties.getLong("slow-query-threshold", -1));
+            }
+            if (graphProperties.getBoolean("warmup", false)) {
+                try {
+                    final FluxWarmup warmup = graph.warmup();
+                    for (String key : graphProperties.getStringArray("warmup-vertex-keys")) {
+                        warmup.key(key.trim(), Vertex.class);
+                    }
+                    for (String key : graphProperties.getStringArray("warmup-edge-keys")) {
+                        warmup.key(key.trim(), Edge.class);
+                    }
+                    final int threads = graphProperties.getInt("warmup-threads", Runtime.getRuntime().availableProcessors());
+                    if (graphProperties.getBoolean("warmup-background", true)) {
+                        warmup.start(threads);
+                    }
+                    else {
+                        warmup.run(threads);
+                    }
+                } catch (RuntimeException e) {
+                    // Do not keep a reference on the shared graph when its configuration is invalid
+                    graph.shutdown();
+                    throw e;
+                }
+            }
+            return graph;
 
         } catch (Exception ex) {
             throw new GraphConfigurationException(ex);
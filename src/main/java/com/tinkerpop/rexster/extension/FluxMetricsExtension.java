@@ -0,0 +1,67 @@
+package com.tinkerpop.rexster.extension;
+
+import com.jnj.fluxgraph.FluxGraph;
+import com.jnj.fluxgraph.FluxMetrics;
+import com.jnj.fluxgraph.FluxMetricsCollector;
+import com.jnj.fluxgraph.FluxMetricsRegistry;
+import com.jnj.fluxgraph.FluxWarmup;
+import com.tinkerpop.blueprints.Graph;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rexster extension that exposes the FluxGraph metrics (counters, latency histograms in nanoseconds and cache statistics).
+ * Enable it in rexster.xml as follows:
+ *
+ * <code>
+ *  <extensions>
+ *    <allows>
+ *      <allow>flux:*</allow>
+ *    </allows>
+ *  </extensions>
+ * </code>
+ *
+ * The metrics are then available at /graphs/{graph}/flux/metrics
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+@ExtensionNaming(namespace = "flux", name = "metrics")
+public class FluxMetricsExtension extends AbstractRexsterExtension {
+
+    @ExtensionDefinition(extensionPoint = ExtensionPoint.GRAPH, method = HttpMethod.GET)
+    @ExtensionDescriptor(description = "Returns the FluxGraph metrics")
+    public ExtensionResponse evaluate(@RexsterContext Graph graph) {
+        Map<String,Object> metrics = new HashMap<String,Object>();
+        FluxMetricsRegistry registry = FluxMetrics.getRegistry();
+        if (registry instanceof FluxMetricsCollector) {
+            metrics.put("counters", ((FluxMetricsCollector)registry).getCounters());
+            metrics.put("histograms", ((FluxMetricsCollector)registry).getHistograms());
+        }
+        if (graph instanceof FluxGraph) {
+            FluxGraph fluxGraph = (FluxGraph)graph;
+            Map<String,Object> queryCache = new HashMap<String,Object>();
+            queryCache.put("hits", fluxGraph.getQueryCache().getHits());
+            queryCache.put("misses", fluxGraph.getQueryCache().getMisses());
+            queryCache.put("evictions", fluxGraph.getQueryCache().getEvictions());
+            queryCache.put("size", fluxGraph.getQueryCache().getSize());
+            metrics.put("queryCache", queryCache);
+            Map<String,Object> databaseCache = new HashMap<String,Object>();
+            databaseCache.put("hits", fluxGraph.getDatabaseCache().getHits());
+            databaseCache.put("misses", fluxGraph.getDatabaseCache().getMisses());
+            databaseCache.put("size", fluxGraph.getDatabaseCache().size());
+            metrics.put("databaseCache", databaseCache);
+            FluxWarmup warmup = fluxGraph.getLastWarmup();
+            if (warmup != null) {
+                Map<String,Object> warmupMetrics = new HashMap<String,Object>();
+                warmupMetrics.put("done", warmup.isDone());
+                warmupMetrics.put("duration", warmup.getDuration());
+                warmupMetrics.put("datoms", warmup.getDatoms());
+                warmupMetrics.put("estimatedSegments", warmup.getEstimatedSegments());
+                metrics.put("warmup", warmupMetrics);
+            }
+        }
+        return ExtensionResponse.ok(metrics);
+    }
+
+}
@@ -0,0 +1,166 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Vertex;
+import junit.framework.TestCase;
+
+import java.util.UUID;
+
+/**
+ * Tests the parallel graph algorithms on small graphs with known results.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxAlgorithmsTest extends TestCase {
+
+    private static final double DELTA = 1e-6;
+
+    private FluxGraph graph;
+
+    @Override
+    protected void setUp() throws Exception {
+        graph = new FluxGraph("datomic:mem://algorithms" + UUID.randomUUID());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        graph.shutdown();
+    }
+
+    public void testPageRankCycle() {
+        Vertex[] vertices = addVertices(3);
+        graph.addEdge(null, vertices[0], vertices[1], "next");
+        graph.addEdge(null, vertices[1], vertices[2], "next");
+        graph.addEdge(null, vertices[2], vertices[0], "next");
+        double[] ranks = new FluxAlgorithms(graph.snapshot()).pageRank(0.85, 100, 1e-12);
+        for (double rank : ranks) {
+            assertEquals(1.0d / 3, rank, DELTA);
+        }
+    }
+
+    public void testPageRankStar() {
+        // Three leaves pointing to a dangling center. Solving r(center) + 3 r(leaf) = 1 and r(leaf) = 0.15 / 4 + 0.85 r(center) / 4
+        // gives r(center) = 0.8875 / 1.6375
+        Vertex[] vertices = addVertices(4);
+        for (int i = 1; i < 4; i++) {
+            graph.addEdge(null, vertices[i], vertices[0], "points");
+        }
+        FluxSnapshot snapshot = graph.snapshot();
+        double[] ranks = new FluxAlgorithms(snapshot).parallelism(2).pageRank(0.85, 100, 1e-12);
+        double center = 0.8875d / 1.6375d;
+        assertEquals(center, ranks[snapshot.getIndex(vertices[0].getId())], DELTA);
+        for (int i = 1; i < 4; i++) {
+            assertEquals((1.0d - center) / 3, ranks[snapshot.getIndex(vertices[i].getId())], DELTA);
+        }
+    }
+
+    public void testBfsLevels() {
+        Vertex[] vertices = addVertices(5);
+        graph.addEdge(null, vertices[0], vertices[1], "next");
+        graph.addEdge(null, vertices[1], vertices[2], "next");
+        graph.addEdge(null, vertices[2], vertices[3], "next");
+        graph.addEdge(null, vertices[0], vertices[2], "next");
+        FluxSnapshot snapshot = graph.snapshot();
+        int source = snapshot.getIndex(vertices[0].getId());
+        int[] levels = new FluxAlgorithms(snapshot).bfsLevels(source, Direction.OUT);
+        assertEquals(0, levels[source]);
+        assertEquals(1, levels[snapshot.getIndex(vertices[1].getId())]);
+        assertEquals(1, levels[snapshot.getIndex(vertices[2].getId())]);
+        assertEquals(2, levels[snapshot.getIndex(vertices[3].getId())]);
+        assertEquals(-1, levels[snapshot.getIndex(vertices[4].getId())]);
+        // Nothing points to the source
+        levels = new FluxAlgorithms(snapshot).bfsLevels(source, Direction.IN);
+        assertEquals(-1, levels[snapshot.getIndex(vertices[1].getId())]);
+    }
+
+    public void testConnectedComponents() {
+        Vertex[] vertices = addVertices(6);
+        graph.addEdge(null, vertices[0], vertices[1], "link");
+        graph.addEdge(null, vertices[2], vertices[1], "link");
+        graph.addEdge(null, vertices[3], vertices[4], "link");
+        FluxSnapshot snapshot = graph.snapshot();
+        int[] components = new FluxAlgorithms(snapshot).parallelism(2).connectedComponents();
+        int[] indices = new int[vertices.length];
+        for (int i = 0; i < vertices.length; i++) {
+            indices[i] = snapshot.getIndex(vertices[i].getId());
+        }
+        assertEquals(Math.min(indices[0], Math.min(indices[1], indices[2])), components[indices[0]]);
+        assertEquals(components[indices[0]], components[indices[1]]);
+        assertEquals(components[indices[0]], components[indices[2]]);
+        assertEquals(Math.min(indices[3], indices[4]), components[indices[3]]);
+        assertEquals(components[indices[3]], components[indices[4]]);
+        assertEquals(indices[5], components[indices[5]]);
+    }
+
+    public void testTriangles() {
+        Vertex[] vertices = addVertices(4);
+        graph.addEdge(null, vertices[0], vertices[1], "link");
+        graph.addEdge(null, vertices[1], vertices[2], "link");
+        graph.addEdge(null, vertices[2], vertices[0], "link");
+        graph.addEdge(null, vertices[0], vertices[3], "link");
+        // Parallel edges and self loops do not add triangles
+        graph.addEdge(null, vertices[1], vertices[0], "link");
+        graph.addEdge(null, vertices[3], vertices[3], "link");
+        FluxSnapshot snapshot = graph.snapshot();
+        FluxAlgorithms algorithms = new FluxAlgorithms(snapshot);
+        int[] triangles = algorithms.triangles();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(1, triangles[snapshot.getIndex(vertices[i].getId())]);
+        }
+        assertEquals(0, triangles[snapshot.getIndex(vertices[3].getId())]);
+        assertEquals(1, algorithms.countTriangles());
+    }
+
+    public void testWriteBack() {
+        Vertex[] vertices = addVertices(3);
+        graph.addEdge(null, vertices[0], vertices[1], "next");
+        FluxSnapshot snapshot = graph.snapshot();
+        FluxAlgorithms algorithms = new FluxAlgorithms(snapshot);
+        double[] ranks = algorithms.pageRank(0.85, 100, 1e-12);
+        algorithms.writeBack("rank", ranks, 2);
+        int[] levels = algorithms.bfsLevels(snapshot.getIndex(vertices[0].getId()), Direction.OUT);
+        algorithms.writeBack("level", levels, 1);
+        for (Vertex vertex : vertices) {
+            int index = snapshot.getIndex(vertex.getId());
+            assertEquals(ranks[index], ((Number)graph.getVertex(vertex.getId()).getProperty("rank")).doubleValue(), DELTA);
+        }
+        assertEquals(0, ((Number)graph.getVertex(vertices[0].getId()).getProperty("level")).intValue());
+        assertEquals(1, ((Number)graph.getVertex(vertices[1].getId()).getProperty("level")).intValue());
+        // Unreachable vertices are not written
+        assertNull(graph.getVertex(vertices[2].getId()).getProperty("level"));
+    }
+
+    public void testWriteBackArguments() {
+        addVertices(2);
+        FluxAlgorithms algorithms = new FluxAlgorithms(graph.snapshot());
+        try {
+            algorithms.writeBack("rank", new double[3], 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            algorithms.writeBack("rank", new double[2], 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            algorithms.writeBack(":db/ident", new int[2], 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            algorithms.parallelism(0);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    private Vertex[] addVertices(final int count) {
+        Vertex[] vertices = new Vertex[count];
+        for (int i = 0; i < count; i++) {
+            vertices[i] = graph.addVertex(null);
+        }
+        return vertices;
+    }
+
+}
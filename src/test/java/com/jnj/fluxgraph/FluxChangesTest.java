@@ -0,0 +1,104 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import junit.framework.TestCase;
+
+import java.util.*;
+
+/**
+ * Tests the retrieval of the elements that changed within a window of transactions from the Datomic log.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxChangesTest extends TestCase {
+
+    private FluxGraph graph;
+    private Vertex marko, vadas, lop;
+    private Edge knows;
+    private long startT;
+    private long endT;
+    private Date startDate;
+    private Date endDate;
+
+    @Override
+    protected void setUp() throws Exception {
+        graph = new FluxGraph("datomic:mem://changes" + UUID.randomUUID());
+        marko = graph.addVertex(null);
+        // The attribute of the property is created before the window
+        marko.setProperty("name", "marko");
+        startT = graph.getRawGraph().basisT() + 1;
+        startDate = tick();
+        // The window consists of five transactions
+        vadas = graph.addVertex(null);
+        marko.setProperty("name", "marko rodriguez");
+        knows = graph.addEdge(null, marko, vadas, "knows");
+        lop = graph.addVertex(null);
+        graph.removeVertex(graph.getVertex(lop.getId()));
+        endT = graph.getRawGraph().basisT() + 1;
+        endDate = tick();
+        // Changes after the window
+        vadas.setProperty("name", "vadas");
+        graph.removeEdge(graph.getEdge(knows.getId()));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        graph.shutdown();
+    }
+
+    public void testWindowByT() {
+        assertLog();
+        assertWindow(graph.getChanges(startT, endT));
+    }
+
+    public void testWindowByDate() {
+        assertLog();
+        assertWindow(graph.getChanges(startDate, endDate));
+    }
+
+    public void testEmptyWindow() {
+        assertLog();
+        FluxChanges changes = graph.getChanges(endDate, endDate);
+        assertEquals(0, changes.getTransactionCount());
+        assertTrue(changes.getChangedVertices().isEmpty());
+        assertTrue(changes.getChangedEdges().isEmpty());
+    }
+
+    public void testAfterWindow() {
+        assertLog();
+        FluxChanges changes = graph.getChanges(endT, graph.getRawGraph().basisT() + 1);
+        assertEquals(set(vadas.getId()), changes.getUpdatedVertices());
+        assertEquals(set(knows.getId()), changes.getRemovedEdges());
+        assertTrue(changes.getAddedVertices().isEmpty());
+    }
+
+    private void assertWindow(final FluxChanges changes) {
+        assertEquals(5, changes.getTransactionCount());
+        // lop was both added and removed within the window
+        assertEquals(set(vadas.getId(), lop.getId()), changes.getAddedVertices());
+        assertEquals(set(lop.getId()), changes.getRemovedVertices());
+        assertEquals(set(marko.getId()), changes.getUpdatedVertices());
+        assertEquals(set(marko.getId(), vadas.getId(), lop.getId()), changes.getChangedVertices());
+        assertEquals(set(knows.getId()), changes.getAddedEdges());
+        assertTrue(changes.getRemovedEdges().isEmpty());
+        assertTrue(changes.getUpdatedEdges().isEmpty());
+    }
+
+    // The changes are retrieved from the log, which is available for in-memory databases as well
+    private void assertLog() {
+        assertNotNull("Retrieving the changes requires the Datomic log", graph.getConnection().log());
+    }
+
+    private static Set<Object> set(final Object... ids) {
+        return new HashSet<Object>(Arrays.asList(ids));
+    }
+
+    private static Date tick() throws InterruptedException {
+        Thread.sleep(10);
+        Date now = new Date();
+        Thread.sleep(10);
+        return now;
+    }
+
+}
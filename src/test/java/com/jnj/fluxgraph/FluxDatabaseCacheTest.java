@@ -0,0 +1,86 @@
+package com.jnj.fluxgraph;
+
+import clojure.lang.Keyword;
+import datomic.Database;
+import junit.framework.TestCase;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Tests the sharing of asOf database values through the database cache.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxDatabaseCacheTest extends TestCase {
+
+    private static final Keyword VERTEX = Keyword.intern("graph.element.type/vertex");
+
+    private FluxGraph graph;
+    private long firstT;
+    private long secondT;
+    private Date betweenDate;
+
+    @Override
+    protected void setUp() throws Exception {
+        graph = new FluxGraph("datomic:mem://databasecache" + UUID.randomUUID());
+        graph.addVertex(null);
+        firstT = graph.getRawGraph().basisT();
+        Thread.sleep(10);
+        betweenDate = new Date();
+        Thread.sleep(10);
+        graph.addVertex(null);
+        secondT = graph.getRawGraph().basisT();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        graph.shutdown();
+    }
+
+    public void testPastPoints() {
+        FluxDatabaseCache cache = new FluxDatabaseCache(graph.getConnection());
+        Database database = cache.asOf(firstT);
+        assertSame(database, cache.asOf(firstT));
+        assertEquals(1, FluxUtil.countElements(database, VERTEX));
+        Database date = cache.asOf(betweenDate);
+        assertSame(date, cache.asOf(betweenDate));
+        assertEquals(1, FluxUtil.countElements(date, VERTEX));
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.size());
+    }
+
+    public void testFuturePoints() {
+        FluxDatabaseCache cache = new FluxDatabaseCache(graph.getConnection());
+        // Transactions that are committed later on would not be part of these database values
+        Date now = new Date(System.currentTimeMillis() + 1000);
+        cache.asOf(now);
+        cache.asOf(secondT + 1000);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHits());
+        graph.addVertex(null);
+        assertEquals(3, FluxUtil.countElements(cache.asOf(now), VERTEX));
+    }
+
+    public void testBounded() {
+        FluxDatabaseCache cache = new FluxDatabaseCache(graph.getConnection(), 1);
+        cache.asOf(firstT);
+        cache.asOf(secondT);
+        assertEquals(1, cache.size());
+        // The least recently used value was dropped
+        cache.asOf(firstT);
+        assertEquals(0, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+
+    public void testGraphUsesCache() {
+        graph.getDatabaseCache().clear();
+        long hits = graph.getDatabaseCache().getHits();
+        graph.getRawGraph(firstT);
+        graph.getRawGraph(firstT);
+        assertEquals(hits + 1, graph.getDatabaseCache().getHits());
+        assertEquals(1, FluxUtil.countElements(graph.getRawGraph(firstT), VERTEX));
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.jnj.fluxgraph;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Tests the sharing of graph instances and connections through the registry.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxGraphRegistryTest extends TestCase {
+
+    private String graphURI;
+
+    @Override
+    protected void setUp() throws Exception {
+        graphURI = "datomic:mem://registry" + UUID.randomUUID();
+    }
+
+    public void testSharedGraph() {
+        FluxGraph graph1 = FluxGraphRegistry.open(graphURI);
+        FluxGraph graph2 = FluxGraphRegistry.open(graphURI);
+        assertSame(graph1, graph2);
+        assertEquals(2, FluxGraphRegistry.getReferenceCount(graphURI));
+        assertTrue(FluxGraphRegistry.getGraphURIs().contains(graphURI));
+        // The graph remains usable until its last user shuts it down
+        graph1.shutdown();
+        assertEquals(1, FluxGraphRegistry.getReferenceCount(graphURI));
+        graph2.addVertex(null);
+        assertEquals(1, graph2.countVertices());
+        graph2.shutdown();
+        assertEquals(0, FluxGraphRegistry.getReferenceCount(graphURI));
+        assertFalse(FluxGraphRegistry.getGraphURIs().contains(graphURI));
+        // A new shared graph is created for the next user
+        FluxGraph graph3 = FluxGraphRegistry.open(graphURI);
+        assertNotSame(graph1, graph3);
+        assertEquals(1, FluxGraphRegistry.getReferenceCount(graphURI));
+        graph3.shutdown();
+    }
+
+    public void testConcurrentOpen() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<FluxGraph>> futures = new ArrayList<Future<FluxGraph>>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(new Callable<FluxGraph>() {
+                    @Override
+                    public FluxGraph call() {
+                        return FluxGraphRegistry.open(graphURI);
+                    }
+                }));
+            }
+            FluxGraph graph = futures.get(0).get();
+            for (Future<FluxGraph> future : futures) {
+                assertSame(graph, future.get());
+            }
+            assertEquals(4, FluxGraphRegistry.getReferenceCount(graphURI));
+            for (int i = 0; i < 4; i++) {
+                graph.shutdown();
+            }
+            // Graphs that lost the race released their connection reference as well
+            try {
+                FluxGraphRegistry.getTransactionQueue(graphURI);
+                fail();
+            } catch (IllegalArgumentException e) {
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testFailedSetup() {
+        try {
+            new FluxGraph(graphURI) {
+                @Override
+                protected void setupIndexMetaModel(final boolean backdate) {
+                    throw new IllegalStateException("Setup failure");
+                }
+            };
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        // The connection reference is released
+        try {
+            FluxGraphRegistry.getTransactionQueue(graphURI);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testSharedConnection() {
+        FluxGraph graph1 = new FluxGraph(graphURI);
+        FluxGraph graph2 = new FluxGraph(graphURI);
+        assertSame(graph1.getConnection(), graph2.getConnection());
+        // Datomic only provides a single report queue per connection, hence the dispatcher is shared
+        assertSame(graph1.getTransactionQueue(), graph2.getTransactionQueue());
+        graph1.addVertex(null);
+        assertEquals(1, graph1.countVertices());
+        // Shutting down one graph does not release the connection of the other one
+        graph1.shutdown();
+        graph2.addVertex(null);
+        assertEquals(2, graph2.countVertices());
+        graph2.shutdown();
+        try {
+            FluxGraphRegistry.getTransactionQueue(graphURI);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testShutdownTwice() {
+        FluxGraph graph1 = new FluxGraph(graphURI);
+        FluxGraph graph2 = new FluxGraph(graphURI);
+        // Shutting down the same graph twice only releases its connection once
+        graph1.shutdown();
+        graph1.shutdown();
+        graph2.addVertex(null);
+        assertEquals(1, graph2.countVertices());
+        assertSame(graph2.getTransactionQueue(), FluxGraphRegistry.getTransactionQueue(graphURI));
+        graph2.shutdown();
+    }
+
+}
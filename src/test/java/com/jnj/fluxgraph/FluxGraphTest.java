@@ -24,6 +24,12 @@ public class FluxGraphTest extends GraphTest {
         printTestPerformance("FluxBenchmarkTestSuite", this.stopWatch());
     }*/
 
+    /*public void testTemporalPathBenchmarkTestSuite() throws Exception {
+        this.stopWatch();
+        doTestSuite(new FluxTemporalPathBenchmarkTestSuite(this));
+        printTestPerformance("FluxTemporalPathBenchmarkTestSuite", this.stopWatch());
+    }*/
+
     public void testVertexTestSuite() throws Exception {
         this.stopWatch();
         doTestSuite(new VertexTestSuite(this));
@@ -54,6 +60,18 @@ public class FluxGraphTest extends GraphTest {
         printTestPerformance("KeyIndexableGraphTestSuite", this.stopWatch());
     }
 
+    public void testIndexableGraphTestSuite() throws Exception {
+        this.stopWatch();
+        doTestSuite(new IndexableGraphTestSuite(this));
+        printTestPerformance("IndexableGraphTestSuite", this.stopWatch());
+    }
+
+    public void testIndexTestSuite() throws Exception {
+        this.stopWatch();
+        doTestSuite(new IndexTestSuite(this));
+        printTestPerformance("IndexTestSuite", this.stopWatch());
+    }
+
     public void testGraphMLReaderTestSuite() throws Exception {
         this.stopWatch();
         doTestSuite(new GraphMLReaderTestSuite(this));
@@ -0,0 +1,135 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.*;
+import junit.framework.TestCase;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Tests the read-only asOf views on a graph.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxGraphViewTest extends TestCase {
+
+    private FluxGraph graph;
+    private Vertex marko, vadas;
+    private Edge knows;
+    private long firstT;
+    private Date firstDate;
+    private Date secondDate;
+
+    @Override
+    protected void setUp() throws Exception {
+        graph = new FluxGraph("datomic:mem://graphview" + UUID.randomUUID());
+        marko = graph.addVertex(null);
+        marko.setProperty("name", "marko");
+        firstT = graph.getRawGraph().basisT();
+        firstDate = tick();
+        vadas = graph.addVertex(null);
+        knows = graph.addEdge(null, marko, vadas, "knows");
+        marko.setProperty("name", "marko rodriguez");
+        secondDate = tick();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        graph.shutdown();
+    }
+
+    public void testAsOfTransaction() {
+        assertFirstVersion(graph.asOf(firstT));
+    }
+
+    public void testAsOfDate() {
+        assertFirstVersion(graph.asOf(firstDate));
+        FluxGraphView view = graph.asOf(secondDate);
+        assertEquals(2, view.countVertices());
+        assertEquals(1, view.countEdges("knows"));
+        assertEquals("marko rodriguez", view.getVertex(marko.getId()).getProperty("name"));
+        assertEquals(knows.getId(), view.getEdge(knows.getId()).getId());
+    }
+
+    public void testViewsAreIndependentOfTheGraph() {
+        FluxGraphView view = graph.asOf(firstDate);
+        graph.addVertex(null);
+        assertEquals(1, view.countVertices());
+        assertEquals(3, graph.countVertices());
+        // Other views can be derived from a view
+        assertEquals(2, view.asOf(secondDate).countVertices());
+        assertSame(graph, view.getGraph());
+    }
+
+    public void testSharedAcrossThreads() throws Exception {
+        final FluxGraphView view = graph.asOf(firstDate);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<Long>[] counts = new Future[8];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        return view.countVertices();
+                    }
+                });
+            }
+            for (Future<Long> count : counts) {
+                assertEquals(1, count.get().longValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testReadOnly() {
+        FluxGraphView view = graph.asOf(firstDate);
+        try {
+            view.addVertex(null);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            view.removeEdge(knows);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            view.setCheckpointTime(secondDate);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testDifferenceKeepsTheGraphCurrent() {
+        WorkingSet workingSet = new WorkingSet();
+        workingSet.addVertex(marko);
+        Graph difference = graph.difference(workingSet, firstDate, secondDate);
+        assertNotNull(difference);
+        // The difference does not pin the graph to any of both dates
+        assertEquals(graph.getConnection().db().basisT(), graph.getRawGraph().basisT());
+        assertEquals(2, graph.countVertices());
+    }
+
+    private void assertFirstVersion(final FluxGraphView view) {
+        assertEquals(1, view.countVertices());
+        assertEquals(0, view.countEdges());
+        assertEquals("marko", view.getVertex(marko.getId()).getProperty("name"));
+        int vertices = 0;
+        for (Vertex vertex : view.getVertices()) {
+            assertEquals(marko.getId(), vertex.getId());
+            vertices++;
+        }
+        assertEquals(1, vertices);
+        assertFalse(view.getEdges().iterator().hasNext());
+    }
+
+    private static Date tick() throws InterruptedException {
+        Thread.sleep(10);
+        Date now = new Date();
+        Thread.sleep(10);
+        return now;
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.jnj.fluxgraph;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the bucketing and percentile calculation of the latency histograms.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxHistogramTest extends TestCase {
+
+    public void testEmpty() {
+        FluxHistogram histogram = new FluxHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0.0, histogram.getMean());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(0, histogram.getMax());
+    }
+
+    public void testSmallValues() {
+        FluxHistogram histogram = new FluxHistogram();
+        // Values below the number of sub-buckets are kept exactly
+        for (long value = 1; value <= 4; value++) {
+            histogram.record(value);
+        }
+        assertEquals(4, histogram.getCount());
+        assertEquals(10, histogram.getTotal());
+        assertEquals(2.5, histogram.getMean());
+        assertEquals(1, histogram.getValueAtPercentile(0));
+        assertEquals(2, histogram.getValueAtPercentile(50));
+        assertEquals(3, histogram.getValueAtPercentile(75));
+        assertEquals(4, histogram.getValueAtPercentile(100));
+        assertEquals(4, histogram.getValueAtPercentile(200));
+    }
+
+    public void testPercentiles() {
+        FluxHistogram histogram = new FluxHistogram();
+        for (long value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+        assertEquals(50.5, histogram.getMean());
+        // The highest value of the bucket of the percentile is returned (48-51, 88-95 and 96-103)
+        assertEquals(51, histogram.getValueAtPercentile(50));
+        assertEquals(95, histogram.getValueAtPercentile(90));
+        // But never more than the maximum
+        assertEquals(100, histogram.getValueAtPercentile(99));
+        assertEquals(100, histogram.getMax());
+    }
+
+    public void testPrecision() {
+        for (long value = 8; value < Long.MAX_VALUE / 16; value = value * 3 + 1) {
+            FluxHistogram histogram = new FluxHistogram();
+            histogram.record(value);
+            histogram.record(value * 10);
+            // A bucket is at most an eighth of the values it holds wide
+            long percentile = histogram.getValueAtPercentile(50);
+            assertTrue(percentile >= value);
+            assertTrue(percentile <= value + value / 8);
+        }
+    }
+
+    public void testNegativeValues() {
+        FluxHistogram histogram = new FluxHistogram();
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getTotal());
+        assertEquals(0, histogram.getValueAtPercentile(100));
+    }
+
+    public void testReset() {
+        FluxHistogram histogram = new FluxHistogram();
+        histogram.record(1000);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getTotal());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(100));
+        histogram.record(7);
+        assertEquals(7, histogram.getValueAtPercentile(50));
+    }
+
+}
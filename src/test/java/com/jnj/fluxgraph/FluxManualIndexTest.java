@@ -0,0 +1,90 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Index;
+import com.tinkerpop.blueprints.Vertex;
+import datomic.Peer;
+import junit.framework.TestCase;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Tests the persistent manual indices of a graph.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxManualIndexTest extends TestCase {
+
+    private FluxGraph graph;
+
+    @Override
+    protected void setUp() throws Exception {
+        graph = new FluxGraph("datomic:mem://manualindex" + UUID.randomUUID());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        graph.shutdown();
+    }
+
+    public void testBackdatedPut() throws Exception {
+        Index<Vertex> index = graph.createIndex("people", Vertex.class);
+        Vertex marko = graph.addVertex(null);
+        Thread.sleep(10);
+        Date transactionTime = new Date();
+        Thread.sleep(10);
+        // The attribute of the new key is installed at the transaction time as well
+        graph.setTransactionTime(transactionTime);
+        try {
+            index.put("name", "marko", marko);
+        } finally {
+            graph.setTransactionTime(null);
+        }
+        assertEquals(marko.getId(), index.get("name", "marko").iterator().next().getId());
+    }
+
+    public void testBatchedPuts() {
+        graph.createIndex("people", Vertex.class);
+        Vertex marko = graph.addVertex(null);
+        Vertex vadas = graph.addVertex(null);
+        graph.getIndex("people", Vertex.class).put("name", "marko", marko);
+        // Index instances share the attributes that are linked to the index, hence entries of known keys are only added to the pending transaction
+        long transactions = countTransactions();
+        ((FluxManualIndex<Vertex>)graph.getIndex("people", Vertex.class)).putInTransaction("name", "vadas", vadas);
+        ((FluxManualIndex<Vertex>)graph.getIndex("people", Vertex.class)).putInTransaction("name", "vadas rodriguez", vadas);
+        assertEquals(transactions, countTransactions());
+        graph.transact();
+        assertEquals(transactions + 1, countTransactions());
+        assertEquals(2, graph.getIndex("people", Vertex.class).count("name", "vadas") + graph.getIndex("people", Vertex.class).count("name", "vadas rodriguez"));
+    }
+
+    public void testUpgrade() {
+        String legacyURI = "datomic:mem://manualindexlegacy" + UUID.randomUUID();
+        // A graph created before manual indices were supported
+        FluxGraph legacy = new FluxGraph(legacyURI) {
+            @Override
+            protected void setupIndexMetaModel(final boolean backdate) {
+            }
+        };
+        try {
+            legacy.addVertex(null).setProperty("name", "marko");
+            // Opening the graph installs the meta model for manual indices (after the existing transactions)
+            FluxGraph upgraded = new FluxGraph(legacyURI);
+            try {
+                Index<Vertex> index = upgraded.createIndex("people", Vertex.class);
+                Vertex vertex = upgraded.addVertex(null);
+                index.put("name", "vadas", vertex);
+                assertEquals(vertex.getId(), index.get("name", "vadas").iterator().next().getId());
+            } finally {
+                upgraded.shutdown();
+            }
+        } finally {
+            legacy.shutdown();
+        }
+    }
+
+    private long countTransactions() {
+        return FluxUtil.getCount(Peer.q("[:find (count ?tx) :where [?tx :db/txInstant]]", graph.getConnection().db()));
+    }
+
+}
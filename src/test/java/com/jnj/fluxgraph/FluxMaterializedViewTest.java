@@ -0,0 +1,138 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import datomic.Database;
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the incremental maintenance of materialized views.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxMaterializedViewTest extends TestCase {
+
+    private static final long TIMEOUT = 5000;
+
+    private FluxGraph graph;
+
+    @Override
+    protected void setUp() throws Exception {
+        graph = new FluxGraph("datomic:mem://materializedview" + UUID.randomUUID());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        graph.shutdown();
+    }
+
+    public void testInitialBuild() {
+        Vertex marko = graph.addVertex(null);
+        Vertex vadas = graph.addVertex(null);
+        graph.addEdge(null, marko, vadas, "knows");
+        FluxCountsView counts = graph.registerView(new FluxCountsView(graph));
+        assertEquals(graph.getRawGraph().basisT(), counts.getBasisT());
+        assertEquals(2, counts.getVertexCount());
+        assertEquals(1, counts.getEdgeCount());
+        assertEquals(1, counts.getEdgeCount("knows"));
+        assertEquals(0, counts.getEdgeCount("created"));
+    }
+
+    public void testUpdates() throws Exception {
+        FluxCountsView counts = graph.registerView(new FluxCountsView(graph));
+        assertEquals(0, counts.getVertexCount());
+        Vertex marko = graph.addVertex(null);
+        Vertex vadas = graph.addVertex(null);
+        Vertex lop = graph.addVertex(null);
+        Edge knows = graph.addEdge(null, marko, vadas, "knows");
+        graph.addEdge(null, marko, lop, "created");
+        graph.addEdge(null, vadas, lop, "created");
+        await(counts);
+        assertEquals(3, counts.getVertexCount());
+        assertEquals(3, counts.getEdgeCount());
+        assertEquals(1, counts.getEdgeCount("knows"));
+        assertEquals(2, counts.getEdgeCount("created"));
+        graph.removeEdge(knows);
+        await(counts);
+        assertEquals(2, counts.getEdgeCount());
+        assertFalse(counts.getEdgeCounts().containsKey("knows"));
+        // Removing a vertex removes its edges as well
+        graph.removeVertex(lop);
+        await(counts);
+        assertEquals(2, counts.getVertexCount());
+        assertEquals(0, counts.getEdgeCount());
+        assertTrue(counts.getEdgeCounts().isEmpty());
+    }
+
+    public void testRegistration() throws Exception {
+        FluxCountsView counts = graph.registerView(new FluxCountsView(graph));
+        assertTrue(graph.getViewMaintainer().getViews().contains(counts));
+        try {
+            graph.registerView(counts);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        graph.addVertex(null);
+        await(counts);
+        graph.unregisterView(counts);
+        assertFalse(graph.getViewMaintainer().getViews().contains(counts));
+        // An unregistered view no longer follows the changes
+        graph.addVertex(null);
+        assertFalse(counts.awaitBasis(graph.getRawGraph().basisT(), 200, TimeUnit.MILLISECONDS));
+        assertEquals(1, counts.getVertexCount());
+    }
+
+    public void testFailedUpdate() throws Exception {
+        FailingView view = graph.registerView(new FailingView());
+        graph.addVertex(null);
+        long failedT = graph.getRawGraph().basisT();
+        awaitFailure(view);
+        // The failing transaction is not reflected by the view
+        assertTrue(view.getBasisT() < failedT);
+        // The view is rebuilt with the next transaction
+        graph.addVertex(null);
+        await(view);
+        assertFalse(view.isFailed());
+        assertEquals(2, view.rebuilds);
+    }
+
+    private void await(final FluxMaterializedView view) throws InterruptedException {
+        assertTrue(view.awaitBasis(graph.getRawGraph().basisT(), TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+
+    private static void awaitFailure(final FluxMaterializedView view) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!view.isFailed()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("No failed update");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    // View of which the first update fails
+    private static class FailingView extends FluxMaterializedView {
+
+        private int rebuilds = 0;
+        private boolean thrown = false;
+
+        @Override
+        protected void rebuild(Database database) {
+            rebuilds++;
+        }
+
+        @Override
+        protected void apply(List<FluxGraphEvent> events, Database database) {
+            if (!thrown) {
+                thrown = true;
+                throw new RuntimeException("View failure");
+            }
+        }
+
+    }
+
+}
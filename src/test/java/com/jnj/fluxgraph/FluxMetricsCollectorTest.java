@@ -0,0 +1,96 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Vertex;
+import junit.framework.TestCase;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Tests the default, in-memory metrics registry.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxMetricsCollectorTest extends TestCase {
+
+    public void testCounters() {
+        FluxMetricsCollector collector = new FluxMetricsCollector();
+        collector.count("b", 1);
+        collector.count("a", 2);
+        collector.count("b", 3);
+        assertEquals(4, collector.getCount("b"));
+        assertEquals(2, (long)collector.getCounters().get("a"));
+        assertEquals(0, collector.getCount("unknown"));
+        assertTrue(Arrays.equals(new String[]{"a", "b"}, collector.getCounterNames()));
+    }
+
+    public void testHistograms() {
+        FluxMetricsCollector collector = new FluxMetricsCollector();
+        assertNull(collector.getHistogram("q.test"));
+        collector.record("q.test", 10);
+        collector.record("q.test", 20);
+        assertEquals(2, collector.getHistogramCount("q.test"));
+        assertEquals(15.0, collector.getMean("q.test"));
+        assertEquals(20, collector.getMax("q.test"));
+        assertEquals(20, collector.getValueAtPercentile("q.test", 100));
+        assertEquals(2L, collector.getHistograms().get("q.test").get("count"));
+        assertEquals(0, collector.getHistogramCount("unknown"));
+        assertEquals(0, collector.getValueAtPercentile("unknown", 50));
+        assertTrue(Arrays.equals(new String[]{"q.test"}, collector.getHistogramNames()));
+    }
+
+    public void testReset() {
+        FluxMetricsCollector collector = new FluxMetricsCollector();
+        collector.count("a", 1);
+        collector.record("q.test", 10);
+        assertTrue(collector.getReport().contains("a: 1"));
+        collector.reset();
+        // Names are kept, values are cleared
+        assertEquals(0, collector.getCount("a"));
+        assertEquals(0, collector.getHistogramCount("q.test"));
+        assertEquals(1, collector.getHistogramNames().length);
+    }
+
+    public void testCallSites() {
+        FluxMetricsRegistry previous = FluxMetrics.getRegistry();
+        FluxMetricsCollector collector = new FluxMetricsCollector();
+        FluxMetrics.setRegistry(collector);
+        FluxGraph graph = new FluxGraph("datomic:mem://metrics" + UUID.randomUUID());
+        try {
+            graph.createKeyIndex("name", Vertex.class);
+            graph.addVertex(null).setProperty("name", "marko");
+            graph.getVertices("name", "marko").iterator().next();
+            // Metrics are recorded per call site
+            assertTrue(collector.getCount("transact.statements") > 0);
+            boolean transacts = false;
+            for (String name : collector.getHistogramNames()) {
+                transacts = transacts || name.startsWith("transact.");
+            }
+            assertTrue(transacts);
+        } finally {
+            graph.shutdown();
+            FluxMetrics.setRegistry(previous);
+        }
+    }
+
+    public void testMBean() throws Exception {
+        FluxMetricsCollector collector = new FluxMetricsCollector();
+        String objectName = "com.jnj.fluxgraph:type=Metrics,name=test" + UUID.randomUUID();
+        ObjectName name = collector.registerMBean(objectName);
+        try {
+            collector.count("a", 5);
+            assertEquals(5L, ManagementFactory.getPlatformMBeanServer().invoke(name, "getCount", new Object[]{"a"}, new String[]{String.class.getName()}));
+        } finally {
+            collector.unregisterMBean(objectName);
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        try {
+            collector.registerMBean("invalid");
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Vertex;
+import junit.framework.TestCase;
+
+import java.util.*;
+
+/**
+ * Tests the retrieval of multiple elements by id in one go, including the prefetching of property values.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxMultiGetTest extends TestCase {
+
+    private FluxGraph graph;
+    private Vertex marko, vadas, lop, removed;
+    private Edge knows, created;
+    private Date beforeChanges;
+
+    @Override
+    protected void setUp() throws Exception {
+        graph = new FluxGraph("datomic:mem://multiget" + UUID.randomUUID());
+        marko = graph.addVertex(null);
+        marko.setProperty("name", "marko");
+        marko.setProperty("age", 29);
+        vadas = graph.addVertex(null);
+        vadas.setProperty("name", "vadas");
+        removed = graph.addVertex(null);
+        knows = graph.addEdge(null, marko, vadas, "knows");
+        knows.setProperty("weight", 0.5d);
+        Thread.sleep(10);
+        beforeChanges = new Date();
+        Thread.sleep(10);
+        lop = graph.addVertex(null);
+        lop.setProperty("name", "lop");
+        created = graph.addEdge(null, marko, lop, "created");
+        graph.removeVertex(removed);
+        marko.setProperty("age", 30);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        graph.shutdown();
+    }
+
+    public void testOrderAndMissingIds() {
+        List<Vertex> vertices = graph.getVertices(ids(lop.getId(), "unknown", marko.getId(), removed.getId(), knows.getId(), vadas.getId()));
+        // Missing ids, ids of removed vertices and ids of edges are skipped, the order of the other ids is retained
+        assertEquals(Arrays.asList(lop.getId(), marko.getId(), vadas.getId()), getIds(vertices));
+        assertTrue(graph.getVertices(ids()).isEmpty());
+        assertEquals(Arrays.asList(created.getId(), knows.getId()), getIds(graph.getEdges(ids(created.getId(), marko.getId(), knows.getId()))));
+    }
+
+    public void testPrefetch() {
+        List<Vertex> vertices = graph.getVertices(ids(marko.getId(), vadas.getId()), "name", "age", "height");
+        assertEquals("marko", vertices.get(0).getProperty("name"));
+        assertEquals(30, ((Number)vertices.get(0).getProperty("age")).intValue());
+        assertEquals("vadas", vertices.get(1).getProperty("name"));
+        // Keys without a value are prefetched as well
+        assertNull(vertices.get(1).getProperty("age"));
+        assertNull(vertices.get(0).getProperty("height"));
+        List<Edge> edges = graph.getEdges(ids(knows.getId()), "weight");
+        assertEquals(0.5d, ((Number)edges.get(0).getProperty("weight")).doubleValue());
+        assertEquals("knows", edges.get(0).getLabel());
+    }
+
+    public void testWithoutPrefetch() {
+        // Properties that are not prefetched are retrieved as usual
+        Vertex vertex = graph.getVertices(ids(marko.getId()), "name").get(0);
+        assertEquals(30, ((Number)vertex.getProperty("age")).intValue());
+        assertEquals(new HashSet<String>(Arrays.asList("name", "age")), vertex.getPropertyKeys());
+    }
+
+    public void testReservedKey() {
+        try {
+            graph.getVertices(ids(marko.getId()), ":db/ident");
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testView() {
+        FluxGraphView view = graph.asOf(beforeChanges);
+        List<Vertex> vertices = view.getVertices(ids(marko.getId(), lop.getId(), removed.getId()), "age");
+        assertEquals(Arrays.asList(marko.getId(), removed.getId()), getIds(vertices));
+        assertEquals(29, ((Number)vertices.get(0).getProperty("age")).intValue());
+        assertTrue(view.getEdges(ids(created.getId())).isEmpty());
+    }
+
+    private static Collection<Object> ids(final Object... ids) {
+        return Arrays.asList(ids);
+    }
+
+    private static List<Object> getIds(final List<? extends Element> elements) {
+        List<Object> ids = new ArrayList<Object>();
+        for (Element element : elements) {
+            ids.add(element.getId());
+        }
+        return ids;
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.TimeAwarePropertyHistory;
+import com.tinkerpop.blueprints.TimeAwareVertex;
+import com.tinkerpop.blueprints.Vertex;
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Tests the property history (time series) of time aware elements.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxPropertyHistoryTest extends TestCase {
+
+    private FluxGraph graph;
+    private Vertex marko;
+    private Date afterFirstChange;
+    private Date beforeLastChange;
+
+    @Override
+    protected void setUp() throws Exception {
+        graph = new FluxGraph("datomic:mem://propertyhistory" + UUID.randomUUID());
+        marko = graph.addVertex(null);
+        marko.setProperty("age", 30);
+        afterFirstChange = tick();
+        marko.setProperty("name", "marko");
+        marko.setProperty("age", 31);
+        marko.removeProperty("age");
+        beforeLastChange = tick();
+        marko.setProperty("age", 35);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        graph.shutdown();
+    }
+
+    public void testHistory() {
+        TimeAwarePropertyHistory history = graph.getVertex(marko.getId()).getPropertyHistory("age");
+        assertEquals("age", history.getKey());
+        // An update is a retraction of the old value followed by an assertion of the new value (within the same transaction)
+        assertEquals(5, history.size());
+        assertTrue(Arrays.equals(new double[] {30, 30, 31, 31, 35}, history.getValuesAsDoubles()));
+        assertTrue(Arrays.equals(new boolean[] {true, false, true, false, true}, history.getAsserted()));
+        assertEquals(history.getTime(1), history.getTime(2));
+        for (int i = 1; i < history.size(); i++) {
+            assertTrue(history.getTime(i - 1) <= history.getTime(i));
+        }
+        assertTrue(history.getTime(0) < afterFirstChange.getTime());
+        assertTrue(history.getTime(4) > beforeLastChange.getTime());
+    }
+
+    public void testWindow() {
+        TimeAwarePropertyHistory history = graph.getVertex(marko.getId()).getPropertyHistory("age", afterFirstChange, beforeLastChange);
+        assertEquals(3, history.size());
+        assertTrue(Arrays.equals(new double[] {30, 31, 31}, history.getValuesAsDoubles()));
+        assertTrue(Arrays.equals(new boolean[] {false, true, false}, history.getAsserted()));
+        assertTrue(graph.getVertex(marko.getId()).getPropertyHistory("age", beforeLastChange, beforeLastChange).isEmpty());
+    }
+
+    public void testPreviousVersion() {
+        // The history of a version only contains the changes up till that version
+        TimeAwareVertex previous = graph.getVertex(marko.getId()).getPreviousVersion();
+        TimeAwarePropertyHistory history = previous.getPropertyHistory("age");
+        assertEquals(4, history.size());
+        assertFalse(history.isAsserted(3));
+    }
+
+    public void testOtherKeys() {
+        TimeAwarePropertyHistory history = graph.getVertex(marko.getId()).getPropertyHistory("name");
+        assertEquals(1, history.size());
+        assertEquals("marko", history.getValue(0));
+        assertTrue(Double.isNaN(history.getValuesAsDoubles()[0]));
+        assertTrue(graph.getVertex(marko.getId()).getPropertyHistory("height").isEmpty());
+        try {
+            graph.getVertex(marko.getId()).getPropertyHistory(":db/ident");
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    private static Date tick() throws InterruptedException {
+        Thread.sleep(10);
+        Date now = new Date();
+        Thread.sleep(10);
+        return now;
+    }
+
+}
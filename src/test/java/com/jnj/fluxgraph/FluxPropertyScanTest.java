@@ -0,0 +1,146 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import junit.framework.TestCase;
+
+import java.util.*;
+
+/**
+ * Tests the columnar scans of the values of a property.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxPropertyScanTest extends TestCase {
+
+    private static final int VERTICES = 30;
+
+    private FluxGraph graph;
+    private Vertex[] vertices = new Vertex[VERTICES];
+    private Date beforeChanges;
+
+    @Override
+    protected void setUp() throws Exception {
+        graph = new FluxGraph("datomic:mem://propertyscan" + UUID.randomUUID());
+        for (int i = 0; i < VERTICES; i++) {
+            vertices[i] = graph.addVertex(null);
+            vertices[i].setProperty("age", (long)i);
+            vertices[i].setProperty("score", i / 2.0d);
+            vertices[i].setProperty("active", i % 2 == 0);
+            vertices[i].setProperty("name", "vertex" + i);
+        }
+        for (int i = 1; i < VERTICES; i++) {
+            Edge edge = graph.addEdge(null, vertices[i - 1], vertices[i], "next");
+            edge.setProperty("weight", (double)i);
+        }
+        Thread.sleep(10);
+        beforeChanges = new Date();
+        Thread.sleep(10);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        graph.shutdown();
+    }
+
+    public void testColumns() {
+        FluxPropertyColumn ages = getColumn(graph.scanProperty("age", Vertex.class));
+        assertEquals(VERTICES, ages.size());
+        assertSorted(ages.getIds());
+        Map<Long,Integer> indices = getIndices();
+        for (int i = 0; i < ages.size(); i++) {
+            int vertex = indices.get(ages.getIds()[i]);
+            assertEquals(vertex, ages.getLongValues()[i]);
+            assertEquals((long)vertex, ages.getValue(i));
+        }
+        FluxPropertyColumn scores = getColumn(graph.scanProperty("score", Vertex.class));
+        FluxPropertyColumn active = getColumn(graph.scanProperty("active", Vertex.class));
+        FluxPropertyColumn names = getColumn(graph.scanProperty("name", Vertex.class));
+        assertEquals(String.class, names.getValueClass());
+        for (int i = 0; i < VERTICES; i++) {
+            int vertex = indices.get(scores.getIds()[i]);
+            assertEquals(vertex / 2.0d, scores.getDoubleValues()[i]);
+            vertex = indices.get(active.getIds()[i]);
+            assertEquals(vertex % 2 == 0, active.getBooleanValues()[i]);
+            vertex = indices.get(names.getIds()[i]);
+            assertEquals("vertex" + vertex, names.getValues()[i]);
+        }
+        try {
+            names.getLongValues();
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testChunks() {
+        for (String key : Arrays.asList("age", "score", "active", "name")) {
+            FluxPropertyColumn column = getColumn(graph.scanProperty(key, Vertex.class));
+            for (int chunks : new int[] {2, 4, 7}) {
+                FluxPropertyColumn chunked = getColumn(graph.scanProperty(key, Vertex.class, chunks));
+                assertTrue(Arrays.equals(column.getIds(), chunked.getIds()));
+                for (int i = 0; i < column.size(); i++) {
+                    assertEquals(column.getValue(i), chunked.getValue(i));
+                }
+            }
+        }
+    }
+
+    public void testChanges() {
+        // Removed vertices and removed properties are not part of the scan, values of another type end up in a separate column
+        graph.removeVertex(vertices[0]);
+        vertices[1].removeProperty("age");
+        vertices[2].removeProperty("age");
+        vertices[2].setProperty("age", "unknown");
+        Map<Class,FluxPropertyColumn> columns = new HashMap<Class,FluxPropertyColumn>();
+        for (FluxPropertyColumn column : graph.scanProperty("age", Vertex.class, 3)) {
+            assertNull(columns.put(column.getValueClass(), column));
+        }
+        assertEquals(2, columns.size());
+        assertEquals(VERTICES - 3, columns.get(Long.class).size());
+        assertEquals(1, columns.get(String.class).size());
+        assertEquals(((Number)vertices[2].getId()).longValue(), columns.get(String.class).getIds()[0]);
+        // The scan of a view reflects the values at its point in time
+        assertEquals(VERTICES, getColumn(graph.asOf(beforeChanges).scanProperty("age", Vertex.class, 2)).size());
+    }
+
+    public void testElementClass() {
+        FluxPropertyColumn weights = getColumn(graph.scanProperty("weight", Edge.class, 2));
+        assertEquals(VERTICES - 1, weights.size());
+        assertTrue(graph.scanProperty("weight", Vertex.class).isEmpty());
+        assertTrue(graph.scanProperty("age", Edge.class).isEmpty());
+        assertTrue(graph.scanProperty("height", Vertex.class).isEmpty());
+    }
+
+    public void testArguments() {
+        try {
+            graph.scanProperty(":db/ident", Vertex.class);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            graph.scanProperty("age", Vertex.class, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    private Map<Long,Integer> getIndices() {
+        Map<Long,Integer> indices = new HashMap<Long,Integer>();
+        for (int i = 0; i < VERTICES; i++) {
+            indices.put(((Number)vertices[i].getId()).longValue(), i);
+        }
+        return indices;
+    }
+
+    private static FluxPropertyColumn getColumn(final List<FluxPropertyColumn> columns) {
+        assertEquals(1, columns.size());
+        return columns.get(0);
+    }
+
+    private static void assertSorted(final long[] ids) {
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(ids[i - 1] < ids[i]);
+        }
+    }
+
+}
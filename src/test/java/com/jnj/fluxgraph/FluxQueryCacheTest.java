@@ -0,0 +1,135 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import datomic.Database;
+import junit.framework.TestCase;
+
+import java.util.*;
+
+/**
+ * Tests the caching of element lookup query results per database point in time.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxQueryCacheTest extends TestCase {
+
+    private static final String EDGES_BY_LABEL = "[:find ?edge " +
+                                                  ":in $ ?label " +
+                                                  ":where [?edge :graph.edge/label ?label] ]";
+
+    private FluxGraph graph;
+    private Vertex marko, vadas, lop;
+
+    @Override
+    protected void setUp() throws Exception {
+        graph = new FluxGraph("datomic:mem://querycache" + UUID.randomUUID());
+        marko = graph.addVertex(null);
+        vadas = graph.addVertex(null);
+        lop = graph.addVertex(null);
+        graph.addEdge(null, marko, vadas, "knows");
+        graph.addEdge(null, marko, lop, "created");
+        graph.addEdge(null, vadas, lop, "likes");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        graph.shutdown();
+    }
+
+    public void testHits() {
+        FluxQueryCache cache = new FluxQueryCache();
+        Database database = graph.getRawGraph();
+        long[] first = cache.getIds(database, EDGES_BY_LABEL, "knows");
+        long[] second = cache.getIds(database, EDGES_BY_LABEL, "knows");
+        assertEquals(1, first.length);
+        assertTrue(Arrays.equals(first, second));
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        // Different inputs are different entries
+        assertEquals(1, cache.getIds(database, EDGES_BY_LABEL, "created").length);
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.getEntryCount());
+    }
+
+    public void testNewVersion() {
+        FluxQueryCache cache = new FluxQueryCache();
+        assertEquals(1, cache.getIds(graph.getRawGraph(), EDGES_BY_LABEL, "knows").length);
+        graph.addEdge(null, lop, marko, "knows");
+        // The result of the previous version is dropped as soon as the new version is queried
+        assertEquals(2, cache.getIds(graph.getRawGraph(), EDGES_BY_LABEL, "knows").length);
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    public void testAsOf() {
+        FluxQueryCache cache = new FluxQueryCache();
+        Database database = graph.getRawGraph();
+        long pastT = database.basisT() - 1;
+        long futureT = database.basisT() + 1000;
+        Date future = new Date(System.currentTimeMillis() + 60 * 60 * 1000);
+        assertEquals(1, cache.getIds(database.asOf(pastT), EDGES_BY_LABEL, "knows").length);
+        assertEquals(1, cache.getIds(database.asOf(futureT), EDGES_BY_LABEL, "knows").length);
+        assertEquals(1, cache.getIds(database.asOf(future), EDGES_BY_LABEL, "knows").length);
+        graph.addEdge(null, lop, marko, "knows");
+        Database newDatabase = graph.getRawGraph();
+        // Results for a point strictly in the past are shared across database values
+        assertEquals(1, cache.getIds(newDatabase.asOf(pastT), EDGES_BY_LABEL, "knows").length);
+        assertEquals(1, cache.getHits());
+        // Results for a point that was not in the past yet are not reused by later database values
+        assertEquals(2, cache.getIds(newDatabase.asOf(futureT), EDGES_BY_LABEL, "knows").length);
+        assertEquals(2, cache.getIds(newDatabase.asOf(future), EDGES_BY_LABEL, "knows").length);
+        assertEquals(1, cache.getHits());
+    }
+
+    public void testEviction() {
+        // Room for two entries of a single id
+        FluxQueryCache cache = new FluxQueryCache(40);
+        Database database = graph.getRawGraph();
+        cache.getIds(database, EDGES_BY_LABEL, "knows");
+        cache.getIds(database, EDGES_BY_LABEL, "created");
+        cache.getIds(database, EDGES_BY_LABEL, "knows");
+        cache.getIds(database, EDGES_BY_LABEL, "likes");
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(1, cache.getEvictions());
+        assertTrue(cache.getSize() <= cache.getMaxSize());
+        // The least recently used entry was evicted
+        cache.getIds(database, EDGES_BY_LABEL, "knows");
+        assertEquals(2, cache.getHits());
+        cache.getIds(database, EDGES_BY_LABEL, "created");
+        assertEquals(2, cache.getHits());
+    }
+
+    public void testEntryTooLarge() {
+        FluxQueryCache cache = new FluxQueryCache(10);
+        Database database = graph.getRawGraph();
+        cache.getIds(database, EDGES_BY_LABEL, "knows");
+        cache.getIds(database, EDGES_BY_LABEL, "knows");
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    public void testAdjacency() {
+        FluxVertex vertex = (FluxVertex)graph.getVertex(marko.getId());
+        long hits = graph.getQueryCache().getHits();
+        assertEquals(1, count(vertex.getEdges(Direction.OUT, "knows")));
+        assertEquals(1, count(vertex.getEdges(Direction.OUT, "knows")));
+        assertTrue(graph.getQueryCache().getHits() > hits);
+        // A new edge is visible to the current version of the vertex
+        graph.addEdge(null, marko, lop, "knows");
+        assertEquals(2, count(graph.getVertex(marko.getId()).getEdges(Direction.OUT, "knows")));
+        // But not to the previous version
+        assertEquals(1, count(vertex.getEdges(Direction.OUT, "knows")));
+    }
+
+    private static int count(final Iterable<Edge> edges) {
+        int count = 0;
+        for (Edge edge : edges) {
+            count++;
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Vertex;
+import junit.framework.TestCase;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests range, prefix and ordered queries on properties, both when served by a scan of the AVET index (key-indexed properties)
+ * and when served by the query based fallback (properties that are not indexed).
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxRangeQueryTest extends TestCase {
+
+    private FluxGraph graph;
+    private Vertex v25, v31, v35, v40, v52;
+    private Edge e1, e2, e3;
+
+    @Override
+    protected void setUp() throws Exception {
+        graph = new FluxGraph("datomic:mem://rangequery" + UUID.randomUUID());
+        v25 = addVertex(25, "Beta");
+        v31 = addVertex(31, "Acme Labs");
+        v35 = addVertex(35, "acme");
+        v40 = addVertex(40, "Acme Corp");
+        v52 = addVertex(52, "Gamma");
+        e1 = graph.addEdge(null, v25, v31, "knows");
+        e1.setProperty("weight", 0.5d);
+        e2 = graph.addEdge(null, v31, v35, "knows");
+        e2.setProperty("weight", 0.9d);
+        e3 = graph.addEdge(null, v35, v40, "knows");
+        e3.setProperty("weight", 0.2d);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        graph.shutdown();
+    }
+
+    public void testNotIndexed() {
+        assertQueries();
+    }
+
+    public void testIndexed() throws Exception {
+        graph.createKeyIndex("age", Vertex.class);
+        graph.createKeyIndex("name", Vertex.class);
+        graph.createKeyIndex("weight", Edge.class);
+        assertTrue(graph.awaitIndex("age", Vertex.class, 10, TimeUnit.SECONDS));
+        assertTrue(graph.awaitIndex("name", Vertex.class, 10, TimeUnit.SECONDS));
+        assertTrue(graph.awaitIndex("weight", Edge.class, 10, TimeUnit.SECONDS));
+        assertQueries();
+    }
+
+    public void testInvalidRanges() {
+        try {
+            FluxRangeQuery.between(1, "2");
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            FluxRangeQuery.prefix(null);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testUnknownKey() {
+        assertTrue(ids(graph.getVertices("height", FluxRangeQuery.between(1, 10))).isEmpty());
+    }
+
+    // The results are the same, regardless of the way the queries are served
+    private void assertQueries() {
+        assertEquals(ids(v31, v35), ids(graph.getVertices("age", FluxRangeQuery.between(30, 40))));
+        assertEquals(ids(v40, v52), ids(graph.getVertices("age", FluxRangeQuery.atLeast(40))));
+        assertEquals(ids(v25, v31), ids(graph.getVertices("age", FluxRangeQuery.lessThan(35))));
+        assertEquals(ids(v25, v31), ids(graph.getVertices("age", FluxRangeQuery.all(Integer.class).limit(2))));
+        assertEquals(ids(v52, v40, v35), ids(graph.getVertices("age", FluxRangeQuery.all(Integer.class).descending().limit(3))));
+        // Prefixes are case sensitive
+        assertEquals(ids(v40, v31), ids(graph.getVertices("name", FluxRangeQuery.prefix("Acme"))));
+        assertEquals(ids(v35), ids(graph.getVertices("name", FluxRangeQuery.prefix("acme"))));
+        assertTrue(ids(graph.getVertices("name", FluxRangeQuery.prefix("Delta"))).isEmpty());
+        assertEquals(ids(e3, e1), ids(graph.getEdges("weight", FluxRangeQuery.lessThan(0.6d))));
+        assertEquals(ids(e2, e1, e3), ids(graph.getEdges("weight", FluxRangeQuery.all(Double.class).descending())));
+    }
+
+    private Vertex addVertex(final int age, final String name) {
+        Vertex vertex = graph.addVertex(null);
+        vertex.setProperty("age", age);
+        vertex.setProperty("name", name);
+        return vertex;
+    }
+
+    private static List<Object> ids(final Element... elements) {
+        List<Object> ids = new ArrayList<Object>();
+        for (Element element : elements) {
+            ids.add(element.getId());
+        }
+        return ids;
+    }
+
+    private static List<Object> ids(final Iterable<? extends Element> elements) {
+        List<Object> ids = new ArrayList<Object>();
+        for (Element element : elements) {
+            ids.add(element.getId());
+        }
+        return ids;
+    }
+
+}
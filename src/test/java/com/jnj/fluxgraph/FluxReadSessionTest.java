@@ -0,0 +1,121 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Vertex;
+import junit.framework.TestCase;
+
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Tests the read sessions that pin a database value for the current thread.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxReadSessionTest extends TestCase {
+
+    private FluxGraph graph;
+    private ExecutorService writer;
+
+    @Override
+    protected void setUp() throws Exception {
+        graph = new FluxGraph("datomic:mem://readsession" + UUID.randomUUID());
+        writer = Executors.newSingleThreadExecutor();
+        Vertex marko = graph.addVertex(null);
+        marko.setProperty("name", "marko");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        writer.shutdown();
+        graph.shutdown();
+    }
+
+    public void testPinned() throws Exception {
+        FluxReadSession session = graph.readSession();
+        try {
+            long basisT = session.getDatabase().basisT();
+            addVertex();
+            // Changes of other threads are not visible within the session
+            assertEquals(basisT, graph.getRawGraph().basisT());
+            assertEquals(1, graph.countVertices());
+            assertEquals(1, count(graph.getVertices()));
+        } finally {
+            session.close();
+        }
+        assertTrue(session.isClosed());
+        assertEquals(2, graph.countVertices());
+        assertEquals(2, count(graph.getVertices()));
+    }
+
+    public void testNoWrites() {
+        FluxReadSession session = graph.readSession();
+        try {
+            graph.addVertex(null);
+            fail();
+        } catch (IllegalStateException e) {
+        } finally {
+            session.close();
+        }
+        // Writes are allowed again once the session is closed
+        graph.addVertex(null);
+        assertEquals(2, graph.countVertices());
+    }
+
+    public void testNested() throws Exception {
+        FluxReadSession outer = graph.readSession();
+        addVertex();
+        FluxReadSession inner = graph.readSession();
+        // The inner session pins the database value of the outer session
+        assertEquals(outer.getDatabase().basisT(), inner.getDatabase().basisT());
+        try {
+            outer.close();
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        inner.close();
+        assertEquals(1, graph.countVertices());
+        outer.close();
+        assertEquals(2, graph.countVertices());
+    }
+
+    public void testCloseOnOtherThread() throws Exception {
+        final FluxReadSession session = graph.readSession();
+        try {
+            Future<Void> closed = writer.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    session.close();
+                    return null;
+                }
+            });
+            try {
+                closed.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+            assertFalse(session.isClosed());
+        } finally {
+            session.close();
+        }
+    }
+
+    // Adds a vertex on another thread (the current thread might be in a read session)
+    private void addVertex() throws Exception {
+        writer.submit(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return graph.addVertex(null);
+            }
+        }).get();
+    }
+
+    private static int count(final Iterable<Vertex> vertices) {
+        int count = 0;
+        for (Vertex vertex : vertices) {
+            count++;
+        }
+        return count;
+    }
+
+}
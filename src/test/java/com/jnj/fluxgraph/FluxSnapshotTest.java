@@ -0,0 +1,120 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import junit.framework.TestCase;
+
+import java.util.*;
+
+/**
+ * Tests the compressed sparse row adjacency snapshots of a graph.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxSnapshotTest extends TestCase {
+
+    private FluxGraph graph;
+    private Vertex a, b, c, d;
+    private Edge ab, ac, bc, ca;
+    private Date beforeLikes;
+
+    @Override
+    protected void setUp() throws Exception {
+        graph = new FluxGraph("datomic:mem://snapshot" + UUID.randomUUID());
+        a = graph.addVertex(null);
+        b = graph.addVertex(null);
+        c = graph.addVertex(null);
+        d = graph.addVertex(null);
+        ab = graph.addEdge(null, a, b, "knows");
+        ac = graph.addEdge(null, a, c, "knows");
+        bc = graph.addEdge(null, b, c, "created");
+        // Removed edges are not part of the snapshot
+        graph.removeEdge(graph.addEdge(null, d, a, "knows"));
+        Thread.sleep(10);
+        beforeLikes = new Date();
+        Thread.sleep(10);
+        ca = graph.addEdge(null, c, a, "likes");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        graph.shutdown();
+    }
+
+    public void testOnHeap() {
+        assertSnapshot(graph.snapshot());
+    }
+
+    public void testOffHeap() {
+        FluxSnapshot snapshot = graph.snapshot(true);
+        assertTrue(snapshot.isOffHeap());
+        assertSnapshot(snapshot);
+    }
+
+    public void testView() {
+        FluxSnapshot snapshot = graph.asOf(beforeLikes).snapshot(false);
+        assertEquals(4, snapshot.getVertexCount());
+        assertEquals(3, snapshot.getEdgeCount());
+        assertEquals(0, snapshot.getDegree(snapshot.getIndex(a.getId()), Direction.IN));
+        assertFalse(snapshot.getLabels().contains("likes"));
+    }
+
+    private void assertSnapshot(final FluxSnapshot snapshot) {
+        assertEquals(4, snapshot.getVertexCount());
+        assertEquals(4, snapshot.getEdgeCount());
+        assertEquals(new HashSet<String>(Arrays.asList("knows", "created", "likes")), new HashSet<String>(snapshot.getLabels()));
+        // Vertex ids map onto dense indices and back
+        for (Vertex vertex : Arrays.asList(a, b, c, d)) {
+            int index = snapshot.getIndex(vertex.getId());
+            assertTrue(index >= 0 && index < 4);
+            assertEquals(vertex.getId(), snapshot.getVertexId(index));
+        }
+        assertEquals(-1, snapshot.getIndex(ab.getId()));
+        int va = snapshot.getIndex(a.getId());
+        int vc = snapshot.getIndex(c.getId());
+        int vd = snapshot.getIndex(d.getId());
+        // Degrees
+        assertEquals(2, snapshot.getDegree(va, Direction.OUT));
+        assertEquals(1, snapshot.getDegree(va, Direction.IN));
+        assertEquals(3, snapshot.getDegree(va, Direction.BOTH));
+        assertEquals(2, snapshot.getDegree(vc, Direction.IN));
+        assertEquals(0, snapshot.getDegree(vd, Direction.BOTH));
+        // Adjacency
+        assertEquals(set(b.getId(), c.getId()), getVertexIds(snapshot, snapshot.getNeighbors(va, Direction.OUT)));
+        assertEquals(set(c.getId()), getVertexIds(snapshot, snapshot.getNeighbors(va, Direction.IN, "likes")));
+        assertTrue(snapshot.getNeighbors(va, Direction.IN, "knows").length == 0);
+        int[] neighbors = snapshot.getNeighbors(va, Direction.OUT);
+        for (int i = 0; i < snapshot.getDegree(va, Direction.OUT); i++) {
+            assertEquals(neighbors[i], snapshot.getNeighbor(va, Direction.OUT, i));
+        }
+        // Edges
+        Set<Object> knows = new HashSet<Object>();
+        for (int edge : snapshot.getEdges(va, Direction.OUT, "knows")) {
+            knows.add(snapshot.getEdgeId(edge));
+            assertEquals("knows", snapshot.getLabel(edge));
+            assertEquals(va, snapshot.getVertex(edge, Direction.OUT));
+        }
+        assertEquals(set(ab.getId(), ac.getId()), knows);
+        int[] created = snapshot.getEdges(vc, Direction.IN, "created");
+        assertEquals(1, created.length);
+        assertEquals(bc.getId(), snapshot.getEdgeId(created[0]));
+        assertEquals(vc, snapshot.getVertex(created[0], Direction.IN));
+        int[] likes = snapshot.getEdges(vc, Direction.BOTH, "likes");
+        assertEquals(1, likes.length);
+        assertEquals(ca.getId(), snapshot.getEdgeId(likes[0]));
+    }
+
+    private static Set<Object> getVertexIds(final FluxSnapshot snapshot, final int[] vertices) {
+        Set<Object> ids = new HashSet<Object>();
+        for (int vertex : vertices) {
+            ids.add(snapshot.getVertexId(vertex));
+        }
+        return ids;
+    }
+
+    private static Set<Object> set(final Object... ids) {
+        return new HashSet<Object>(Arrays.asList(ids));
+    }
+
+}
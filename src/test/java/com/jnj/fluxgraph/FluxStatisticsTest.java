@@ -0,0 +1,98 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import junit.framework.TestCase;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Tests the vertex, edge, label and degree counts that are maintained from the transaction reports.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxStatisticsTest extends TestCase {
+
+    private FluxGraph graph;
+
+    @Override
+    protected void setUp() throws Exception {
+        graph = new FluxGraph("datomic:mem://statistics" + UUID.randomUUID());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        graph.shutdown();
+    }
+
+    public void testEmptyGraph() {
+        assertEquals(0, graph.countVertices());
+        assertEquals(0, graph.countEdges());
+        assertEquals(0, graph.countEdges("knows"));
+    }
+
+    public void testCountsAfterAdd() {
+        // Initialize the counters first, so the additions below are applied from the transaction reports
+        assertEquals(0, graph.countVertices());
+        Vertex marko = graph.addVertex(null);
+        Vertex vadas = graph.addVertex(null);
+        Vertex lop = graph.addVertex(null);
+        graph.addEdge(null, marko, vadas, "knows");
+        graph.addEdge(null, marko, lop, "created");
+        graph.addEdge(null, vadas, lop, "created");
+        assertEquals(3, graph.countVertices());
+        assertEquals(3, graph.countEdges());
+        assertEquals(1, graph.countEdges("knows"));
+        assertEquals(2, graph.countEdges("created"));
+        assertEquals(0, graph.countEdges("likes"));
+        FluxVertex vertex = (FluxVertex)graph.getVertex(marko.getId());
+        assertEquals(2, vertex.getDegree(Direction.OUT));
+        assertEquals(0, vertex.getDegree(Direction.IN));
+        assertEquals(1, vertex.getDegree(Direction.OUT, "created"));
+        assertEquals(2, ((FluxVertex)graph.getVertex(lop.getId())).getDegree(Direction.IN, "created"));
+        assertEquals(2, ((FluxVertex)graph.getVertex(vadas.getId())).getDegree(Direction.BOTH));
+        assertFalse(graph.getStatistics().isStale());
+    }
+
+    public void testCountsAfterRemove() {
+        Vertex marko = graph.addVertex(null);
+        Vertex vadas = graph.addVertex(null);
+        Vertex lop = graph.addVertex(null);
+        Edge knows = graph.addEdge(null, marko, vadas, "knows");
+        graph.addEdge(null, marko, lop, "created");
+        graph.addEdge(null, vadas, lop, "created");
+        // Request the degrees, so they are cached and need to be kept up to date
+        assertEquals(2, ((FluxVertex)graph.getVertex(marko.getId())).getDegree(Direction.OUT));
+        assertEquals(2, ((FluxVertex)graph.getVertex(vadas.getId())).getDegree(Direction.BOTH));
+
+        graph.removeEdge(knows);
+        assertEquals(3, graph.countVertices());
+        assertEquals(2, graph.countEdges());
+        assertEquals(0, graph.countEdges("knows"));
+        assertEquals(1, ((FluxVertex)graph.getVertex(marko.getId())).getDegree(Direction.OUT));
+        assertEquals(1, ((FluxVertex)graph.getVertex(vadas.getId())).getDegree(Direction.BOTH));
+
+        // Removing a vertex also removes its edges
+        graph.removeVertex(graph.getVertex(lop.getId()));
+        assertEquals(2, graph.countVertices());
+        assertEquals(0, graph.countEdges());
+        assertEquals(0, graph.countEdges("created"));
+        assertEquals(0, ((FluxVertex)graph.getVertex(marko.getId())).getDegree(Direction.OUT));
+        assertFalse(graph.getStatistics().isStale());
+    }
+
+    public void testCountsOfPinnedGraph() throws Exception {
+        graph.addVertex(null);
+        Thread.sleep(10);
+        Date checkpoint = new Date();
+        Thread.sleep(10);
+        graph.addVertex(null);
+        // A graph pinned to a checkpoint counts the elements of that version, the counters keep following the current version
+        graph.setCheckpointTime(checkpoint);
+        assertEquals(1, graph.countVertices());
+        assertEquals(2, graph.getStatistics().getVertexCount());
+    }
+
+}
@@ -0,0 +1,160 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import junit.framework.TestCase;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Tests the delivery of graph events to change-data-capture subscriptions.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxSubscriptionTest extends TestCase {
+
+    private static final long TIMEOUT = 5000;
+
+    private FluxGraph graph;
+
+    @Override
+    protected void setUp() throws Exception {
+        graph = new FluxGraph("datomic:mem://subscription" + UUID.randomUUID());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        graph.shutdown();
+    }
+
+    public void testEvents() throws Exception {
+        CollectingListener listener = new CollectingListener();
+        FluxSubscription subscription = graph.subscribe(listener);
+        Vertex marko = graph.addVertex(null);
+        Vertex vadas = graph.addVertex(null);
+        marko.setProperty("name", "marko");
+        marko.setProperty("name", "marko rodriguez");
+        Edge knows = graph.addEdge(null, marko, vadas, "knows");
+        graph.removeEdge(knows);
+
+        List<FluxGraphEvent> events = listener.await(6);
+        assertEquals(FluxGraphEvent.Type.VERTEX_ADDED, events.get(0).getType());
+        assertEquals(marko.getId(), events.get(0).getElementId());
+        assertEquals(FluxGraphEvent.Type.VERTEX_ADDED, events.get(1).getType());
+        assertEquals(vadas.getId(), events.get(1).getElementId());
+        assertEquals(FluxGraphEvent.Type.PROPERTY_SET, events.get(2).getType());
+        assertEquals("name", events.get(2).getKey());
+        assertNull(events.get(2).getOldValue());
+        assertEquals("marko", events.get(2).getNewValue());
+        assertEquals(FluxGraphEvent.Type.PROPERTY_SET, events.get(3).getType());
+        assertEquals("marko", events.get(3).getOldValue());
+        assertEquals("marko rodriguez", events.get(3).getNewValue());
+        assertEquals(FluxGraphEvent.Type.EDGE_ADDED, events.get(4).getType());
+        assertEquals(knows.getId(), events.get(4).getElementId());
+        assertEquals("knows", events.get(4).getLabel());
+        assertEquals(marko.getId(), events.get(4).getOutVertexId());
+        assertEquals(vadas.getId(), events.get(4).getInVertexId());
+        assertEquals(FluxGraphEvent.Type.EDGE_REMOVED, events.get(5).getType());
+        assertEquals(knows.getId(), events.get(5).getElementId());
+        // Events are delivered in transaction order
+        for (int i = 1; i < events.size(); i++) {
+            assertTrue(events.get(i - 1).getT() <= events.get(i).getT());
+        }
+        assertEquals(events.get(5).getT(), subscription.getLastT());
+        assertEquals(6, subscription.getDeliveredEvents());
+        assertNull(subscription.getFailure());
+    }
+
+    public void testClose() throws Exception {
+        CollectingListener listener = new CollectingListener();
+        FluxSubscription subscription = graph.subscribe(listener);
+        graph.addVertex(null);
+        listener.await(1);
+        subscription.close();
+        assertFalse(subscription.isRunning());
+        graph.addVertex(null);
+        Thread.sleep(200);
+        assertEquals(1, listener.getEvents().size());
+    }
+
+    public void testFailingListener() throws Exception {
+        final CollectingListener listener = new CollectingListener();
+        FluxSubscription subscription = graph.subscribe(new FluxGraphEventListener() {
+            private boolean failed = false;
+
+            @Override
+            public void onEvents(List<FluxGraphEvent> events) {
+                if (!failed) {
+                    failed = true;
+                    throw new RuntimeException("Listener failure");
+                }
+                listener.onEvents(events);
+            }
+        });
+        graph.addVertex(null);
+        awaitFailedBatch(subscription);
+        // The subscription keeps on delivering the changes of the transactions that follow
+        Vertex vertex = graph.addVertex(null);
+        assertEquals(vertex.getId(), listener.await(1).get(0).getElementId());
+        assertTrue(subscription.isRunning());
+        assertNull(subscription.getFailure());
+    }
+
+    public void testResume() throws Exception {
+        Vertex marko = graph.addVertex(null);
+        long t = graph.getRawGraph().basisT();
+        Vertex vadas = graph.addVertex(null);
+        // Resuming replays the log, which is available for in-memory databases as well
+        assertNotNull("Resuming a subscription requires the Datomic log", graph.getConnection().log());
+        CollectingListener listener = new CollectingListener();
+        FluxSubscription subscription = graph.subscribe(listener, t + 1);
+        Vertex lop = graph.addVertex(null);
+        List<FluxGraphEvent> events = listener.await(2);
+        assertEquals(vadas.getId(), events.get(0).getElementId());
+        assertEquals(lop.getId(), events.get(1).getElementId());
+        assertFalse(marko.getId().equals(events.get(0).getElementId()));
+        subscription.close();
+    }
+
+    private static void awaitFailedBatch(final FluxSubscription subscription) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (subscription.getFailedBatches() == 0) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("No failed batch");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    // Collects the delivered events
+    private static class CollectingListener implements FluxGraphEventListener {
+
+        private final List<FluxGraphEvent> events = new ArrayList<FluxGraphEvent>();
+
+        @Override
+        public synchronized void onEvents(List<FluxGraphEvent> events) {
+            this.events.addAll(events);
+            notifyAll();
+        }
+
+        public synchronized List<FluxGraphEvent> getEvents() {
+            return new ArrayList<FluxGraphEvent>(events);
+        }
+
+        // Waits until (at least) the given number of events is delivered
+        public synchronized List<FluxGraphEvent> await(final int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TIMEOUT;
+            while (events.size() < count) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    fail("Only " + events.size() + " of " + count + " events delivered");
+                }
+                wait(remaining);
+            }
+            return new ArrayList<FluxGraphEvent>(events);
+        }
+
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import junit.framework.TestCase;
+import org.joda.time.Interval;
+
+import java.util.*;
+
+/**
+ * Tests the retrieval of the edges of a vertex that existed within a time interval, together with their validity interval.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxTemporalEdgeTest extends TestCase {
+
+    private static final Interval ALWAYS = new Interval(0, Long.MAX_VALUE);
+
+    private FluxGraph graph;
+    private Vertex a, b, c;
+    private Edge ab, ac, ca;
+    // Points in time in between the transactions (after[i] is situated between Ti and Ti+1)
+    private Date[] after = new Date[5];
+
+    @Override
+    protected void setUp() throws Exception {
+        graph = new FluxGraph("datomic:mem://temporaledge" + UUID.randomUUID());
+        a = graph.addVertex(null);
+        b = graph.addVertex(null);
+        c = graph.addVertex(null);
+        after[0] = tick();
+        ab = graph.addEdge(null, a, b, "knows");
+        after[1] = tick();
+        ac = graph.addEdge(null, a, c, "knows");
+        after[2] = tick();
+        graph.removeEdge(ab);
+        after[3] = tick();
+        ca = graph.addEdge(null, c, a, "likes");
+        after[4] = tick();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        graph.shutdown();
+    }
+
+    public void testValidity() {
+        Map<Object,FluxTemporalEdge> edges = getEdges(a, Direction.OUT, ALWAYS);
+        assertEquals(set(ab.getId(), ac.getId()), edges.keySet());
+        FluxTemporalEdge removed = edges.get(ab.getId());
+        assertFalse(removed.isCurrent());
+        assertTrue(removed.getValidity().getStartMillis() > after[0].getTime());
+        assertTrue(removed.getValidity().getStartMillis() < after[1].getTime());
+        assertTrue(removed.getValidity().getEndMillis() > after[2].getTime());
+        assertTrue(removed.getValidity().getEndMillis() < after[3].getTime());
+        FluxTemporalEdge current = edges.get(ac.getId());
+        assertTrue(current.isCurrent());
+        assertEquals(Long.MAX_VALUE, current.getValidity().getEndMillis());
+    }
+
+    public void testRemovedEdge() {
+        // The label and vertices of a removed edge are still available
+        FluxTemporalEdge removed = getEdges(a, Direction.OUT, ALWAYS).get(ab.getId());
+        assertEquals("knows", removed.getLabel());
+        assertEquals(a.getId(), removed.getVertexId(Direction.OUT));
+        assertEquals(b.getId(), removed.getVertexId(Direction.IN));
+        assertEquals("knows", removed.getEdge().getLabel());
+        assertEquals(b.getId(), removed.getVertex(Direction.IN).getId());
+    }
+
+    public void testInterval() {
+        assertEquals(set(ab.getId()), getEdges(a, Direction.OUT, interval(0, 1)).keySet());
+        assertEquals(set(ab.getId(), ac.getId()), getEdges(a, Direction.OUT, interval(1, 2)).keySet());
+        assertEquals(set(ac.getId()), getEdges(a, Direction.OUT, interval(3, 4)).keySet());
+        assertTrue(getEdges(a, Direction.OUT, new Interval(0, after[0].getTime())).isEmpty());
+    }
+
+    public void testDirectionAndLabels() {
+        assertEquals(set(ca.getId()), getEdges(a, Direction.IN, ALWAYS).keySet());
+        assertEquals(set(ab.getId(), ac.getId(), ca.getId()), getEdges(a, Direction.BOTH, ALWAYS).keySet());
+        assertEquals(set(ca.getId()), getEdges(a, Direction.BOTH, ALWAYS, "likes").keySet());
+        assertEquals(set(ab.getId()), getEdges(b, Direction.IN, ALWAYS, "knows").keySet());
+        assertTrue(getEdges(b, Direction.OUT, ALWAYS).isEmpty());
+    }
+
+    public void testHistoricalVertex() {
+        // A version of the vertex only sees the history up till its own point in time
+        FluxVertex vertex = (FluxVertex)graph.asOf(after[2]).getVertex(a.getId());
+        Map<Object,FluxTemporalEdge> edges = new HashMap<Object,FluxTemporalEdge>();
+        for (FluxTemporalEdge edge : vertex.getEdges(Direction.BOTH, ALWAYS)) {
+            edges.put(edge.getId(), edge);
+        }
+        assertEquals(set(ab.getId(), ac.getId()), edges.keySet());
+        assertEquals(Long.MAX_VALUE, edges.get(ab.getId()).getValidity().getEndMillis());
+    }
+
+    private Map<Object,FluxTemporalEdge> getEdges(final Vertex vertex, final Direction direction, final Interval interval, final String... labels) {
+        Map<Object,FluxTemporalEdge> edges = new HashMap<Object,FluxTemporalEdge>();
+        for (FluxTemporalEdge edge : ((FluxVertex)graph.getVertex(vertex.getId())).getEdges(direction, interval, labels)) {
+            assertNull(edges.put(edge.getId(), edge));
+        }
+        return edges;
+    }
+
+    private Interval interval(final int from, final int to) {
+        return new Interval(after[from].getTime(), after[to].getTime());
+    }
+
+    private static Set<Object> set(final Object... ids) {
+        return new HashSet<Object>(Arrays.asList(ids));
+    }
+
+    private static Date tick() throws InterruptedException {
+        Thread.sleep(10);
+        Date now = new Date();
+        Thread.sleep(10);
+        return now;
+    }
+
+}
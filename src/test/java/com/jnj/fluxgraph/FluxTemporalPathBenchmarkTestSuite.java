@@ -0,0 +1,76 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.*;
+import com.tinkerpop.blueprints.impls.GraphTest;
+
+import java.util.*;
+
+/**
+ * Benchmarks the temporal path engine on a synthetic temporal graph: contacts between random vertices are added (and some of them removed
+ * again) in successive transactions, after which earliest arrival and latest departure paths are computed between random vertices.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxTemporalPathBenchmarkTestSuite extends TestSuite {
+
+    private static final int TOTAL_VERTICES = 200;
+    private static final int TOTAL_CONTACTS = 2000;
+    private static final int TOTAL_RUNS = 10;
+
+    public FluxTemporalPathBenchmarkTestSuite() {
+    }
+
+    public FluxTemporalPathBenchmarkTestSuite(final GraphTest graphTest) {
+        super(graphTest);
+    }
+
+    public void testTemporalPaths() throws Exception {
+        FluxGraph graph = (FluxGraph)graphTest.generateGraph();
+        Random random = new Random(42);
+        List<Vertex> vertices = new ArrayList<Vertex>();
+        for (int i = 0; i < TOTAL_VERTICES; i++) {
+            vertices.add(graph.addVertex(null));
+        }
+        Date start = new Date();
+        List<Edge> contacts = new ArrayList<Edge>();
+        this.stopWatch();
+        for (int i = 0; i < TOTAL_CONTACTS; i++) {
+            Vertex outVertex = vertices.get(random.nextInt(TOTAL_VERTICES));
+            Vertex inVertex = vertices.get(random.nextInt(TOTAL_VERTICES));
+            contacts.add(graph.addEdge(null, outVertex, inVertex, "contact"));
+            // Contacts only last for a while
+            if (contacts.size() > TOTAL_VERTICES) {
+                graph.removeEdge(contacts.remove(random.nextInt(contacts.size())));
+            }
+        }
+        Date end = new Date();
+        BaseTest.printPerformance(graph.toString(), TOTAL_CONTACTS, "temporal contacts added", this.stopWatch());
+
+        double totalTime = 0.0d;
+        for (int i = 0; i < TOTAL_RUNS; i++) {
+            FluxTemporalPaths paths = new FluxTemporalPaths(graph).labels("contact").maxDepth(8);
+            Vertex source = vertices.get(random.nextInt(TOTAL_VERTICES));
+            Vertex target = vertices.get(random.nextInt(TOTAL_VERTICES));
+            this.stopWatch();
+            Map<Object,Long> arrivals = paths.earliestArrivals(source, start);
+            FluxTemporalPath earliest = paths.earliestArrivalPath(source, target, start);
+            FluxTemporalPath latest = paths.latestDeparturePath(source, target, end);
+            double currentTime = this.stopWatch();
+            totalTime = totalTime + currentTime;
+            if (earliest != null) {
+                assertEquals(arrivals.get(target.getId()).longValue(), earliest.getArrival());
+                assertTrue(earliest.getLength() <= 8);
+                for (int j = 1; j < earliest.getTimes().size(); j++) {
+                    assertTrue(earliest.getTimes().get(j - 1) <= earliest.getTimes().get(j));
+                }
+            }
+            if (latest != null) {
+                assertTrue(latest.getArrival() <= end.getTime());
+            }
+            BaseTest.printPerformance(graph.toString(), (int)paths.getExpansions(), "vertices expanded (run=" + i + ", reachable=" + arrivals.size() + ")", currentTime);
+        }
+        BaseTest.printPerformance("FluxGraph", 1, "Temporal path experiment average", totalTime / (double) TOTAL_RUNS);
+        graph.shutdown();
+    }
+
+}
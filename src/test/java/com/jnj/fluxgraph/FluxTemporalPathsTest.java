@@ -0,0 +1,159 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import junit.framework.TestCase;
+import org.joda.time.Interval;
+
+import java.util.*;
+
+/**
+ * Tests earliest arrival and latest departure searches on a small temporal graph that is built by hand:
+ *
+ *   T1: add b -> c
+ *   T2: add a -> d
+ *   T3: remove b -> c
+ *   T4: add a -> b
+ *   T5: add d -> c
+ *   T6: remove a -> d
+ *
+ * Hence, c can only be reached from a through d (b -> c was already gone before a -> b existed).
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxTemporalPathsTest extends TestCase {
+
+    private FluxGraph graph;
+    private Vertex a, b, c, d;
+    private Edge ab, ad, bc, dc;
+    // Points in time in between the transactions (after[i] is situated between Ti and Ti+1)
+    private Date[] after = new Date[7];
+
+    @Override
+    protected void setUp() throws Exception {
+        graph = new FluxGraph("datomic:mem://temporalpaths" + UUID.randomUUID());
+        a = graph.addVertex(null);
+        b = graph.addVertex(null);
+        c = graph.addVertex(null);
+        d = graph.addVertex(null);
+        after[0] = tick();
+        bc = graph.addEdge(null, b, c, "contact");
+        after[1] = tick();
+        ad = graph.addEdge(null, a, d, "contact");
+        after[2] = tick();
+        graph.removeEdge(bc);
+        after[3] = tick();
+        ab = graph.addEdge(null, a, b, "contact");
+        after[4] = tick();
+        dc = graph.addEdge(null, d, c, "contact");
+        after[5] = tick();
+        graph.removeEdge(ad);
+        after[6] = tick();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        graph.shutdown();
+    }
+
+    public void testEarliestArrivals() {
+        Map<Object,Long> arrivals = new FluxTemporalPaths(graph).labels("contact").earliestArrivals(a, after[0]);
+        assertEquals(4, arrivals.size());
+        assertEquals(after[0].getTime(), arrivals.get(a.getId()).longValue());
+        assertEquals(validity(a, ad).getStartMillis(), arrivals.get(d.getId()).longValue());
+        assertEquals(validity(a, ab).getStartMillis(), arrivals.get(b.getId()).longValue());
+        assertEquals(validity(d, dc).getStartMillis(), arrivals.get(c.getId()).longValue());
+    }
+
+    public void testEarliestArrivalPath() {
+        FluxTemporalPath path = new FluxTemporalPaths(graph).labels("contact").earliestArrivalPath(a, c, after[0]);
+        assertNotNull(path);
+        assertEquals(Arrays.asList(a.getId(), d.getId(), c.getId()), path.getVertexIds());
+        assertEquals(2, path.getLength());
+        assertEquals(ad.getId(), path.getEdges().get(0).getId());
+        assertEquals(dc.getId(), path.getEdges().get(1).getId());
+        assertEquals(validity(a, ad).getStartMillis(), path.getDeparture());
+        assertEquals(validity(d, dc).getStartMillis(), path.getArrival());
+    }
+
+    public void testEarliestArrivalAfterContactsAreGone() {
+        FluxTemporalPaths paths = new FluxTemporalPaths(graph).labels("contact");
+        // Leaving while a -> d and d -> c both exist, the target is reached immediately
+        FluxTemporalPath path = paths.earliestArrivalPath(a, c, after[5]);
+        assertNotNull(path);
+        assertEquals(after[5].getTime(), path.getArrival());
+        // Once a -> d is removed, c can no longer be reached
+        assertNull(paths.earliestArrivalPath(a, c, after[6]));
+        Map<Object,Long> arrivals = paths.earliestArrivals(a, after[6]);
+        assertEquals(new HashSet<Object>(Arrays.asList(a.getId(), b.getId())), arrivals.keySet());
+    }
+
+    public void testEarliestArrivalRespectsMaxDepth() {
+        assertNull(new FluxTemporalPaths(graph).labels("contact").maxDepth(1).earliestArrivalPath(a, c, after[0]));
+        assertNotNull(new FluxTemporalPaths(graph).labels("contact").maxDepth(2).earliestArrivalPath(a, c, after[0]));
+    }
+
+    public void testEarliestArrivalRespectsLabels() {
+        assertNull(new FluxTemporalPaths(graph).labels("knows").earliestArrivalPath(a, c, after[0]));
+    }
+
+    public void testLatestDepartures() {
+        Map<Object,Long> departures = new FluxTemporalPaths(graph).labels("contact").latestDepartures(c, after[6]);
+        assertEquals(4, departures.size());
+        assertEquals(after[6].getTime(), departures.get(c.getId()).longValue());
+        // d -> c still exists, b -> c was removed at T3 and a -> d at T6
+        assertEquals(after[6].getTime(), departures.get(d.getId()).longValue());
+        assertEquals(validity(b, bc).getEndMillis() - 1, departures.get(b.getId()).longValue());
+        assertEquals(validity(a, ad).getEndMillis() - 1, departures.get(a.getId()).longValue());
+    }
+
+    public void testLatestDeparturePath() {
+        FluxTemporalPath path = new FluxTemporalPaths(graph).labels("contact").latestDeparturePath(a, c, after[6]);
+        assertNotNull(path);
+        assertEquals(Arrays.asList(a.getId(), d.getId(), c.getId()), path.getVertexIds());
+        assertEquals(ad.getId(), path.getEdges().get(0).getId());
+        assertEquals(dc.getId(), path.getEdges().get(1).getId());
+        assertEquals(validity(a, ad).getEndMillis() - 1, path.getDeparture());
+        assertEquals(after[6].getTime(), path.getArrival());
+        for (int i = 1; i < path.getTimes().size(); i++) {
+            assertTrue(path.getTimes().get(i - 1) <= path.getTimes().get(i));
+        }
+    }
+
+    public void testLatestDepartureBeforeContactsExist() {
+        // Before T5, c can only be reached through b -> c, which was gone before a -> b existed
+        FluxTemporalPaths paths = new FluxTemporalPaths(graph).labels("contact");
+        assertNull(paths.latestDeparturePath(a, c, after[4]));
+        Map<Object,Long> departures = paths.latestDepartures(c, after[4]);
+        assertEquals(new HashSet<Object>(Arrays.asList(b.getId(), c.getId())), departures.keySet());
+    }
+
+    public void testWindow() {
+        // Hops need to take place within the window, which excludes d -> c
+        FluxTemporalPaths paths = new FluxTemporalPaths(graph).labels("contact").window(after[0], after[4]);
+        assertNull(paths.earliestArrivalPath(a, c, after[0]));
+        assertNotNull(paths.earliestArrivalPath(a, d, after[0]));
+    }
+
+    // Returns the validity interval of an edge as seen from its out vertex
+    private Interval validity(final Vertex outVertex, final Edge edge) {
+        FluxVertex vertex = (FluxVertex)graph.getVertex(outVertex.getId());
+        for (FluxTemporalEdge temporalEdge : vertex.getEdges(Direction.OUT, new Interval(0, Long.MAX_VALUE))) {
+            if (temporalEdge.getId().equals(edge.getId())) {
+                return temporalEdge.getValidity();
+            }
+        }
+        fail("No temporal edge found for " + edge.getId());
+        return null;
+    }
+
+    // Makes sure that successive transactions get distinct transaction instants
+    private static Date tick() throws InterruptedException {
+        Thread.sleep(10);
+        Date now = new Date();
+        Thread.sleep(10);
+        return now;
+    }
+
+}
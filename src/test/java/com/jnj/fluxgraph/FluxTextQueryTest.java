@@ -0,0 +1,126 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Vertex;
+import junit.framework.TestCase;
+
+import java.util.*;
+
+/**
+ * Tests full-text search on string properties that were declared as full-text keys.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxTextQueryTest extends TestCase {
+
+    // The Datomic full-text index is eventually consistent
+    private static final long INDEX_TIMEOUT = 5000;
+
+    private FluxGraph graph;
+    private Vertex graphDatabase, relationalDatabase, cooking;
+    private Edge review;
+
+    @Override
+    protected void setUp() throws Exception {
+        graph = new FluxGraph("datomic:mem://textquery" + UUID.randomUUID());
+        graph.createFullTextKey("description", Vertex.class);
+        graph.createFullTextKey("comment", Edge.class);
+        graphDatabase = addVertex("a temporal graph database on top of datomic");
+        relationalDatabase = addVertex("a relational database");
+        cooking = addVertex("cooking recipes");
+        review = graph.addEdge(null, graphDatabase, relationalDatabase, "compared");
+        review.setProperty("comment", "faster traversals");
+        awaitHits(Vertex.class, "description", "recipes");
+        awaitHits(Edge.class, "comment", "traversals");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        graph.shutdown();
+    }
+
+    public void testSearch() {
+        Set<Object> found = new HashSet<Object>();
+        double previousScore = Double.MAX_VALUE;
+        for (FluxSearchHit<Vertex> hit : graph.searchVertices("description", new FluxTextQuery("database"))) {
+            found.add(hit.getElement().getId());
+            assertTrue(((String)hit.getValue()).contains("database"));
+            // Hits are returned in descending order of their score
+            assertTrue(hit.getScore() <= previousScore);
+            previousScore = hit.getScore();
+        }
+        assertEquals(new HashSet<Object>(Arrays.asList(graphDatabase.getId(), relationalDatabase.getId())), found);
+    }
+
+    public void testGetVertices() {
+        assertEquals(Arrays.asList(graphDatabase.getId()), ids(graph.getVertices("description", new FluxTextQuery("temporal"))));
+        assertEquals(Arrays.asList(cooking.getId()), ids(graph.getVertices("description", new FluxTextQuery("recipes"))));
+        assertTrue(ids(graph.getVertices("description", new FluxTextQuery("gardening"))).isEmpty());
+        assertEquals(1, ids(graph.getVertices("description", new FluxTextQuery("database").limit(1))).size());
+    }
+
+    public void testGetEdges() {
+        assertEquals(Arrays.asList(review.getId()), ids(graph.getEdges("comment", new FluxTextQuery("traversals"))));
+        assertTrue(ids(graph.getEdges("comment", new FluxTextQuery("slower"))).isEmpty());
+    }
+
+    public void testUnknownKey() {
+        assertTrue(ids(graph.getVertices("summary", new FluxTextQuery("database"))).isEmpty());
+    }
+
+    public void testNoFullTextKey() {
+        graph.addVertex(null).setProperty("title", "a graph database");
+        try {
+            graph.getVertices("title", new FluxTextQuery("graph"));
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        // Existing string keys can not be turned into full-text keys
+        try {
+            graph.createFullTextKey("title", Vertex.class);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    public void testInvalidQuery() {
+        try {
+            new FluxTextQuery(null);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            new FluxTextQuery("database").limit(-1);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    private Vertex addVertex(final String description) {
+        Vertex vertex = graph.addVertex(null);
+        vertex.setProperty("description", description);
+        return vertex;
+    }
+
+    private void awaitHits(final Class elementClass, final String key, final String text) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + INDEX_TIMEOUT;
+        while (System.currentTimeMillis() < deadline) {
+            Iterable hits = Vertex.class.equals(elementClass) ? graph.searchVertices(key, new FluxTextQuery(text)) : graph.searchEdges(key, new FluxTextQuery(text));
+            if (hits.iterator().hasNext()) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        fail("Full-text index not updated for " + key);
+    }
+
+    private static List<Object> ids(final Iterable<? extends Element> elements) {
+        List<Object> ids = new ArrayList<Object>();
+        for (Element element : elements) {
+            ids.add(element.getId());
+        }
+        return ids;
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.*;
+import junit.framework.TestCase;
+
+import java.util.*;
+
+/**
+ * Tests the evaluation of declarative time aware filters on the version history. The versions that are retained need to be exactly the same
+ * as the ones retained by evaluating the same filter as a callback on each (materialized) version.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxTimeAwareFilterTest extends TestCase {
+
+    private FluxGraph graph;
+    private Vertex marko;
+    private Date windowStart;
+    private Date windowEnd;
+
+    @Override
+    protected void setUp() throws Exception {
+        graph = new FluxGraph("datomic:mem://timeawarefilter" + UUID.randomUUID());
+        marko = graph.addVertex(null);
+        Vertex vadas = graph.addVertex(null);
+        marko.setProperty("age", 30);
+        marko.setProperty("name", "marko");
+        windowStart = tick();
+        marko.setProperty("age", 31);
+        // Adding an edge creates a new version without property changes
+        graph.addEdge(null, marko, vadas, "knows");
+        marko.removeProperty("age");
+        windowEnd = tick();
+        marko.setProperty("age", 35);
+        marko.setProperty("name", "marko rodriguez");
+        marko.setProperty("age", 30);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        graph.shutdown();
+    }
+
+    public void testPropertyFilter() {
+        assertSameVersions(new TimeAwarePropertyFilter("age", Query.Compare.GREATER_THAN, 30));
+        assertSameVersions(new TimeAwarePropertyFilter("age", Query.Compare.EQUAL, 30));
+        assertSameVersions(new TimeAwarePropertyFilter("age", Query.Compare.NOT_EQUAL, 30));
+        assertSameVersions(new TimeAwarePropertyFilter("age", Query.Compare.LESS_THAN_EQUAL, 31L));
+        assertSameVersions(new TimeAwarePropertyFilter("name", Query.Compare.EQUAL, "marko"));
+        assertSameVersions(new TimeAwarePropertyFilter("height", Query.Compare.EQUAL, 180));
+    }
+
+    public void testPropertyChangedFilter() {
+        assertSameVersions(new TimeAwarePropertyChangedFilter("age"));
+        assertSameVersions(new TimeAwarePropertyChangedFilter("name"));
+        // The age was set, changed, removed and set again before the current version
+        assertEquals(4, count(graph.getVertex(marko.getId()).getPreviousVersions(new TimeAwarePropertyChangedFilter("age"))));
+    }
+
+    public void testWindowFilter() {
+        assertSameVersions(new TimeAwareWindowFilter(windowStart, windowEnd));
+        assertSameVersions(new TimeAwareWindowFilter(null, windowEnd));
+        assertSameVersions(new TimeAwareWindowFilter(windowStart, null));
+        // Three versions started within the window
+        assertEquals(3, count(getFirstVersion().getNextVersions(new TimeAwareWindowFilter(windowStart, windowEnd))));
+    }
+
+    public void testAndFilter() {
+        assertSameVersions(new TimeAwareAndFilter(new TimeAwarePropertyChangedFilter("age"), new TimeAwarePropertyFilter("age", Query.Compare.GREATER_THAN, 30)));
+        assertSameVersions(new TimeAwareAndFilter(new TimeAwareWindowFilter(windowStart, windowEnd), new TimeAwarePropertyFilter("name", Query.Compare.EQUAL, "marko")));
+    }
+
+    // Compares the versions retained by the declarative filter with the versions retained by the same filter evaluated as a callback (in both directions)
+    private void assertSameVersions(final TimeAwareFilter filter) {
+        TimeAwareFilter callback = new TimeAwareFilter() {
+            @Override
+            public TimeAwareElement filter(TimeAwareElement timeAwareElement) {
+                return filter.filter(timeAwareElement);
+            }
+        };
+        TimeAwareVertex current = graph.getVertex(marko.getId());
+        assertEquals(getTimeIds(current.getPreviousVersions(callback)), getTimeIds(current.getPreviousVersions(filter)));
+        TimeAwareVertex first = getFirstVersion();
+        assertEquals(getTimeIds(first.getNextVersions(callback)), getTimeIds(first.getNextVersions(filter)));
+    }
+
+    private TimeAwareVertex getFirstVersion() {
+        TimeAwareVertex version = graph.getVertex(marko.getId());
+        TimeAwareVertex previous = version.getPreviousVersion();
+        while (previous != null) {
+            version = previous;
+            previous = version.getPreviousVersion();
+        }
+        return version;
+    }
+
+    private static List<Object> getTimeIds(final Iterable<TimeAwareVertex> versions) {
+        List<Object> timeIds = new ArrayList<Object>();
+        for (TimeAwareVertex version : versions) {
+            timeIds.add(version.getTimeId());
+        }
+        return timeIds;
+    }
+
+    private static int count(final Iterable<TimeAwareVertex> versions) {
+        return getTimeIds(versions).size();
+    }
+
+    private static Date tick() throws InterruptedException {
+        Thread.sleep(10);
+        Date now = new Date();
+        Thread.sleep(10);
+        return now;
+    }
+
+}
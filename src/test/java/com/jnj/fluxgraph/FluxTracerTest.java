@@ -0,0 +1,151 @@
+package com.jnj.fluxgraph;
+
+import datomic.Database;
+import datomic.Datom;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * Tests the slow-query log and the request traces of the Datomic calls.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxTracerTest extends TestCase {
+
+    private FluxGraph graph;
+    private final List<String> slowQueries = new ArrayList<String>();
+    private final Handler handler = new Handler() {
+        @Override
+        public void publish(final LogRecord record) {
+            // Ignore the calls of the background threads of the graph
+            if (record.getMessage().contains("FluxTracerTest")) {
+                synchronized (slowQueries) {
+                    slowQueries.add(record.getMessage());
+                }
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Override
+    protected void setUp() throws Exception {
+        graph = new FluxGraph("datomic:mem://tracer" + UUID.randomUUID());
+        graph.addVertex(null);
+        graph.addVertex(null);
+        FluxTracer.SLOW_QUERY_LOG.addHandler(handler);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FluxTracer.SLOW_QUERY_LOG.removeHandler(handler);
+        FluxTracer.setSlowQueryThreshold(-1);
+        FluxTracer.stopTrace();
+        graph.shutdown();
+    }
+
+    public void testSlowQueryThreshold() {
+        assertFalse(FluxTracer.isTracing());
+        FluxTracer.setSlowQueryThreshold(10);
+        assertTrue(FluxTracer.isTracing());
+        // Calls below the threshold are not logged
+        FluxTracer.record("FluxTracerTest.fast", "[:find ?e]", new Object[]{"fast"}, 1, 9999999L);
+        assertEquals(0, slowQueries.size());
+        FluxTracer.record("FluxTracerTest.slow", "[:find ?e]", new Object[]{"slow"}, 1, 10000000L);
+        assertEquals(1, slowQueries.size());
+        assertTrue(slowQueries.get(0).contains("FluxTracerTest.slow"));
+        // A negative threshold disables the log
+        FluxTracer.setSlowQueryThreshold(-1);
+        FluxTracer.record("FluxTracerTest.slow", "[:find ?e]", new Object[]{"slow"}, 1, Long.MAX_VALUE);
+        assertEquals(1, slowQueries.size());
+        assertFalse(FluxTracer.isTracing());
+    }
+
+    public void testTrace() {
+        FluxTrace trace = FluxTracer.startTrace("request");
+        assertSame(trace, FluxTracer.getCurrentTrace());
+        FluxTracer.record("FluxTracerTest.first", "[:find ?e]", new Object[0], 1, 10);
+        FluxTracer.record("FluxTracerTest.second", "[:find ?e]", new Object[0], 2, 20);
+        assertSame(trace, FluxTracer.stopTrace());
+        assertNull(FluxTracer.getCurrentTrace());
+        assertEquals(2, trace.getCalls());
+        assertEquals(30, trace.getTotalDuration());
+        assertEquals("FluxTracerTest.second", trace.getSlowestEntries(1).get(0).getSite());
+        // Calls are no longer recorded once the trace is stopped
+        FluxTracer.record("FluxTracerTest.third", "[:find ?e]", new Object[0], 1, 10);
+        assertEquals(2, trace.getCalls());
+    }
+
+    public void testSampling() {
+        assertNull(FluxTracer.startTrace("request", 0.0));
+        assertNull(FluxTracer.getCurrentTrace());
+        assertNotNull(FluxTracer.startTrace("request", 1.0));
+        FluxTracer.stopTrace();
+        int sampled = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (FluxTracer.startTrace("request" + i, 0.5) != null) {
+                sampled++;
+            }
+            FluxTracer.stopTrace();
+        }
+        assertTrue(sampled > 350 && sampled < 650);
+    }
+
+    public void testExhaustedScan() {
+        FluxTrace trace = FluxTracer.startTrace("request");
+        int count = 0;
+        for (Datom datom : scan()) {
+            count++;
+        }
+        // The scan is recorded as soon as it is exhausted
+        assertEquals(1, trace.getCalls());
+        FluxTraceEntry entry = trace.getEntries().get(0);
+        assertEquals("datoms :eavt", entry.getForm());
+        assertEquals(count, entry.getCardinality());
+        FluxTracer.stopTrace();
+        assertEquals(1, trace.getCalls());
+    }
+
+    public void testPartialScan() {
+        FluxTrace trace = FluxTracer.startTrace("request");
+        Iterator<Datom> datoms = scan().iterator();
+        datoms.next();
+        datoms.next();
+        assertEquals(0, trace.getCalls());
+        // Scans that are only partially consumed are recorded when the trace is stopped
+        FluxTracer.stopTrace();
+        assertEquals(1, trace.getCalls());
+        FluxTraceEntry entry = trace.getEntries().get(0);
+        assertEquals("datoms :eavt (partial)", entry.getForm());
+        assertEquals(2, entry.getCardinality());
+    }
+
+    public void testSlowPartialScan() {
+        FluxTracer.setSlowQueryThreshold(0);
+        // Scans of untraced threads are recorded as soon as they exceed the slow-query threshold
+        Iterator<Datom> datoms = scan().iterator();
+        datoms.next();
+        assertEquals(1, slowQueries.size());
+        assertTrue(slowQueries.get(0).contains("(partial)"));
+        // And only once
+        datoms.next();
+        assertEquals(1, slowQueries.size());
+    }
+
+    private Iterable<Datom> scan() {
+        return FluxTracer.trace("FluxTracerTest.scan", graph.getRawGraph().datoms(Database.EAVT), ":eavt", new Object[0]);
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.jnj.fluxgraph;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import junit.framework.TestCase;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the warm-up of the peer cache.
+ *
+ * @author Davy Suvee (http://datablend.be)
+ */
+public class FluxWarmupTest extends TestCase {
+
+    private FluxGraph graph;
+
+    @Override
+    protected void setUp() throws Exception {
+        graph = new FluxGraph("datomic:mem://warmup" + UUID.randomUUID());
+        graph.createKeyIndex("name", Vertex.class);
+        Vertex marko = graph.addVertex(null);
+        marko.setProperty("name", "marko");
+        marko.setProperty("age", 29);
+        Vertex vadas = graph.addVertex(null);
+        vadas.setProperty("name", "vadas");
+        graph.addEdge(null, marko, vadas, "knows");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        graph.shutdown();
+    }
+
+    public void testStructuralAttributes() {
+        FluxWarmup warmup = graph.warmup().run(2);
+        assertTrue(warmup.isDone());
+        assertFalse(warmup.isFailed());
+        assertEquals(4, warmup.getAttributeCount());
+        // Element types of both vertices and the edge, together with the label and the vertices of the edge
+        assertEquals(6, warmup.getDatoms());
+        assertEquals(1, warmup.getEstimatedSegments());
+        assertSame(warmup, graph.getLastWarmup());
+    }
+
+    public void testKey() throws Exception {
+        FluxWarmup warmup = graph.warmup().key("name", Vertex.class).start(1);
+        assertTrue(warmup.await(5, TimeUnit.SECONDS));
+        // The key index covers the attributes of all value types
+        assertEquals(4 + FluxUtil.getValueClasses().length, warmup.getAttributeCount());
+        assertEquals(8, warmup.getDatoms());
+    }
+
+    public void testKeyNotIndexed() {
+        FluxWarmup warmup = graph.warmup();
+        // Scanning the AVET index of a property that is not key-indexed would not warm up anything
+        try {
+            warmup.key("age", Vertex.class);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            warmup.key("name", Edge.class);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        assertEquals(4, warmup.getAttributeCount());
+    }
+
+    public void testArguments() {
+        FluxWarmup warmup = graph.warmup();
+        try {
+            warmup.start(0);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        warmup.run(1);
+        try {
+            warmup.key("name", Vertex.class);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            warmup.start(1);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+}